@@ -0,0 +1 @@
+../cudd/cuddInt.h
\ No newline at end of file
@@ -0,0 +1 @@
+../dddmp/dddmp.h
\ No newline at end of file
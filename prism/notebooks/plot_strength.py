@@ -9,6 +9,7 @@ from util import collect_csv_files
 from util import get_plotting_arguments_parser
 from util import get_related_configuration
 from util import make_dprint
+from util import read_results
 
 PRIOR_STRENGTH = "Prior Strength ($\\underline{n}$-$\\overline{n}$)"
 
@@ -74,12 +75,7 @@ def main(
         # if config['seed'] > 1:
         #     continue
         dprint(f"reading {csv_file}")
-        new_df = pd.read_csv(
-            csv_file,
-            usecols=col_list,  # read subset of columns
-            memory_map=True,   # load file to memory before processing it
-            dtype=dtype_map,   # set dtypes to reduce memory usage
-        )
+        new_df = read_results(csv_file, col_list, dtype_map)
         new_df["Algorithm"] = config["algorithm"]
         new_df["Seed"] = config["seed"]
         new_df.rename(columns={"Average Distance": "Model Error", "Episode": "Trajectory"}, inplace=True)
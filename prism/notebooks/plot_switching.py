@@ -12,6 +12,7 @@ from util import export_legend
 from util import get_plotting_arguments_parser
 from util import get_related_configuration
 from util import make_dprint
+from util import read_results
 
 UPPER_BOUND = "$n_\\textrm{Max}$"
 SWITCHING = "$\\dag$"
@@ -80,12 +81,7 @@ def main(
         config = get_related_configuration(csv_file)
         dprint(f"reading {csv_file}")
 
-        new_df = pd.read_csv(
-            csv_file,
-            usecols=col_list,  # read subset of columns
-            memory_map=True,  # load file to memory before processing it
-            dtype=dtype_map,  # set dtypes to reduce memory usage
-        )
+        new_df = read_results(csv_file, col_list, dtype_map)
         new_df.rename(columns={"Average Distance": "Model Error", "Episode": "Trajectory"}, inplace=True)
         new_df["Seed"] = config["seed"]
         new_df["Algorithm"] = config["algorithm"]
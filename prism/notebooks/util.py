@@ -3,9 +3,31 @@ import datetime
 import glob
 import os
 
+import numpy as np
+import pandas as pd
 import yaml
 from matplotlib import pyplot as plt
 
+# binary result files, as written by prism/src/prism/ResultSink.java
+BINARY_MAGIC = b"LUIRES02"
+BINARY_DTYPE_V1 = np.dtype([
+    ("Accumulated Samples", "<i4"),
+    ("Performance", "<f8"),
+    ("Estimated Performance", "<f8"),
+    ("Average Distance", "<f8"),
+    ("Lower Bound", "<f8"),
+    ("Upper Bound", "<f8"),
+    ("Episode", "<i4"),
+    ("Estimated Optimistic Performance", "<f8"),
+    ("Optimistic Performance", "<f8"),
+])
+BINARY_DTYPE = np.dtype(BINARY_DTYPE_V1.descr + [
+    ("Strategy Version", "<i4"),
+    ("Sampling Strategy Version", "<i4"),
+])
+# files written before the strategy versions were recorded
+BINARY_DTYPES = {b"LUIRES01": BINARY_DTYPE_V1, BINARY_MAGIC: BINARY_DTYPE}
+
 
 def collect_csv_files(includes, excludes, prefix, verbose):
     exclude_files = []
@@ -21,6 +43,10 @@ def collect_csv_files(includes, excludes, prefix, verbose):
     for s in includes:
         include_pattern = os.path.join(prefix, s)
         new_csv_files = glob.glob(include_pattern)
+        # runs written in binary format only are listed by the name of their csv file
+        if include_pattern.endswith(".csv"):
+            bin_files = glob.glob(include_pattern[:-len(".csv")] + ".bin")
+            new_csv_files.extend(os.path.splitext(f)[0] + ".csv" for f in bin_files)
         if not new_csv_files:
             print(f"no csv_file found given the include parameter {s}")
         include_files.extend([f for f in new_csv_files if f not in exclude_files])
@@ -71,6 +97,24 @@ def conf_interval(s):
         return None
 
 
+def read_results(a_csv_file, usecols, dtype):
+    """read the results of a run, from its binary file if there is one, and otherwise from its csv file"""
+    bin_file = os.path.splitext(a_csv_file)[0] + ".bin"
+    if os.path.exists(bin_file):
+        with open(bin_file, "rb") as stream:
+            magic = stream.read(len(BINARY_MAGIC))
+        if magic not in BINARY_DTYPES:
+            raise ValueError(f"{bin_file} is not a result file")
+        df = pd.DataFrame(np.fromfile(bin_file, dtype=BINARY_DTYPES[magic], offset=len(BINARY_MAGIC)))[usecols]
+        return df.astype({column: t for column, t in dtype.items() if column in df.columns})
+    return pd.read_csv(
+        a_csv_file,
+        usecols=usecols,  # read subset of columns
+        memory_map=True,  # load file to memory before processing it
+        dtype=dtype,      # set dtypes to reduce memory usage
+    )
+
+
 def get_related_configuration(a_csv_file):
     yaml_file = os.path.splitext(a_csv_file)[0] + ".yaml"
     with open(yaml_file, "r") as stream:
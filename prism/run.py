@@ -10,10 +10,20 @@ def f(seed):
     p = subprocess.run(cmd, shell=True, env=dict(os.environ, PRISM_MAINCLASS="prism.LearnVerify"))
 
 
+def run_in_one_jvm(seeds, threads):
+    seeds = " ".join(str(seed) for seed in seeds)
+    cmd = f"bin/prism -threads {threads} {seeds}"
+    p = subprocess.run(cmd, shell=True, env=dict(os.environ, PRISM_MAINCLASS="prism.LearnVerify"))
+
+
 if __name__ == '__main__':
     parser = argparse.ArgumentParser()
     parser.add_argument("seeds", default=[1], type=int, nargs='+')
     parser.add_argument("--cpus", default=os.cpu_count(), type=int)
+    parser.add_argument("--threads", default=None, type=int, help="run all seeds in a single JVM on this many threads")
     args = parser.parse_args()
-    with Pool(args.cpus) as p:
-        p.map(f, args.seeds)
+    if args.threads:
+        run_in_one_jvm(args.seeds, args.threads)
+    else:
+        with Pool(args.cpus) as p:
+            p.map(f, args.seeds)
@@ -701,10 +701,10 @@ public class DTMCModelChecker extends ProbModelChecker
 			IterationMethod iterationMethod = null;
 			switch (linEqMethod) {
 			case POWER:
-				iterationMethod = new IterationMethodPower(termCritAbsolute, termCritParam);
+				iterationMethod = createTwoVectorIterationMethod(false);
 				break;
 			case JACOBI:
-				iterationMethod = new IterationMethodJacobi(termCritAbsolute, termCritParam);
+				iterationMethod = createTwoVectorIterationMethod(true);
 				break;
 			case GAUSS_SEIDEL:
 			case BACKWARDS_GAUSS_SEIDEL: {
@@ -1097,7 +1097,7 @@ public class DTMCModelChecker extends ProbModelChecker
 	 */
 	protected ModelCheckerResult computeReachProbsValIter(DTMC<Double> dtmc, BitSet no, BitSet yes, double init[], BitSet known) throws PrismException
 	{
-		IterationMethodPower iterationMethod = new IterationMethodPower(termCrit == TermCrit.ABSOLUTE, termCritParam);
+		IterationMethod iterationMethod = createTwoVectorIterationMethod(false);
 		return doValueIterationReachProbs(dtmc, no, yes, init, known, iterationMethod, false);
 	}
 
@@ -1813,10 +1813,10 @@ public class DTMCModelChecker extends ProbModelChecker
 			IterationMethod iterationMethod;
 			switch (linEqMethod) {
 			case POWER:
-				iterationMethod = new IterationMethodPower(termCritAbsolute, termCritParam);
+				iterationMethod = createTwoVectorIterationMethod(false);
 				break;
 			case JACOBI:
-				iterationMethod = new IterationMethodJacobi(termCritAbsolute, termCritParam);
+				iterationMethod = createTwoVectorIterationMethod(true);
 				break;
 			case GAUSS_SEIDEL:
 			case BACKWARDS_GAUSS_SEIDEL: {
@@ -41,6 +41,7 @@ import parser.State;
 import prism.Evaluator;
 import prism.ModelType;
 import prism.PrismException;
+import prism.PrismUtils;
 
 /**
  * Interface for classes that provide (read) access to an explicit-state interval DTMC.
@@ -220,6 +221,177 @@ public interface IDTMC<Value> extends DTMC<Interval<Value>>
 		d += mvMultSingle(s, vect, minMax);
 		return d;
 	}
+
+	/**
+	 * Do a single row of Jacobi-style matrix-vector multiplication,
+	 * i.e. return the value of state {@code s} if it forms a singleton SCC (see {@link #mvMultJacSingleUnc(int, int[], double[], double[], int[], int, int, double[], double, MinMax)}).
+	 * @param s Row index
+	 * @param vect Vector to multiply by
+	 * @param minMax Min or max info
+	 */
+	public default double mvMultJacSingle(int s, double vect[], MinMax minMax)
+	{
+		return mvMultJacSingleUnc(s, getTransitionsIterator(s), getNumTransitions(s), vect, 0.0, minMax);
+	}
+
+	/**
+	 * Do a single row of Jacobi-style matrix-vector multiplication and sum of rewards,
+	 * i.e. return the value of state {@code s} if it forms a singleton SCC (see {@link #mvMultJacSingleUnc(int, int[], double[], double[], int[], int, int, double[], double, MinMax)}).
+	 * @param s Row index
+	 * @param vect Vector to multiply by
+	 * @param mcRewards The rewards
+	 * @param minMax Min or max info
+	 */
+	public default double mvMultRewJacSingle(int s, double vect[], MCRewards<Double> mcRewards, MinMax minMax)
+	{
+		return mvMultJacSingleUnc(s, getTransitionsIterator(s), getNumTransitions(s), vect, mcRewards.getStateReward(s), minMax);
+	}
+
+	/**
+	 * Compute the value of state {@code s}, with reward {@code rew} and outgoing transitions {@code transitions}
+	 * (with probability intervals), if it forms a singleton SCC (see {@link #mvMultJacSingleUnc(int, int[], double[], double[], int[], int, int, double[], double, MinMax)}).
+	 * @param s State
+	 * @param transitions Outgoing transitions of {@code s}
+	 * @param numTransitions Number of outgoing transitions
+	 * @param vect Solution vector (of which only the values of the successors other than {@code s} are used)
+	 * @param rew Reward of {@code s} (0 for probabilities)
+	 * @param minMax Min or max info (for the uncertainty)
+	 */
+	public static <Value> double mvMultJacSingleUnc(int s, Iterator<Map.Entry<Integer, Interval<Value>>> transitions, int numTransitions, double vect[], double rew, MinMax minMax)
+	{
+		// Extract, for each transition, the successor, the probability interval (lo/hi),
+		// into this thread's scratch buffers
+		SingleUncScratch scratch = SingleUncScratch.get(numTransitions);
+		int[] succs = scratch.succs;
+		double[] probsLo = scratch.probsLo;
+		double[] probsHi = scratch.probsHi;
+		int[] order = scratch.order;
+		int i = 0;
+		while (transitions.hasNext()) {
+			Map.Entry<Integer, Interval<Value>> e = transitions.next();
+			@SuppressWarnings("unchecked")
+			Interval<Double> intv = (Interval<Double>) e.getValue();
+			succs[i] = e.getKey();
+			probsLo[i] = intv.getLower();
+			probsHi[i] = intv.getUpper();
+			i++;
+		}
+		// Sort the transitions according to the successor values (stably, by insertion sort)
+		boolean desc = minMax.isMaxUnc();
+		for (int k = 0; k < numTransitions; k++) {
+			double v = vect[succs[k]];
+			int m = k - 1;
+			while (m >= 0 && (desc ? v > vect[succs[order[m]]] : v < vect[succs[order[m]]])) {
+				order[m + 1] = order[m];
+				m--;
+			}
+			order[m + 1] = k;
+		}
+		return mvMultJacSingleUnc(s, succs, probsLo, probsHi, order, 0, numTransitions, vect, rew, minMax);
+	}
+
+	/**
+	 * Scratch buffers for {@link IDTMC#mvMultJacSingleUnc(int, Iterator, int, double[], double, MinMax)},
+	 * one per thread, grown as needed, so that it does not allocate on every call.
+	 */
+	static final class SingleUncScratch
+	{
+		private static final ThreadLocal<SingleUncScratch> scratch = ThreadLocal.withInitial(SingleUncScratch::new);
+
+		int[] succs = new int[0];
+		double[] probsLo = new double[0];
+		double[] probsHi = new double[0];
+		int[] order = new int[0];
+
+		/**
+		 * Get this thread's scratch buffers, with room for at least {@code n} transitions.
+		 */
+		static SingleUncScratch get(int n)
+		{
+			SingleUncScratch buf = scratch.get();
+			if (buf.succs.length < n) {
+				buf.succs = new int[n];
+				buf.probsLo = new double[n];
+				buf.probsHi = new double[n];
+				buf.order = new int[n];
+			}
+			return buf;
+		}
+	}
+
+	/**
+	 * Compute the value of state {@code s}, with reward {@code rew} and outgoing transitions {@code start..end-1}
+	 * (with successors {@code cols} and probability intervals {@code lower}/{@code upper}), if it forms a singleton SCC,
+	 * i.e. given the values {@code vect} of its other successors. This is the fixed point v of
+	 * v = rew + min/max_P { P(s,s)*v + sum_{j!=s} P(s,j)*vect[j] } over the distributions P within the intervals,
+	 * rather than one step of value iteration towards it.
+	 * <br>
+	 * For a fixed P, the fixed point is v_P = (rew + sum_{j!=s} P(s,j)*vect[j]) / (1-P(s,s)), and since each
+	 * step has slope P(s,s) < 1 in v, the fixed point for min (max) is the minimum (maximum) of v_P over all P.
+	 * This is attained by the extreme distribution that one step of value iteration would pick at the fixed point,
+	 * i.e. for the order of successor values with s in its (unknown) place. So it suffices to take the min/max of v_P
+	 * over the extreme distributions for each place of s in the order of the values of the other successors.
+	 * @param s State
+	 * @param cols Successor of each transition
+	 * @param lower Lower bound of the probability of each transition
+	 * @param upper Upper bound of the probability of each transition
+	 * @param order Transitions {@code start..end-1}, sorted by successor value (descending for max, ascending for min)
+	 * @param start First transition
+	 * @param end Last transition (exclusive)
+	 * @param vect Solution vector (of which only the values of the successors other than {@code s} are used)
+	 * @param rew Reward of {@code s} (0 for probabilities)
+	 * @param minMax Min or max info (for the uncertainty)
+	 */
+	public static double mvMultJacSingleUnc(int s, int[] cols, double[] lower, double[] upper, int[] order, int start, int end, double vect[], double rew, MinMax minMax)
+	{
+		// First add products of probability lower bounds and successor values, apart from the self-loop
+		double selfLo = 0.0;
+		double selfHi = 0.0;
+		double resLo = rew;
+		double totPLo = 1.0;
+		for (int k = start; k < end; k++) {
+			if (cols[k] == s) {
+				selfLo += lower[k];
+				selfHi += upper[k];
+			} else {
+				resLo += vect[cols[k]] * lower[k];
+			}
+			totPLo -= lower[k];
+		}
+		// Then, for each place of s in the order (only one if its probability is fixed),
+		// add the remaining ones in that order, and take the fixed point
+		boolean max = minMax.isMaxUnc();
+		double minmax = Double.NaN;
+		int places = selfHi > selfLo ? end - start : 0;
+		for (int place = 0; place <= places; place++) {
+			double res = resLo;
+			double totP = totPLo;
+			double self = selfLo;
+			for (int k = start; k <= end && totP > 0; k++) {
+				if (k - start == place) {
+					double delta = Math.min(selfHi - selfLo, totP);
+					self += delta;
+					totP -= delta;
+				}
+				if (k < end && cols[order[k]] != s) {
+					int t = order[k];
+					double delta = Math.min(upper[t] - lower[t], totP);
+					if (delta > 0) {
+						res += delta * vect[cols[t]];
+						totP -= delta;
+					}
+				}
+			}
+			// If all the probability is on the self-loop, the value is infinite for a positive reward
+			// (and not determined by the successors otherwise)
+			double d = self < 1.0 ? res / (1.0 - self) : res > 0.0 ? Double.POSITIVE_INFINITY : Double.NaN;
+			if (!Double.isNaN(d) && (Double.isNaN(minmax) || (max ? d > minmax : d < minmax))) {
+				minmax = d;
+			}
+		}
+		// Only a self-loop, with no reward: the value is not determined by the successors, so keep the current one
+		return Double.isNaN(minmax) ? vect[s] : minmax;
+	}
 	
 	/**
 	 * Do a Gauss-Seidel-style matrix-vector multiplication followed by min/max.
@@ -299,4 +471,57 @@ public interface IDTMC<Value> extends DTMC<Interval<Value>>
 		}
 		return maxDiff;
 	}
+
+	/**
+	 * Do a Gauss-Seidel-style matrix-vector multiplication followed by min/max,
+	 * for interval iteration (from below or above), i.e. for all s: vect[s] = min/max_P { sum_j P(s,j)*vect[j] },
+	 * optionally ensuring that values only increase (from below) or decrease (from above).
+	 * @param vect Vector to multiply by (and store the result in)
+	 * @param minMax Min or max info
+	 * @param states Perform computation for these rows, in the iteration order
+	 * @param ensureMonotonic Ensure monotonicity?
+	 * @param fromBelow Iteration from below or from above? (for ensureMonotonicity and checkMonotonic)
+	 * @param checkMonotonic Check monotonicity (after ensuring it, if requested), and throw an exception if violated?
+	 */
+	public default void mvMultGSIntervalIter(double vect[], MinMax minMax, PrimitiveIterator.OfInt states, boolean ensureMonotonic, boolean fromBelow, boolean checkMonotonic) throws PrismException
+	{
+		while (states.hasNext()) {
+			final int s = states.nextInt();
+			double d = mvMultSingle(s, vect, minMax);
+			if (ensureMonotonic) {
+				d = fromBelow ? Math.max(d, vect[s]) : Math.min(d, vect[s]);
+			}
+			if (checkMonotonic) {
+				PrismUtils.checkMonotonicity(vect[s], d, !fromBelow);
+			}
+			vect[s] = d;
+		}
+	}
+
+	/**
+	 * Do a Gauss-Seidel-style matrix-vector multiplication and sum of rewards followed by min/max,
+	 * for interval iteration (from below or above), i.e. for all s: vect[s] = min/max_P { rew(s) + sum_j P(s,j)*vect[j] },
+	 * optionally ensuring that values only increase (from below) or decrease (from above).
+	 * @param vect Vector to multiply by (and store the result in)
+	 * @param mcRewards The rewards
+	 * @param minMax Min or max info
+	 * @param states Perform computation for these rows, in the iteration order
+	 * @param ensureMonotonic Ensure monotonicity?
+	 * @param fromBelow Iteration from below or from above? (for ensureMonotonicity and checkMonotonic)
+	 * @param checkMonotonic Check monotonicity (after ensuring it, if requested), and throw an exception if violated?
+	 */
+	public default void mvMultRewGSIntervalIter(double vect[], MCRewards<Double> mcRewards, MinMax minMax, PrimitiveIterator.OfInt states, boolean ensureMonotonic, boolean fromBelow, boolean checkMonotonic) throws PrismException
+	{
+		while (states.hasNext()) {
+			final int s = states.nextInt();
+			double d = mvMultRewSingle(s, vect, mcRewards, minMax);
+			if (ensureMonotonic) {
+				d = fromBelow ? Math.max(d, vect[s]) : Math.min(d, vect[s]);
+			}
+			if (checkMonotonic) {
+				PrismUtils.checkMonotonicity(vect[s], d, !fromBelow);
+			}
+			vect[s] = d;
+		}
+	}
 }
@@ -34,9 +34,11 @@ import explicit.rewards.MCRewards;
 import explicit.rewards.StateRewardsSimple;
 import prism.AccuracyFactory;
 import prism.Evaluator;
+import prism.OptionsIntervalIteration;
 import prism.PrismComponent;
 import prism.PrismException;
 import prism.PrismNotSupportedException;
+import prism.PrismUtils;
 
 /**
  * Explicit-state model checker for interval discrete-time Markov chains (IDTMCs).
@@ -298,10 +300,10 @@ public class IDTMCModelChecker extends DTMCModelChecker
 			IterationMethod iterationMethod = null;
 			switch (linEqMethod) {
 			case POWER:
-				iterationMethod = new IterationMethodPower(termCrit == TermCrit.ABSOLUTE, termCritParam);
+				iterationMethod = createTwoVectorIterationMethod(false);
 				break;
 			case JACOBI:
-				iterationMethod = new IterationMethodJacobi(termCrit == TermCrit.ABSOLUTE, termCritParam);
+				iterationMethod = createTwoVectorIterationMethod(true);
 				break;
 			case GAUSS_SEIDEL:
 			case BACKWARDS_GAUSS_SEIDEL:
@@ -313,9 +315,23 @@ public class IDTMCModelChecker extends DTMCModelChecker
 			}
 			IterationMethod.IterationValIter iterationReachProbs = iterationMethod.forMvMultMinMaxUnc(idtmc, minMax);
 			iterationReachProbs.init(init);
-			IntSet unknownStates = IntSet.asIntSet(unknown);
-			String description = sMinMax + ", with " + iterationMethod.getDescriptionShort();
-			res = iterationMethod.doValueIteration(this, description, iterationReachProbs, unknownStates, timer, null);
+			String description = sMinMax + (getDoTopologicalValueIteration() ? ", topological" : "") + ", with " + iterationMethod.getDescriptionShort();
+			SCCInfo sccs = null;
+			if (getDoTopologicalValueIteration()) {
+				// Iterate over the SCCs of the unknown states separately, in topological order,
+				// solving singleton SCCs directly
+				sccs = SCCComputer.computeTopologicalOrdering(this, idtmc, true, unknown::get);
+				IterationMethod.SingletonSCCSolver singletonSCCSolver = (int s, double[] soln) -> {
+					soln[s] = idtmc.mvMultJacSingle(s, soln, minMax);
+				};
+				res = iterationMethod.doTopologicalValueIteration(this, description, sccs, iterationReachProbs, singletonSCCSolver, timer, null);
+			} else {
+				IntSet unknownStates = IntSet.asIntSet(unknown);
+				res = iterationMethod.doValueIteration(this, description, iterationReachProbs, unknownStates, timer, null);
+			}
+			if (doIntervalIteration) {
+				res = doIntervalIterationFromValIter(idtmc, null, minMax, res, unknown, sccs, iterationMethod, description, timer);
+			}
 		} else {
 			res = new ModelCheckerResult();
 			res.soln = Utils.bitsetToDoubleArray(yes, n);
@@ -418,10 +434,10 @@ public class IDTMCModelChecker extends DTMCModelChecker
 			IterationMethod iterationMethod = null;
 			switch (linEqMethod) {
 			case POWER:
-				iterationMethod = new IterationMethodPower(termCrit == TermCrit.ABSOLUTE, termCritParam);
+				iterationMethod = createTwoVectorIterationMethod(false);
 				break;
 			case JACOBI:
-				iterationMethod = new IterationMethodJacobi(termCrit == TermCrit.ABSOLUTE, termCritParam);
+				iterationMethod = createTwoVectorIterationMethod(true);
 				break;
 			case GAUSS_SEIDEL:
 			case BACKWARDS_GAUSS_SEIDEL:
@@ -433,9 +449,23 @@ public class IDTMCModelChecker extends DTMCModelChecker
 			}
 			IterationMethod.IterationValIter iterationReachProbs = iterationMethod.forMvMultRewMinMaxUnc(idtmc, mcRewards, minMax);
 			iterationReachProbs.init(init);
-			IntSet unknownStates = IntSet.asIntSet(unknown);
-			String description = sMinMax + ", with " + iterationMethod.getDescriptionShort();
-			res = iterationMethod.doValueIteration(this, description, iterationReachProbs, unknownStates, timer, null);
+			String description = sMinMax + (getDoTopologicalValueIteration() ? ", topological" : "") + ", with " + iterationMethod.getDescriptionShort();
+			SCCInfo sccs = null;
+			if (getDoTopologicalValueIteration()) {
+				// Iterate over the SCCs of the unknown states separately, in topological order,
+				// solving singleton SCCs directly
+				sccs = SCCComputer.computeTopologicalOrdering(this, idtmc, true, unknown::get);
+				IterationMethod.SingletonSCCSolver singletonSCCSolver = (int s, double[] soln) -> {
+					soln[s] = idtmc.mvMultRewJacSingle(s, soln, mcRewards, minMax);
+				};
+				res = iterationMethod.doTopologicalValueIteration(this, description, sccs, iterationReachProbs, singletonSCCSolver, timer, null);
+			} else {
+				IntSet unknownStates = IntSet.asIntSet(unknown);
+				res = iterationMethod.doValueIteration(this, description, iterationReachProbs, unknownStates, timer, null);
+			}
+			if (doIntervalIteration) {
+				res = doIntervalIterationFromValIter(idtmc, mcRewards, minMax, res, unknown, sccs, iterationMethod, description, timer);
+			}
 		} else {
 			res = new ModelCheckerResult();
 			res.soln = Utils.bitsetToDoubleArray(inf, n, Double.POSITIVE_INFINITY);
@@ -452,6 +482,123 @@ public class IDTMCModelChecker extends DTMCModelChecker
 		return res;
 	}
 
+	/**
+	 * Turn the result {@code res} of value iteration (from below) for the {@code unknown} states into one with a guaranteed
+	 * error bound, by interval iteration (see {@link IMDPModelChecker#doIntervalIterationFromValIter}).
+	 * Returns {@code res} itself (with its estimated accuracy) if no upper bound is found.
+	 * @param idtmc The IDTMC
+	 * @param mcRewards The rewards (null for probabilities)
+	 * @param minMax Min/max info
+	 * @param res The result of value iteration
+	 * @param unknown The states to compute values for
+	 * @param sccs The SCCs of the unknown states, for topological interval iteration (null for plain interval iteration)
+	 * @param iterationMethod The iteration method
+	 * @param description Description of the value iteration (for logging)
+	 * @param timer Start time (for logging)
+	 */
+	protected ModelCheckerResult doIntervalIterationFromValIter(IDTMC<Double> idtmc, MCRewards<Double> mcRewards, MinMax minMax, ModelCheckerResult res, BitSet unknown, SCCInfo sccs, IterationMethod iterationMethod, String description, long timer) throws PrismException
+	{
+		double[] upper = computeUpperBound(idtmc, mcRewards, minMax, res.soln, unknown);
+		if (upper == null) {
+			mainLog.printWarning("No upper bound found for interval iteration, so the result has no guaranteed error bound");
+			return res;
+		}
+		// The values may already be close enough to the bound, or, if value iteration did not converge,
+		// iterating further is unlikely to get there, so then just report the bound
+		boolean absolute = termCrit == TermCrit.ABSOLUTE;
+		IntSet unknownStates = IntSet.asIntSet(unknown);
+		double maxError = PrismUtils.measureSupNormInterval(res.soln, upper, absolute, unknownStates.iterator());
+		if (maxError < termCritParam || res.numIters >= maxIters) {
+			mainLog.println("Max " + (absolute ? "" : "relative ") + "diff between value iteration result and upper bound: " + PrismUtils.formatDouble(maxError));
+			res.accuracy = AccuracyFactory.guaranteedNumericalIterative(maxError, absolute);
+			return res;
+		}
+		mainLog.println("Starting interval iteration (" + description + ")...");
+		OptionsIntervalIteration iiOptions = OptionsIntervalIteration.from(this);
+		boolean checkMonotonic = iiOptions.isCheckMonotonicity();
+		IterationMethod.IterationIntervalIter below, above;
+		if (mcRewards == null) {
+			below = iterationMethod.forMvMultMinMaxUncInterval(idtmc, minMax, true, iiOptions.isEnforceMonotonicityFromBelow(), checkMonotonic);
+			above = iterationMethod.forMvMultMinMaxUncInterval(idtmc, minMax, false, iiOptions.isEnforceMonotonicityFromAbove(), checkMonotonic);
+		} else {
+			below = iterationMethod.forMvMultRewMinMaxUncInterval(idtmc, mcRewards, minMax, true, iiOptions.isEnforceMonotonicityFromBelow(), checkMonotonic);
+			above = iterationMethod.forMvMultRewMinMaxUncInterval(idtmc, mcRewards, minMax, false, iiOptions.isEnforceMonotonicityFromAbove(), checkMonotonic);
+		}
+		below.init(res.soln);
+		above.init(upper);
+		ModelCheckerResult resII;
+		if (sccs != null) {
+			IterationMethod.SingletonSCCSolver singletonSCCSolver = (int s, double[] soln) -> {
+				soln[s] = mcRewards == null ? idtmc.mvMultJacSingle(s, soln, minMax) : idtmc.mvMultRewJacSingle(s, soln, mcRewards, minMax);
+			};
+			resII = iterationMethod.doTopologicalIntervalIteration(this, description, sccs, below, above, singletonSCCSolver, timer, null);
+		} else {
+			resII = iterationMethod.doIntervalIteration(this, description, below, above, unknownStates, timer, null);
+		}
+		// If interval iteration did not converge either, the bounds still hold
+		if (Double.isInfinite(resII.accuracy.getErrorBound())) {
+			maxError = PrismUtils.measureSupNormInterval(below.getSolnVector(), above.getSolnVector(), absolute, unknownStates.iterator());
+			resII.accuracy = AccuracyFactory.guaranteedNumericalIterative(maxError, absolute);
+		}
+		resII.numIters += res.numIters;
+		return resII;
+	}
+
+	/**
+	 * Find an upper bound on the values of the {@code unknown} states, from (an approximation of) them from below,
+	 * {@code soln}, or return null if none is found (see {@link IMDPModelChecker#computeUpperBound}).
+	 * @param idtmc The IDTMC
+	 * @param mcRewards The rewards (null for probabilities)
+	 * @param minMax Min/max info
+	 * @param soln Values from below
+	 * @param unknown The states to compute values for
+	 */
+	protected double[] computeUpperBound(IDTMC<Double> idtmc, MCRewards<Double> mcRewards, MinMax minMax, double[] soln, BitSet unknown)
+	{
+		boolean absolute = termCrit == TermCrit.ABSOLUTE;
+		double[] upper = soln.clone();
+		// Start with half the termination threshold, so that interval iteration can stop straight away
+		double delta = termCritParam / 2;
+		for (int attempt = 0; attempt < 40; attempt++, delta *= 2) {
+			for (int s = unknown.nextSetBit(0); s >= 0; s = unknown.nextSetBit(s + 1)) {
+				upper[s] = soln[s] + delta * (absolute || soln[s] == 0.0 ? 1.0 : soln[s]);
+				if (mcRewards == null && upper[s] > 1.0) {
+					upper[s] = 1.0;
+				}
+			}
+			if (isUpperBound(idtmc, mcRewards, minMax, upper, unknown)) {
+				return upper;
+			}
+		}
+		if (mcRewards == null) {
+			for (int s = unknown.nextSetBit(0); s >= 0; s = unknown.nextSetBit(s + 1)) {
+				upper[s] = 1.0;
+			}
+			return upper;
+		}
+		return null;
+	}
+
+	/**
+	 * Check that one step of value iteration does not increase {@code vect} for any of the {@code unknown} states,
+	 * i.e. that it is an upper bound on the values. The comparison is exact: rounding errors are instead
+	 * absorbed by inflating the candidate vector further (see {@link #computeUpperBound}).
+	 * For probabilities, the step is capped at 1, which all values are below anyway.
+	 */
+	protected boolean isUpperBound(IDTMC<Double> idtmc, MCRewards<Double> mcRewards, MinMax minMax, double[] vect, BitSet unknown)
+	{
+		for (int s = unknown.nextSetBit(0); s >= 0; s = unknown.nextSetBit(s + 1)) {
+			double d = mcRewards == null ? idtmc.mvMultSingle(s, vect, minMax) : idtmc.mvMultRewSingle(s, vect, mcRewards, minMax);
+			if (mcRewards == null && d > 1.0) {
+				d = 1.0;
+			}
+			if (d > vect[s]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * Check that all of the values in a MC reward structure over (double) intervals
 	 * are actual singleton values, then return a new one just over doubles.
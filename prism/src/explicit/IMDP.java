@@ -41,6 +41,7 @@ import parser.State;
 import prism.Evaluator;
 import prism.ModelType;
 import prism.PrismException;
+import prism.PrismUtils;
 
 /**
  * Interface for classes that provide (read) access to an explicit-state interval MDP.
@@ -57,6 +58,23 @@ public interface IMDP<Value> extends MDP<Interval<Value>>
 
 	// Accessors
 	
+	/**
+	 * Scratch space for the single-state steps of value iteration of an IMDP (see {@link #createScratch()}).
+	 */
+	public interface Scratch
+	{
+	}
+
+	/**
+	 * Create scratch space for the single-state steps of value iteration (e.g. {@link #mvMultSingle(int, int, double[], MinMax, Scratch)}),
+	 * to be passed to them by one solve, or null if none is needed. Several threads may only use the same
+	 * scratch space at once for disjoint sets of states. The steps also work without it (but may then allocate).
+	 */
+	public default Scratch createScratch()
+	{
+		return null;
+	}
+
 	/**
 	 * Checks that transition probability interval lower bounds are positive
 	 * and throws an exception if any are not.
@@ -113,10 +131,26 @@ public interface IMDP<Value> extends MDP<Interval<Value>>
 	 * @param strat Storage for (memoryless) strategy choice indices (ignored if null)
 	 */
 	public default void mvMult(double vect[], MinMax minMax, double result[], PrimitiveIterator.OfInt states, int[] strat)
+	{
+		mvMult(vect, minMax, result, states, strat, null);
+	}
+
+	/**
+	 * Do a matrix-vector multiplication for the DTMC's transition probability matrix P
+	 * and the vector {@code vect} passed in, for the state indices provided by the iterator,
+	 * i.e., for all s of {@code states}: result[s] = sum_j P(s,j)*vect[j]
+	 * @param vect Vector to multiply by
+	 * @param minMax Min or max info
+	 * @param result Vector to store result in
+	 * @param states Perform multiplication for these rows, in the iteration order
+	 * @param strat Storage for (memoryless) strategy choice indices (ignored if null)
+	 * @param scratch Scratch space (see {@link #createScratch()}; may be null)
+	 */
+	public default void mvMult(double vect[], MinMax minMax, double result[], PrimitiveIterator.OfInt states, int[] strat, Scratch scratch)
 	{
 		while (states.hasNext()) {
 			int s = states.nextInt();
-			result[s] = mvMultSingle(s, vect, minMax, strat);
+			result[s] = mvMultSingle(s, vect, minMax, strat, scratch);
 		}
 	}
 
@@ -130,6 +164,21 @@ public interface IMDP<Value> extends MDP<Interval<Value>>
 	 * @param strat Storage for (memoryless) strategy choice indices (ignored if null)
 	 */
 	public default double mvMultSingle(int s, double vect[], MinMax minMax, int[] strat)
+	{
+		return mvMultSingle(s, vect, minMax, strat, null);
+	}
+
+	/**
+	 * Do a single row of matrix-vector multiplication for
+	 * the DTMC's transition probability matrix P and the vector {@code vect} passed in.
+	 * i.e. return sum_j P(s,j)*vect[j]
+	 * @param s Row index
+	 * @param vect Vector to multiply by
+	 * @param minMax Min or max info
+	 * @param strat Storage for (memoryless) strategy choice indices (ignored if null)
+	 * @param scratch Scratch space (see {@link #createScratch()}; may be null)
+	 */
+	public default double mvMultSingle(int s, double vect[], MinMax minMax, int[] strat, Scratch scratch)
 	{
 		int stratCh = -1;
 		double minmax = 0;
@@ -138,7 +187,7 @@ public interface IMDP<Value> extends MDP<Interval<Value>>
 
 		for (int choice = 0, numChoices = getNumChoices(s); choice < numChoices; choice++) {
 			// Compute sum for this distribution
-			double d = mvMultSingle(s, choice, vect, minMax);
+			double d = mvMultSingle(s, choice, vect, minMax, scratch);
 
 			// Check whether we have exceeded min/max so far
 			if (first || (min && d < minmax) || (!min && d > minmax)) {
@@ -162,7 +211,29 @@ public interface IMDP<Value> extends MDP<Interval<Value>>
 		return minmax;	
 	}
 	
+	/**
+	 * Do a single row of matrix-vector multiplication for a specific choice,
+	 * i.e. return min/max_P { sum_j P_i(s,j)*vect[j] } over the distributions P within the intervals.
+	 * @param s Row index
+	 * @param choice Choice index
+	 * @param vect Vector to multiply by
+	 * @param minMax Min or max info
+	 */
 	public default double mvMultSingle(int s, int choice, double vect[], MinMax minMax)
+	{
+		return mvMultSingle(s, choice, vect, minMax, null);
+	}
+
+	/**
+	 * Do a single row of matrix-vector multiplication for a specific choice,
+	 * i.e. return min/max_P { sum_j P_i(s,j)*vect[j] } over the distributions P within the intervals.
+	 * @param s Row index
+	 * @param choice Choice index
+	 * @param vect Vector to multiply by
+	 * @param minMax Min or max info
+	 * @param scratch Scratch space (see {@link #createScratch()}; may be null)
+	 */
+	public default double mvMultSingle(int s, int choice, double vect[], MinMax minMax, Scratch scratch)
 	{
 		// One step of value iteration for IDTMCs
 		// Avoid enumeration of all extreme distributions using optimisation from:
@@ -244,10 +315,26 @@ public interface IMDP<Value> extends MDP<Interval<Value>>
 	 * @param states Perform multiplication for these rows, in the iteration order
 	 */
 	public default void mvMultRew(double vect[], MDPRewards<Double> mdpRewards, MinMax minMax, double result[], PrimitiveIterator.OfInt states, int[] strat)
+	{
+		mvMultRew(vect, mdpRewards, minMax, result, states, strat, null);
+	}
+
+	/**
+	 * Do a matrix-vector multiplication and sum of rewards followed by min/max, i.e. one step of value iteration.
+	 * i.e. for all s: result[s] = min/max_k { rew(s) + rew_k(s) + sum_j P_k(s,j)*vect[j] }
+	 * @param vect Vector to multiply by
+	 * @param mdpRewards The rewards
+	 * @param minMax Min or max info
+	 * @param result Vector to store result in
+	 * @param states Perform multiplication for these rows, in the iteration order
+	 * @param strat Storage for (memoryless) strategy choice indices (ignored if null)
+	 * @param scratch Scratch space (see {@link #createScratch()}; may be null)
+	 */
+	public default void mvMultRew(double vect[], MDPRewards<Double> mdpRewards, MinMax minMax, double result[], PrimitiveIterator.OfInt states, int[] strat, Scratch scratch)
 	{
 		while (states.hasNext()) {
 			int s = states.nextInt();
-			result[s] = mvMultRewSingle(s, vect, mdpRewards, minMax, strat);
+			result[s] = mvMultRewSingle(s, vect, mdpRewards, minMax, strat, scratch);
 		}
 	}
 
@@ -262,6 +349,22 @@ public interface IMDP<Value> extends MDP<Interval<Value>>
 	 * @param strat Storage for (memoryless) strategy choice indices (ignored if null)
 	 */
 	public default double mvMultRewSingle(int s, double vect[], MDPRewards<Double> mdpRewards, MinMax minMax, int[] strat)
+	{
+		return mvMultRewSingle(s, vect, mdpRewards, minMax, strat, null);
+	}
+
+	/**
+	 * Do a single row of matrix-vector multiplication and sum of rewards followed by min/max.
+	 * i.e. return min/max_k { rew(s) + rew_k(s) + sum_j P_k(s,j)*vect[j] }
+	 * Optionally, store optimal (memoryless) strategy info.
+	 * @param s Row index
+	 * @param vect Vector to multiply by
+	 * @param mdpRewards The rewards
+	 * @param minMax Min or max info
+	 * @param strat Storage for (memoryless) strategy choice indices (ignored if null)
+	 * @param scratch Scratch space (see {@link #createScratch()}; may be null)
+	 */
+	public default double mvMultRewSingle(int s, double vect[], MDPRewards<Double> mdpRewards, MinMax minMax, int[] strat, Scratch scratch)
 	{
 		int stratCh = -1;
 		double minmax = 0;
@@ -269,7 +372,7 @@ public interface IMDP<Value> extends MDP<Interval<Value>>
 		boolean min = minMax.isMin();
 
 		for (int choice = 0, numChoices = getNumChoices(s); choice < numChoices; choice++) {
-			double d = mvMultRewSingle(s, choice, vect, mdpRewards, minMax);
+			double d = mvMultRewSingle(s, choice, vect, mdpRewards, minMax, scratch);
 			// Check whether we have exceeded min/max so far
 			if (first || (min && d < minmax) || (!min && d > minmax)) {
 				minmax = d;
@@ -302,13 +405,119 @@ public interface IMDP<Value> extends MDP<Interval<Value>>
 	 * @param minMax Min or max info
 	 */
 	public default double mvMultRewSingle(int s, int i, double vect[], MDPRewards<Double> mdpRewards, MinMax minMax)
+	{
+		return mvMultRewSingle(s, i, vect, mdpRewards, minMax, null);
+	}
+
+	/**
+	 * Do a single row of matrix-vector multiplication and sum of rewards for a specific choice.
+	 * i.e. rew(s) + rew_i(s) + sum_j P_i(s,j)*vect[j]
+	 * @param s State (row) index
+	 * @param i Choice index
+	 * @param vect Vector to multiply by
+	 * @param mdpRewards The rewards (MDP rewards)
+	 * @param minMax Min or max info
+	 * @param scratch Scratch space (see {@link #createScratch()}; may be null)
+	 */
+	public default double mvMultRewSingle(int s, int i, double vect[], MDPRewards<Double> mdpRewards, MinMax minMax, Scratch scratch)
 	{
 		double d = mdpRewards.getStateReward(s);
 		d += mdpRewards.getTransitionReward(s, i);
-		d += mvMultSingle(s, i, vect, minMax);
+		d += mvMultSingle(s, i, vect, minMax, scratch);
 		return d;
 	}
 
+	/**
+	 * Do a single row of Jacobi-style matrix-vector multiplication followed by min/max,
+	 * i.e. return the value of state {@code s} if it forms a singleton SCC, given the values of its other successors
+	 * (see {@link IDTMC#mvMultJacSingleUnc(int, int[], double[], double[], int[], int, int, double[], double, MinMax)}; the value for the best choice is that of the best fixed point for a choice).
+	 * Optionally, store optimal (memoryless) strategy info.
+	 * @param s Row index
+	 * @param vect Vector to multiply by
+	 * @param minMax Min or max info
+	 * @param strat Storage for (memoryless) strategy choice indices (ignored if null)
+	 * @param scratch Scratch space (see {@link #createScratch()}; may be null)
+	 */
+	public default double mvMultJacMinMaxSingle(int s, double vect[], MinMax minMax, int[] strat, Scratch scratch)
+	{
+		return mvMultRewJacMinMaxSingle(s, vect, null, minMax, strat, scratch);
+	}
+
+	/**
+	 * Do a single row of Jacobi-style matrix-vector multiplication and sum of rewards followed by min/max,
+	 * i.e. return the value of state {@code s} if it forms a singleton SCC, given the values of its other successors
+	 * (see {@link #mvMultJacMinMaxSingle}).
+	 * Optionally, store optimal (memoryless) strategy info.
+	 * @param s Row index
+	 * @param vect Vector to multiply by
+	 * @param mdpRewards The rewards (null for none)
+	 * @param minMax Min or max info
+	 * @param strat Storage for (memoryless) strategy choice indices (ignored if null)
+	 * @param scratch Scratch space (see {@link #createScratch()}; may be null)
+	 */
+	public default double mvMultRewJacMinMaxSingle(int s, double vect[], MDPRewards<Double> mdpRewards, MinMax minMax, int[] strat, Scratch scratch)
+	{
+		int stratCh = -1;
+		double minmax = 0;
+		boolean first = true;
+		boolean min = minMax.isMin();
+
+		for (int choice = 0, numChoices = getNumChoices(s); choice < numChoices; choice++) {
+			double d = mdpRewards == null ? mvMultJacSingle(s, choice, vect, minMax, scratch) : mvMultRewJacSingle(s, choice, vect, mdpRewards, minMax, scratch);
+			// Check whether we have exceeded min/max so far
+			if (first || (min && d < minmax) || (!min && d > minmax)) {
+				minmax = d;
+				// If strategy generation is enabled, remember optimal choice
+				if (strat != null)
+					stratCh = choice;
+			}
+			first = false;
+		}
+		// If strategy generation is enabled, store optimal choice
+		if (strat != null && !first) {
+			// For max, only remember strictly better choices
+			if (min) {
+				strat[s] = stratCh;
+			} else if (strat[s] == -1 || minmax > vect[s]) {
+				strat[s] = stratCh;
+			}
+		}
+
+		return minmax;
+	}
+
+	/**
+	 * Do a single row of Jacobi-style matrix-vector multiplication for a specific choice,
+	 * i.e. return the value of state {@code s} under choice {@code i} if it forms a singleton SCC
+	 * (see {@link IDTMC#mvMultJacSingleUnc(int, int[], double[], double[], int[], int, int, double[], double, MinMax)}).
+	 * @param s Row index
+	 * @param i Choice index
+	 * @param vect Vector to multiply by
+	 * @param minMax Min or max info
+	 * @param scratch Scratch space (see {@link #createScratch()}; may be null)
+	 */
+	public default double mvMultJacSingle(int s, int i, double vect[], MinMax minMax, Scratch scratch)
+	{
+		return IDTMC.mvMultJacSingleUnc(s, getTransitionsIterator(s, i), getNumTransitions(s, i), vect, 0.0, minMax);
+	}
+
+	/**
+	 * Do a single row of Jacobi-style matrix-vector multiplication and sum of rewards for a specific choice,
+	 * i.e. return the value of state {@code s} under choice {@code i} if it forms a singleton SCC
+	 * (see {@link IDTMC#mvMultJacSingleUnc(int, int[], double[], double[], int[], int, int, double[], double, MinMax)}).
+	 * @param s Row index
+	 * @param i Choice index
+	 * @param vect Vector to multiply by
+	 * @param mdpRewards The rewards
+	 * @param minMax Min or max info
+	 * @param scratch Scratch space (see {@link #createScratch()}; may be null)
+	 */
+	public default double mvMultRewJacSingle(int s, int i, double vect[], MDPRewards<Double> mdpRewards, MinMax minMax, Scratch scratch)
+	{
+		double rew = mdpRewards.getStateReward(s) + mdpRewards.getTransitionReward(s, i);
+		return IDTMC.mvMultJacSingleUnc(s, getTransitionsIterator(s, i), getNumTransitions(s, i), vect, rew, minMax);
+	}
+
 	/**
 	 * Do a Gauss-Seidel-style matrix-vector multiplication followed by min/max.
 	 * i.e. for all s: vect[s] = min/max_k { (sum_{j!=s} P_k(s,j)*vect[j]) / 1-P_k(s,s) }
@@ -344,13 +553,33 @@ public interface IMDP<Value> extends MDP<Interval<Value>>
 	 * @return The maximum difference between old/new elements of {@code vect}
 	 */
 	public default double mvMultGS(double vect[], MinMax minMax, PrimitiveIterator.OfInt states, boolean absolute, int[] strat)
+	{
+		return mvMultGS(vect, minMax, states, absolute, strat, null);
+	}
+
+	/**
+	 * Do a Gauss-Seidel-style matrix-vector multiplication followed by min/max.
+	 * i.e. for all s: vect[s] = min/max_k { (sum_{j!=s} P_k(s,j)*vect[j]) / 1-P_k(s,s) }
+	 * and store new values directly in {@code vect} as computed.
+	 * The maximum (absolute/relative) difference between old/new
+	 * elements of {@code vect} is also returned.
+	 * Optionally, store optimal (memoryless) strategy info.
+	 * @param vect Vector to multiply by (and store the result in)
+	 * @param min Min or max for (true=min, false=max)
+	 * @param states Perform computation for these rows, in the iteration order
+	 * @param absolute If true, compute absolute, rather than relative, difference
+	 * @param strat Storage for (memoryless) strategy choice indices (ignored if null)
+	 * @param scratch Scratch space (see {@link #createScratch()}; may be null)
+	 * @return The maximum difference between old/new elements of {@code vect}
+	 */
+	public default double mvMultGS(double vect[], MinMax minMax, PrimitiveIterator.OfInt states, boolean absolute, int[] strat, Scratch scratch)
 	{
 		double d, diff, maxDiff = 0.0;
 		while (states.hasNext()) {
 			final int s = states.nextInt();
 			//d = mvMultJacSingle(s, vect, minMax);
 			// Just do a normal (non-Jacobi) state update - not so easy to adapt for intervals
-			d = mvMultSingle(s, vect, minMax, strat);
+			d = mvMultSingle(s, vect, minMax, strat, scratch);
 			diff = absolute ? (Math.abs(d - vect[s])) : (Math.abs(d - vect[s]) / d);
 			maxDiff = diff > maxDiff ? diff : maxDiff;
 			vect[s] = d;
@@ -374,17 +603,97 @@ public interface IMDP<Value> extends MDP<Interval<Value>>
 	 * @return The maximum difference between old/new elements of {@code vect}
 	 */
 	public default double mvMultRewGS(double vect[], MDPRewards<Double> mdpRewards, MinMax minMax, PrimitiveIterator.OfInt states, boolean absolute, int[] strat)
+	{
+		return mvMultRewGS(vect, mdpRewards, minMax, states, absolute, strat, null);
+	}
+
+	/**
+	 * Do a Gauss-Seidel-style matrix-vector multiplication and sum of rewards followed by min/max.
+	 * i.e. for all s: vect[s] = min/max_k { rew(s) + rew_k(s) + (sum_{j!=s} P_k(s,j)*vect[j]) / 1-P_k(s,s) }
+	 * and store new values directly in {@code vect} as computed.
+	 * The maximum (absolute/relative) difference between old/new
+	 * elements of {@code vect} is also returned.
+	 * Optionally, store optimal (memoryless) strategy info.
+	 * @param vect Vector to multiply by (and store the result in)
+	 * @param mdpRewards The rewards
+	 * @param minMax Min or max info
+	 * @param states Perform computation for these rows, in the iteration order
+	 * @param absolute If true, compute absolute, rather than relative, difference
+	 * @param strat Storage for (memoryless) strategy choice indices (ignored if null)
+	 * @param scratch Scratch space (see {@link #createScratch()}; may be null)
+	 * @return The maximum difference between old/new elements of {@code vect}
+	 */
+	public default double mvMultRewGS(double vect[], MDPRewards<Double> mdpRewards, MinMax minMax, PrimitiveIterator.OfInt states, boolean absolute, int[] strat, Scratch scratch)
 	{
 		double d, diff, maxDiff = 0.0;
 		while (states.hasNext()) {
 			final int s = states.nextInt();
 			//d = mvMultJacSingle(s, vect, minMax);
 			// Just do a normal (non-Jacobi) state update - not so easy to adapt for intervals
-			d = mvMultRewSingle(s, vect, mdpRewards, minMax, strat);
+			d = mvMultRewSingle(s, vect, mdpRewards, minMax, strat, scratch);
 			diff = absolute ? (Math.abs(d - vect[s])) : (Math.abs(d - vect[s]) / d);
 			maxDiff = diff > maxDiff ? diff : maxDiff;
 			vect[s] = d;
 		}
 		return maxDiff;
 	}
+
+	/**
+	 * Do a Gauss-Seidel-style matrix-vector multiplication followed by min/max,
+	 * for interval iteration (from below or above), i.e. for all s: vect[s] = min/max_k min/max_P { sum_j P_k(s,j)*vect[j] },
+	 * optionally ensuring that values only increase (from below) or decrease (from above).
+	 * Optionally, store optimal (memoryless) strategy info.
+	 * @param vect Vector to multiply by (and store the result in)
+	 * @param minMax Min or max info
+	 * @param states Perform computation for these rows, in the iteration order
+	 * @param strat Storage for (memoryless) strategy choice indices (ignored if null)
+	 * @param ensureMonotonic Ensure monotonicity?
+	 * @param fromBelow Iteration from below or from above? (for ensureMonotonicity and checkMonotonic)
+	 * @param checkMonotonic Check monotonicity (after ensuring it, if requested), and throw an exception if violated?
+	 * @param scratch Scratch space (see {@link #createScratch()}; may be null)
+	 */
+	public default void mvMultGSIntervalIter(double vect[], MinMax minMax, PrimitiveIterator.OfInt states, int[] strat, boolean ensureMonotonic, boolean fromBelow, boolean checkMonotonic, Scratch scratch) throws PrismException
+	{
+		while (states.hasNext()) {
+			final int s = states.nextInt();
+			double d = mvMultSingle(s, vect, minMax, strat, scratch);
+			if (ensureMonotonic) {
+				d = fromBelow ? Math.max(d, vect[s]) : Math.min(d, vect[s]);
+			}
+			if (checkMonotonic) {
+				PrismUtils.checkMonotonicity(vect[s], d, !fromBelow);
+			}
+			vect[s] = d;
+		}
+	}
+
+	/**
+	 * Do a Gauss-Seidel-style matrix-vector multiplication and sum of rewards followed by min/max,
+	 * for interval iteration (from below or above), i.e. for all s: vect[s] = min/max_k min/max_P { rew(s) + rew_k(s) + sum_j P_k(s,j)*vect[j] },
+	 * optionally ensuring that values only increase (from below) or decrease (from above).
+	 * Optionally, store optimal (memoryless) strategy info.
+	 * @param vect Vector to multiply by (and store the result in)
+	 * @param mdpRewards The rewards
+	 * @param minMax Min or max info
+	 * @param states Perform computation for these rows, in the iteration order
+	 * @param strat Storage for (memoryless) strategy choice indices (ignored if null)
+	 * @param ensureMonotonic Ensure monotonicity?
+	 * @param fromBelow Iteration from below or from above? (for ensureMonotonicity and checkMonotonic)
+	 * @param checkMonotonic Check monotonicity (after ensuring it, if requested), and throw an exception if violated?
+	 * @param scratch Scratch space (see {@link #createScratch()}; may be null)
+	 */
+	public default void mvMultRewGSIntervalIter(double vect[], MDPRewards<Double> mdpRewards, MinMax minMax, PrimitiveIterator.OfInt states, int[] strat, boolean ensureMonotonic, boolean fromBelow, boolean checkMonotonic, Scratch scratch) throws PrismException
+	{
+		while (states.hasNext()) {
+			final int s = states.nextInt();
+			double d = mvMultRewSingle(s, vect, mdpRewards, minMax, strat, scratch);
+			if (ensureMonotonic) {
+				d = fromBelow ? Math.max(d, vect[s]) : Math.min(d, vect[s]);
+			}
+			if (checkMonotonic) {
+				PrismUtils.checkMonotonicity(vect[s], d, !fromBelow);
+			}
+			vect[s] = d;
+		}
+	}
 }
@@ -0,0 +1,136 @@
+package explicit;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import common.Interval;
+
+/**
+ * Mutable IMDP over the transition structure of an MDP: the IMDP has the same states, choices and
+ * transitions as the MDP, but the probability interval of each transition can be overwritten in place.
+ * Transitions with probability 0 in the MDP are left out, since no interval estimate can make them possible.
+ * If the MDP is an {@link MDPSparse} without such transitions, its sparse matrix is shared rather than copied;
+ * otherwise it is stored in the same layout, in the order of the MDP's transition iterators.
+ */
+public class IMDPFromMDP extends IMDPSparse
+{
+	/** The MDP whose transition structure this IMDP has */
+	protected MDP<Double> mdp;
+
+	/**
+	 * Constructor: Build an IMDP with the transition structure of {@code mdp},
+	 * where each transition initially has the point interval [p,p] of its probability p in the MDP
+	 * (transitions with p=0 are left out). The labels of the MDP are added to the IMDP (but their BitSets are not copied).
+	 */
+	public IMDPFromMDP(final MDP<Double> mdp)
+	{
+		this.mdp = mdp;
+		initialiseFromMDP(mdp);
+		if (mdp instanceof MDPSparse && !hasZeroProbabilities((MDPSparse) mdp)) {
+			// Share the sparse matrix of the MDP (which is not modified after construction)
+			MDPSparse mdpSparse = (MDPSparse) mdp;
+			shareMatrix(mdpSparse);
+			lower = mdpSparse.nonZeros.clone();
+			upper = mdpSparse.nonZeros.clone();
+		} else {
+			numTransitions = 0;
+			for (int state = 0; state < numStates; state++) {
+				for (int choice = 0, numChoices = mdp.getNumChoices(state); choice < numChoices; choice++) {
+					for (Iterator<Entry<Integer, Double>> transitions = mdp.getTransitionsIterator(state, choice); transitions.hasNext();) {
+						if (transitions.next().getValue() != 0.0) {
+							numTransitions++;
+						}
+					}
+				}
+			}
+			lower = new double[numTransitions];
+			upper = new double[numTransitions];
+			cols = new int[numTransitions];
+			choiceStarts = new int[numDistrs + 1];
+			rowStarts = new int[numStates + 1];
+			actions = new Object[numDistrs];
+			int rowIndex = 0, choiceIndex = 0;
+			for (int state = 0; state < numStates; state++) {
+				rowStarts[state] = rowIndex;
+				for (int choice = 0, numChoices = mdp.getNumChoices(state); choice < numChoices; choice++) {
+					actions[rowIndex] = mdp.getAction(state, choice);
+					choiceStarts[rowIndex] = choiceIndex;
+					for (Iterator<Entry<Integer, Double>> transitions = mdp.getTransitionsIterator(state, choice); transitions.hasNext();) {
+						final Map.Entry<Integer, Double> trans = transitions.next();
+						if (trans.getValue() == 0.0) {
+							continue;
+						}
+						cols[choiceIndex] = trans.getKey();
+						lower[choiceIndex] = upper[choiceIndex] = trans.getValue();
+						choiceIndex++;
+					}
+					rowIndex++;
+				}
+			}
+			choiceStarts[numDistrs] = numTransitions;
+			rowStarts[numStates] = numDistrs;
+		}
+	}
+
+	/**
+	 * Does {@code mdp} store any transitions with probability 0?
+	 */
+	private static boolean hasZeroProbabilities(MDPSparse mdp)
+	{
+		for (int k = 0, n = mdp.getNumTransitions(); k < n; k++) {
+			if (mdp.nonZeros[k] == 0.0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Copy constructor: the copy has the transition structure of the same MDP and the same intervals,
+	 * but its intervals can be changed independently of those of {@code imdp}.
+	 */
+	public IMDPFromMDP(IMDPFromMDP imdp)
+	{
+		this(imdp.mdp);
+		System.arraycopy(imdp.lower, 0, lower, 0, numTransitions);
+		System.arraycopy(imdp.upper, 0, upper, 0, numTransitions);
+	}
+
+	// Mutators
+
+	/**
+	 * Set the probability interval of the transition from state {@code s}, choice {@code i}, to state {@code succ}.
+	 * Does nothing if {@code succ} is not a successor of this choice.
+	 */
+	public void setInterval(int s, int i, int succ, double lo, double hi)
+	{
+		int j = rowStarts[s] + i;
+		for (int k = choiceStarts[j], stop = choiceStarts[j + 1]; k < stop; k++) {
+			if (cols[k] == succ) {
+				lower[k] = lo;
+				upper[k] = hi;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Set the probability interval of the transition from state {@code s}, choice {@code i}, to state {@code succ}.
+	 * Does nothing if {@code succ} is not a successor of this choice.
+	 */
+	public void setInterval(int s, int i, int succ, Interval<Double> interval)
+	{
+		setInterval(s, i, succ, interval.getLower(), interval.getUpper());
+	}
+
+	// Accessors
+
+	/**
+	 * Get the MDP whose transition structure this IMDP has.
+	 */
+	public MDP<Double> getMDP()
+	{
+		return mdp;
+	}
+}
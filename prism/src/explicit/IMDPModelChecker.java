@@ -26,7 +26,10 @@
 
 package explicit;
 
+import java.util.Arrays;
 import java.util.BitSet;
+import java.util.List;
+import java.util.PrimitiveIterator;
 
 import common.IntSet;
 import common.Interval;
@@ -34,9 +37,12 @@ import explicit.rewards.MDPRewards;
 import explicit.rewards.MDPRewardsSimple;
 import prism.AccuracyFactory;
 import prism.Evaluator;
+import prism.OptionsIntervalIteration;
 import prism.PrismComponent;
 import prism.PrismException;
 import prism.PrismNotSupportedException;
+import prism.PrismUtils;
+import strat.MDStrategy;
 import strat.MDStrategyArray;
 
 /**
@@ -45,6 +51,18 @@ import strat.MDStrategyArray;
  */
 public class IMDPModelChecker extends MDPModelChecker
 {
+	// Warm start for value iteration (optional)
+	protected double[] warmStartSoln = null;
+	protected MDStrategy warmStartStrat = null;
+
+	// Number of iterations of the last computation (of reachability probabilities or rewards)
+	protected int lastNumIters = 0;
+
+	// SCCs of the unknown states of the last IMDP solved with topological value iteration (for reuse)
+	protected IMDP<Double> topoModel = null;
+	protected BitSet topoUnknown = null;
+	protected SCCInfo topoSCCs = null;
+
 	/**
 	 * Create a new IMDPModelChecker, inherit basic state from parent (unless null).
 	 */
@@ -53,6 +71,31 @@ public class IMDPModelChecker extends MDPModelChecker
 		super(parent);
 	}
 
+	// Settings methods
+
+	/**
+	 * Set a solution vector and strategy for a similar IMDP (e.g. with slightly different intervals),
+	 * from which to start value iteration in {@link #computeReachProbs} and {@link #computeReachRewards},
+	 * rather than from zero. The values are adjusted where needed so that value iteration
+	 * still converges to the correct solution (see {@link #applyWarmStart}).
+	 * Pass null to start from zero again.
+	 */
+	public void setWarmStart(double[] soln, MDStrategy strat)
+	{
+		warmStartSoln = soln;
+		warmStartStrat = strat;
+	}
+
+	/**
+	 * Get the number of iterations of the last computation of reachability probabilities or rewards
+	 * ({@link #computeReachProbs} or {@link #computeReachRewards}); 0 if no iterative method was needed,
+	 * or if the last computation (of any compute method) was of something else.
+	 */
+	public int getLastNumIterations()
+	{
+		return lastNumIters;
+	}
+
 	// Numerical computation functions
 
 	/**
@@ -64,6 +107,7 @@ public class IMDPModelChecker extends MDPModelChecker
 	 */
 	public ModelCheckerResult computeNextProbs(IMDP<Double> imdp, BitSet target, MinMax minMax) throws PrismException
 	{
+		lastNumIters = 0;
 		long timer = System.currentTimeMillis();
 
 		// Check for any zero lower probability bounds (not supported
@@ -115,6 +159,7 @@ public class IMDPModelChecker extends MDPModelChecker
 	 */
 	public ModelCheckerResult computeBoundedUntilProbs(IMDP<Double> imdp, BitSet remain, BitSet target, int k, MinMax minMax) throws PrismException
 	{
+		lastNumIters = 0;
 		ModelCheckerResult res = null;
 		BitSet unknown;
 		int i, n, iters;
@@ -149,11 +194,12 @@ public class IMDPModelChecker extends MDPModelChecker
 		IntSet unknownStates = IntSet.asIntSet(unknown);
 
 		// Start iterations
+		IMDP.Scratch scratch = imdp.createScratch();
 		iters = 0;
 		while (iters < k) {
 			iters++;
 			// Matrix-vector multiply and min/max ops
-			imdp.mvMult(soln, minMax, soln2, unknownStates.iterator(), null);
+			imdp.mvMult(soln, minMax, soln2, unknownStates.iterator(), null, scratch);
 			// Swap vectors for next iter
 			tmpsoln = soln;
 			soln = soln2;
@@ -212,6 +258,7 @@ public class IMDPModelChecker extends MDPModelChecker
 	 */
 	public ModelCheckerResult computeReachProbs(IMDP<Double> imdp, BitSet remain, BitSet target, MinMax minMax) throws PrismException
 	{
+		lastNumIters = 0;
 		int strat[] = null;
 		// Switch to a supported method, if necessary
 		LinEqMethod linEqMethod = this.linEqMethod;
@@ -230,6 +277,9 @@ public class IMDPModelChecker extends MDPModelChecker
 		if (doIntervalIteration && (!precomp || !prob0 || !prob1)) {
 			throw new PrismNotSupportedException("Interval iteration requires precomputations to be active");
 		}
+		if (doIntervalIteration && (mdpSolnMethod == MDPSolnMethod.POLICY_ITERATION || mdpSolnMethod == MDPSolnMethod.MODIFIED_POLICY_ITERATION)) {
+			throw new PrismNotSupportedException("Interval iteration currently not supported for policy iteration");
+		}
 
 		// Start probabilistic reachability
 		long timer = System.currentTimeMillis();
@@ -308,16 +358,27 @@ public class IMDPModelChecker extends MDPModelChecker
 		unknown.andNot(yes);
 		unknown.andNot(no);
 
+		// Scratch space for the value iteration steps of this solve
+		IMDP.Scratch scratch = imdp.createScratch();
+
+		// Start from the warm start solution, if possible
+		boolean warmStarted = applyWarmStart(imdp, null, minMax, init, unknown, strat, scratch);
+		if (warmStarted) {
+			mainLog.println("Starting value iteration from previous solution");
+		}
+
 		// Compute probabilities (if needed)
 		ModelCheckerResult res;
-		if (numYes + numNo < n) {
+		if (numYes + numNo < n && (mdpSolnMethod == MDPSolnMethod.POLICY_ITERATION || mdpSolnMethod == MDPSolnMethod.MODIFIED_POLICY_ITERATION)) {
+			res = computeReachPolIter(imdp, null, minMax, init, unknown, strat, warmStarted, mdpSolnMethod == MDPSolnMethod.MODIFIED_POLICY_ITERATION, scratch);
+		} else if (numYes + numNo < n) {
 			IterationMethod iterationMethod = null;
 			switch (linEqMethod) {
 			case POWER:
-				iterationMethod = new IterationMethodPower(termCrit == TermCrit.ABSOLUTE, termCritParam);
+				iterationMethod = createTwoVectorIterationMethod(false);
 				break;
 			case JACOBI:
-				iterationMethod = new IterationMethodJacobi(termCrit == TermCrit.ABSOLUTE, termCritParam);
+				iterationMethod = createTwoVectorIterationMethod(true);
 				break;
 			case GAUSS_SEIDEL:
 			case BACKWARDS_GAUSS_SEIDEL:
@@ -327,11 +388,25 @@ public class IMDPModelChecker extends MDPModelChecker
 			default:
 				throw new PrismException("Unknown solution method " + linEqMethod.fullName());
 			}
-			IterationMethod.IterationValIter iterationReachProbs = iterationMethod.forMvMultMinMaxUnc(imdp, minMax, strat);
+			IterationMethod.IterationValIter iterationReachProbs = iterationMethod.forMvMultMinMaxUnc(imdp, minMax, strat, scratch);
 			iterationReachProbs.init(init);
-			IntSet unknownStates = IntSet.asIntSet(unknown);
-			String description = sMinMax + ", with " + iterationMethod.getDescriptionShort();
-			res = iterationMethod.doValueIteration(this, description, iterationReachProbs, unknownStates, timer, null);
+			SCCInfo sccs = getDoTopologicalValueIteration() ? computeTopologicalOrdering(imdp, unknown) : null;
+			String description = sMinMax + (sccs != null ? ", topological" : "") + ", with " + iterationMethod.getDescriptionShort();
+			if (sccs != null) {
+				// Iterate over the SCCs of the unknown states separately, in topological order,
+				// solving singleton SCCs directly
+				final int[] stratSCC = strat;
+				IterationMethod.SingletonSCCSolver singletonSCCSolver = (int s, double[] soln) -> {
+					soln[s] = imdp.mvMultJacMinMaxSingle(s, soln, minMax, stratSCC, scratch);
+				};
+				res = iterationMethod.doTopologicalValueIteration(this, description, sccs, iterationReachProbs, singletonSCCSolver, timer, null);
+			} else {
+				IntSet unknownStates = IntSet.asIntSet(unknown);
+				res = iterationMethod.doValueIteration(this, description, iterationReachProbs, unknownStates, timer, null);
+			}
+			if (doIntervalIteration) {
+				res = doIntervalIterationFromValIter(imdp, null, minMax, res, unknown, sccs, strat, iterationMethod, description, timer, scratch);
+			}
 		} else {
 			res = new ModelCheckerResult();
 			res.soln = Utils.bitsetToDoubleArray(yes, n);
@@ -349,6 +424,7 @@ public class IMDPModelChecker extends MDPModelChecker
 
 		// Update time taken
 		res.timeTaken = timer / 1000.0;
+		lastNumIters = res.numIters;
 
 		return res;
 	}
@@ -363,6 +439,7 @@ public class IMDPModelChecker extends MDPModelChecker
 	 */
 	public ModelCheckerResult computeReachRewards(IMDP<Double> imdp, MDPRewards<Interval<Double>> imdpRewards, BitSet target, MinMax minMax) throws PrismException
 	{
+		lastNumIters = 0;
 		int strat[] = null;
 		// Switch to a supported method, if necessary
 		LinEqMethod linEqMethod = this.linEqMethod;
@@ -381,6 +458,9 @@ public class IMDPModelChecker extends MDPModelChecker
 		if (doIntervalIteration && (!precomp || !prob0 || !prob1)) {
 			throw new PrismNotSupportedException("Interval iteration requires precomputations to be active");
 		}
+		if (doIntervalIteration && (mdpSolnMethod == MDPSolnMethod.POLICY_ITERATION || mdpSolnMethod == MDPSolnMethod.MODIFIED_POLICY_ITERATION)) {
+			throw new PrismNotSupportedException("Interval iteration currently not supported for policy iteration");
+		}
 
 		// Start probabilistic reachability
 		long timer = System.currentTimeMillis();
@@ -461,16 +541,27 @@ public class IMDPModelChecker extends MDPModelChecker
 		unknown.andNot(target);
 		unknown.andNot(inf);
 
+		// Scratch space for the value iteration steps of this solve
+		IMDP.Scratch scratch = imdp.createScratch();
+
+		// Start from the warm start solution, if possible
+		boolean warmStarted = applyWarmStart(imdp, mdpRewards, minMax, init, unknown, strat, scratch);
+		if (warmStarted) {
+			mainLog.println("Starting value iteration from previous solution");
+		}
+
 		// Compute probabilities (if needed)
 		ModelCheckerResult res;
-		if (numTarget + numInf < n) {
+		if (numTarget + numInf < n && (mdpSolnMethod == MDPSolnMethod.POLICY_ITERATION || mdpSolnMethod == MDPSolnMethod.MODIFIED_POLICY_ITERATION)) {
+			res = computeReachPolIter(imdp, mdpRewards, minMax, init, unknown, strat, warmStarted, mdpSolnMethod == MDPSolnMethod.MODIFIED_POLICY_ITERATION, scratch);
+		} else if (numTarget + numInf < n) {
 			IterationMethod iterationMethod = null;
 			switch (linEqMethod) {
 			case POWER:
-				iterationMethod = new IterationMethodPower(termCrit == TermCrit.ABSOLUTE, termCritParam);
+				iterationMethod = createTwoVectorIterationMethod(false);
 				break;
 			case JACOBI:
-				iterationMethod = new IterationMethodJacobi(termCrit == TermCrit.ABSOLUTE, termCritParam);
+				iterationMethod = createTwoVectorIterationMethod(true);
 				break;
 			case GAUSS_SEIDEL:
 			case BACKWARDS_GAUSS_SEIDEL:
@@ -480,11 +571,25 @@ public class IMDPModelChecker extends MDPModelChecker
 			default:
 				throw new PrismException("Unknown solution method " + linEqMethod.fullName());
 			}
-			IterationMethod.IterationValIter iterationReachProbs = iterationMethod.forMvMultRewMinMaxUnc(imdp, mdpRewards, minMax, strat);
+			IterationMethod.IterationValIter iterationReachProbs = iterationMethod.forMvMultRewMinMaxUnc(imdp, mdpRewards, minMax, strat, scratch);
 			iterationReachProbs.init(init);
-			IntSet unknownStates = IntSet.asIntSet(unknown);
-			String description = sMinMax + ", with " + iterationMethod.getDescriptionShort();
-			res = iterationMethod.doValueIteration(this, description, iterationReachProbs, unknownStates, timer, null);
+			SCCInfo sccs = getDoTopologicalValueIteration() ? computeTopologicalOrdering(imdp, unknown) : null;
+			String description = sMinMax + (sccs != null ? ", topological" : "") + ", with " + iterationMethod.getDescriptionShort();
+			if (sccs != null) {
+				// Iterate over the SCCs of the unknown states separately, in topological order,
+				// solving singleton SCCs directly
+				final int[] stratSCC = strat;
+				IterationMethod.SingletonSCCSolver singletonSCCSolver = (int s, double[] soln) -> {
+					soln[s] = imdp.mvMultRewJacMinMaxSingle(s, soln, mdpRewards, minMax, stratSCC, scratch);
+				};
+				res = iterationMethod.doTopologicalValueIteration(this, description, sccs, iterationReachProbs, singletonSCCSolver, timer, null);
+			} else {
+				IntSet unknownStates = IntSet.asIntSet(unknown);
+				res = iterationMethod.doValueIteration(this, description, iterationReachProbs, unknownStates, timer, null);
+			}
+			if (doIntervalIteration) {
+				res = doIntervalIterationFromValIter(imdp, mdpRewards, minMax, res, unknown, sccs, strat, iterationMethod, description, timer, scratch);
+			}
 		} else {
 			res = new ModelCheckerResult();
 			res.soln = Utils.bitsetToDoubleArray(inf, n, Double.POSITIVE_INFINITY);
@@ -502,10 +607,533 @@ public class IMDPModelChecker extends MDPModelChecker
 
 		// Update time taken
 		res.timeTaken = timer / 1000.0;
+		lastNumIters = res.numIters;
 
 		return res;
 	}
 
+	/**
+	 * Compute reachability probabilities (if {@code mdpRewards} is null) or expected rewards for the {@code unknown} states
+	 * using robust (modified) policy iteration: evaluate the current strategy against the worst-case (or best-case)
+	 * resolution of the intervals, i.e. solve the IDTMC it induces, then switch its choices wherever another one
+	 * is strictly better, until there are no more switches. For modified policy iteration, each evaluation is limited
+	 * to a few sweeps of Gauss-Seidel, so it stops once the last one has also converged.
+	 * <br>
+	 * The initial strategy is the warm start one (see {@link #setWarmStart}), if the warm start was applied
+	 * (see {@link #applyWarmStart}) and where it has a valid choice, otherwise the one from precomputation,
+	 * otherwise the first choice. Successive estimates in the learning
+	 * loop usually change the optimal choices in only a few states, so then few cycles are needed.
+	 * @param imdp The IMDP
+	 * @param mdpRewards The rewards (null for probabilities)
+	 * @param minMax Min/max info
+	 * @param init Initial solution vector, with the values of the states other than {@code unknown} (overwritten)
+	 * @param unknown The states to compute values for
+	 * @param strat Storage for (memoryless) strategy choice indices (ignored if null)
+	 * @param warmStarted Whether the warm start was applied to {@code init}, so that its strategy can be used too
+	 * @param modified Modified policy iteration?
+	 * @param scratch Scratch space for the value iteration steps (see {@link IMDP#createScratch()})
+	 */
+	protected ModelCheckerResult computeReachPolIter(IMDP<Double> imdp, MDPRewards<Double> mdpRewards, MinMax minMax, double[] init, BitSet unknown, int strat[], boolean warmStarted, boolean modified, IMDP.Scratch scratch) throws PrismException
+	{
+		long timer = System.currentTimeMillis();
+		String sMinMax = (minMax.isMin() ? "min" : "max") + (minMax.isMinUnc() ? "min" : "max");
+		String method = modified ? "Modified policy iteration" : "Policy iteration";
+		mainLog.println("Starting " + method.toLowerCase() + " (" + sMinMax + ")...");
+
+		// Initial strategy
+		int n = imdp.getNumStates();
+		if (strat == null) {
+			strat = new int[n];
+			Arrays.fill(strat, -1);
+		}
+		boolean useWarmStart = warmStarted && warmStartStrat != null;
+		for (int s = unknown.nextSetBit(0); s >= 0; s = unknown.nextSetBit(s + 1)) {
+			int numChoices = imdp.getNumChoices(s);
+			int i = useWarmStart ? warmStartStrat.getChoiceIndex(s) : -1;
+			if (i < 0 || i >= numChoices) {
+				i = strat[s] >= 0 && strat[s] < numChoices ? strat[s] : 0;
+			}
+			strat[s] = i;
+		}
+
+		// Limit the sweeps of each evaluation for modified policy iteration
+		int maxSweeps = modified ? 100 : maxIters;
+		boolean absolute = termCrit == TermCrit.ABSOLUTE;
+		boolean min = minMax.isMin();
+		double[] soln = init;
+		double maxDiff = 0.0;
+		int iters = 0;
+		int totalIters = 0;
+		// Sweeps since the strategy last changed: as for value iteration, at most the maximum number of iterations
+		int stratIters = 0;
+		boolean done = false;
+		while (!done && iters < maxIters && stratIters < maxIters) {
+			iters++;
+			// Evaluate the strategy (Gauss-Seidel), from the values of the previous one
+			boolean evaluated = false;
+			for (int sweep = 0; !evaluated && sweep < maxSweeps && stratIters < maxIters; sweep++) {
+				totalIters++;
+				stratIters++;
+				maxDiff = 0.0;
+				for (int s = unknown.nextSetBit(0); s >= 0; s = unknown.nextSetBit(s + 1)) {
+					double d = mdpRewards == null ? imdp.mvMultSingle(s, strat[s], soln, minMax, scratch) : imdp.mvMultRewSingle(s, strat[s], soln, mdpRewards, minMax, scratch);
+					double diff = absolute ? PrismUtils.measureSupNormAbs(d, soln[s]) : PrismUtils.measureSupNormRel(d, soln[s]);
+					maxDiff = diff > maxDiff ? diff : maxDiff;
+					soln[s] = d;
+				}
+				evaluated = maxDiff < termCritParam;
+			}
+			// Improve the strategy where another choice is strictly better
+			boolean changed = false;
+			for (int s = unknown.nextSetBit(0); s >= 0; s = unknown.nextSetBit(s + 1)) {
+				double current = mdpRewards == null ? imdp.mvMultSingle(s, strat[s], soln, minMax, scratch) : imdp.mvMultRewSingle(s, strat[s], soln, mdpRewards, minMax, scratch);
+				double best = current;
+				int bestChoice = strat[s];
+				for (int i = 0, numChoices = imdp.getNumChoices(s); i < numChoices; i++) {
+					double d = mdpRewards == null ? imdp.mvMultSingle(s, i, soln, minMax, scratch) : imdp.mvMultRewSingle(s, i, soln, mdpRewards, minMax, scratch);
+					if (min ? d < best : d > best) {
+						best = d;
+						bestChoice = i;
+					}
+				}
+				if (bestChoice != strat[s] && !PrismUtils.doublesAreClose(best, current, termCritParam, absolute)) {
+					strat[s] = bestChoice;
+					changed = true;
+				}
+			}
+			if (changed) {
+				stratIters = 0;
+			}
+			done = evaluated && !changed;
+		}
+
+		// Finished policy iteration
+		timer = System.currentTimeMillis() - timer;
+		mainLog.print(method);
+		mainLog.println(" took " + iters + " cycles (" + totalIters + " iterations in total) and " + timer / 1000.0 + " seconds.");
+
+		// Non-convergence is an error (usually)
+		if (!done && errorOnNonConverge) {
+			String msg = "Iterative method did not converge within " + iters + " iterations.";
+			msg += "\nConsider using a different numerical method or increasing the maximum number of iterations";
+			throw new PrismException(msg);
+		}
+
+		// Return results
+		ModelCheckerResult res = new ModelCheckerResult();
+		res.soln = soln;
+		res.accuracy = AccuracyFactory.valueIteration(termCritParam, maxDiff, absolute);
+		res.numIters = totalIters;
+		res.timeTaken = timer / 1000.0;
+		return res;
+	}
+
+	/**
+	 * Turn the result {@code res} of value iteration (from below) for the {@code unknown} states into one with a guaranteed
+	 * error bound, by interval iteration: from below, starting from {@code res}, and from above, starting from
+	 * an upper bound found from it (see {@link #computeUpperBound}), until the two are within the termination criterion.
+	 * For max problems, the iteration from above also deflates end components (see {@link #deflateEndComponents}).
+	 * Returns {@code res} itself (with its estimated accuracy) if no upper bound is found.
+	 * @param imdp The IMDP
+	 * @param mdpRewards The rewards (null for probabilities)
+	 * @param minMax Min/max info
+	 * @param res The result of value iteration
+	 * @param unknown The states to compute values for
+	 * @param sccs The SCCs of the unknown states, for topological interval iteration (null for plain interval iteration)
+	 * @param strat Storage for (memoryless) strategy choice indices (ignored if null)
+	 * @param iterationMethod The iteration method
+	 * @param description Description of the value iteration (for logging)
+	 * @param timer Start time (for logging)
+	 * @param scratch Scratch space for the value iteration steps (see {@link IMDP#createScratch()})
+	 */
+	protected ModelCheckerResult doIntervalIterationFromValIter(IMDP<Double> imdp, MDPRewards<Double> mdpRewards, MinMax minMax, ModelCheckerResult res, BitSet unknown, SCCInfo sccs, int[] strat, IterationMethod iterationMethod, String description, long timer, IMDP.Scratch scratch) throws PrismException
+	{
+		double[] upper = computeUpperBound(imdp, mdpRewards, minMax, res.soln, unknown, scratch);
+		if (upper == null) {
+			mainLog.printWarning("No upper bound found for interval iteration, so the result has no guaranteed error bound");
+			return res;
+		}
+		// The values may already be close enough to the bound, or, if value iteration did not converge,
+		// iterating further is unlikely to get there, so then just report the bound
+		boolean absolute = termCrit == TermCrit.ABSOLUTE;
+		IntSet unknownStates = IntSet.asIntSet(unknown);
+		double maxError = PrismUtils.measureSupNormInterval(res.soln, upper, absolute, unknownStates.iterator());
+		if (maxError < termCritParam || res.numIters >= maxIters) {
+			mainLog.println("Max " + (absolute ? "" : "relative ") + "diff between value iteration result and upper bound: " + PrismUtils.formatDouble(maxError));
+			res.accuracy = AccuracyFactory.guaranteedNumericalIterative(maxError, absolute);
+			return res;
+		}
+		mainLog.println("Starting interval iteration (" + description + ")...");
+		OptionsIntervalIteration iiOptions = OptionsIntervalIteration.from(this);
+		boolean checkMonotonic = iiOptions.isCheckMonotonicity();
+		// Keep separate strategies for the two bounds (each starting from value iteration's),
+		// returning the one from below, as for value iteration
+		int[] stratBelow = strat;
+		int[] stratAbove = strat == null ? null : strat.clone();
+		IterationMethod.IterationIntervalIter below, above;
+		if (mdpRewards == null) {
+			below = iterationMethod.forMvMultMinMaxUncInterval(imdp, minMax, stratBelow, true, iiOptions.isEnforceMonotonicityFromBelow(), checkMonotonic, scratch);
+			above = iterationMethod.forMvMultMinMaxUncInterval(imdp, minMax, stratAbove, false, iiOptions.isEnforceMonotonicityFromAbove(), checkMonotonic, scratch);
+		} else {
+			below = iterationMethod.forMvMultRewMinMaxUncInterval(imdp, mdpRewards, minMax, stratBelow, true, iiOptions.isEnforceMonotonicityFromBelow(), checkMonotonic, scratch);
+			above = iterationMethod.forMvMultRewMinMaxUncInterval(imdp, mdpRewards, minMax, stratAbove, false, iiOptions.isEnforceMonotonicityFromAbove(), checkMonotonic, scratch);
+		}
+		// For max problems, iterating from above can get stuck in end components, so deflate them
+		if (minMax.isMax()) {
+			ECComputer ec = ECComputer.createECComputer(this, imdp);
+			ec.computeMECStates((BitSet) unknown.clone());
+			List<BitSet> mecs = ec.getMECStates();
+			if (!mecs.isEmpty()) {
+				above = deflateEndComponents(imdp, mdpRewards, minMax, mecs, above, scratch);
+			}
+		}
+		below.init(res.soln);
+		above.init(upper);
+		ModelCheckerResult resII;
+		if (sccs != null) {
+			IterationMethod.SingletonSCCSolver singletonSCCSolverBelow = (int s, double[] soln) -> {
+				soln[s] = mdpRewards == null ? imdp.mvMultJacMinMaxSingle(s, soln, minMax, stratBelow, scratch) : imdp.mvMultRewJacMinMaxSingle(s, soln, mdpRewards, minMax, stratBelow, scratch);
+			};
+			IterationMethod.SingletonSCCSolver singletonSCCSolverAbove = (int s, double[] soln) -> {
+				soln[s] = mdpRewards == null ? imdp.mvMultJacMinMaxSingle(s, soln, minMax, stratAbove, scratch) : imdp.mvMultRewJacMinMaxSingle(s, soln, mdpRewards, minMax, stratAbove, scratch);
+			};
+			resII = iterationMethod.doTopologicalIntervalIteration(this, description, sccs, below, above, singletonSCCSolverBelow, singletonSCCSolverAbove, timer, null);
+		} else {
+			resII = iterationMethod.doIntervalIteration(this, description, below, above, unknownStates, timer, null);
+		}
+		// If interval iteration did not converge either, the bounds still hold
+		if (Double.isInfinite(resII.accuracy.getErrorBound())) {
+			maxError = PrismUtils.measureSupNormInterval(below.getSolnVector(), above.getSolnVector(), absolute, unknownStates.iterator());
+			resII.accuracy = AccuracyFactory.guaranteedNumericalIterative(maxError, absolute);
+		}
+		resII.numIters += res.numIters;
+		return resII;
+	}
+
+	/**
+	 * Wrap the iteration from above of interval iteration for a max problem, {@code above}, so that, after each step,
+	 * the values of the states of each of the maximal end components {@code mecs} are lowered to (at most) the best value
+	 * of a choice leaving it ("deflation", as in Kelmendi et al., CAV 2018). Otherwise, the values can get stuck above
+	 * the solution (at the greatest fixed point), since staying in an end component forever looks as good as the bound.
+	 * This is sound since the lower bounds of the intervals are positive, so all states of an end component
+	 * have the same value, that of its best exit (whatever the choices of the uncertainty).
+	 * @param imdp The IMDP
+	 * @param mdpRewards The rewards (null for probabilities)
+	 * @param minMax Min/max info
+	 * @param mecs The maximal end components of the states to compute values for
+	 * @param above The iteration from above
+	 * @param scratch Scratch space for the value iteration steps (see {@link IMDP#createScratch()})
+	 */
+	protected IterationMethod.IterationIntervalIter deflateEndComponents(IMDP<Double> imdp, MDPRewards<Double> mdpRewards, MinMax minMax, List<BitSet> mecs, IterationMethod.IterationIntervalIter above, IMDP.Scratch scratch)
+	{
+		// Index of the end component of each state (-1 if none)
+		int[] mecOf = new int[imdp.getNumStates()];
+		Arrays.fill(mecOf, -1);
+		for (int i = 0; i < mecs.size(); i++) {
+			BitSet mec = mecs.get(i);
+			for (int s = mec.nextSetBit(0); s >= 0; s = mec.nextSetBit(s + 1)) {
+				mecOf[s] = i;
+			}
+		}
+		return new IterationMethod.IterationIntervalIter()
+		{
+			@Override
+			public void init(double[] soln)
+			{
+				above.init(soln);
+			}
+
+			@Override
+			public double[] getSolnVector()
+			{
+				return above.getSolnVector();
+			}
+
+			@Override
+			public void iterate(IntSet states) throws PrismException
+			{
+				above.iterate(states);
+				// Deflate each end component once, from its first state
+				// (an end component lies within an SCC, so in topological iteration, it is either all or none of states)
+				double[] soln = above.getSolnVector();
+				PrimitiveIterator.OfInt it = states.iterator();
+				while (it.hasNext()) {
+					int s = it.nextInt();
+					if (mecOf[s] >= 0 && mecs.get(mecOf[s]).nextSetBit(0) == s) {
+						deflate(mecs.get(mecOf[s]), soln);
+					}
+				}
+			}
+
+			@Override
+			public void doneWith(IntSet states)
+			{
+				above.doneWith(states);
+			}
+
+			@Override
+			public void solveSingletonSCC(int s, IterationMethod.SingletonSCCSolver solver)
+			{
+				// (a singleton SCC is an end component if the state has a self-loop choice)
+				above.solveSingletonSCC(s, (int state, double[] soln) -> {
+					solver.solveFor(state, soln);
+					if (mecOf[state] >= 0) {
+						deflate(mecs.get(mecOf[state]), soln);
+					}
+				});
+			}
+
+			@Override
+			public Model<?> getModel()
+			{
+				return above.getModel();
+			}
+
+			/** Lower the values of the states of end component {@code mec} in {@code soln} to the best value of leaving it */
+			private void deflate(BitSet mec, double[] soln)
+			{
+				double best = Double.NEGATIVE_INFINITY;
+				for (int s = mec.nextSetBit(0); s >= 0; s = mec.nextSetBit(s + 1)) {
+					for (int i = 0, numChoices = imdp.getNumChoices(s); i < numChoices; i++) {
+						if (!imdp.allSuccessorsInSet(s, i, mec)) {
+							double d = mdpRewards == null ? imdp.mvMultSingle(s, i, soln, minMax, scratch) : imdp.mvMultRewSingle(s, i, soln, mdpRewards, minMax, scratch);
+							best = Math.max(best, d);
+						}
+					}
+				}
+				// (no exit can only happen if the values are 0 or infinite anyway)
+				if (best == Double.NEGATIVE_INFINITY) {
+					return;
+				}
+				for (int s = mec.nextSetBit(0); s >= 0; s = mec.nextSetBit(s + 1)) {
+					soln[s] = Math.min(soln[s], best);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Find an upper bound on the values of the {@code unknown} states, from (an approximation of) them from below,
+	 * {@code soln}, or return null if none is found. Any vector that one step of value iteration does not increase
+	 * is an upper bound on the least fixed point, i.e. the values. This tries {@code soln} plus some delta
+	 * (absolute or relative, as the termination criterion), for increasing delta, and, for probabilities, 1 at the end.
+	 * This is the idea of optimistic value iteration (Hartmanns and Kaminski, CAV 2020), which needs no bound on the rewards.
+	 * @param imdp The IMDP
+	 * @param mdpRewards The rewards (null for probabilities)
+	 * @param minMax Min/max info
+	 * @param soln Values from below
+	 * @param unknown The states to compute values for
+	 * @param scratch Scratch space for the value iteration steps (see {@link IMDP#createScratch()})
+	 */
+	protected double[] computeUpperBound(IMDP<Double> imdp, MDPRewards<Double> mdpRewards, MinMax minMax, double[] soln, BitSet unknown, IMDP.Scratch scratch)
+	{
+		boolean absolute = termCrit == TermCrit.ABSOLUTE;
+		double[] upper = soln.clone();
+		// Start with half the termination threshold, so that interval iteration can stop straight away
+		double delta = termCritParam / 2;
+		for (int attempt = 0; attempt < 40; attempt++, delta *= 2) {
+			for (int s = unknown.nextSetBit(0); s >= 0; s = unknown.nextSetBit(s + 1)) {
+				upper[s] = soln[s] + delta * (absolute || soln[s] == 0.0 ? 1.0 : soln[s]);
+				if (mdpRewards == null && upper[s] > 1.0) {
+					upper[s] = 1.0;
+				}
+			}
+			if (isUpperBound(imdp, mdpRewards, minMax, upper, unknown, scratch)) {
+				return upper;
+			}
+		}
+		if (mdpRewards == null) {
+			for (int s = unknown.nextSetBit(0); s >= 0; s = unknown.nextSetBit(s + 1)) {
+				upper[s] = 1.0;
+			}
+			return upper;
+		}
+		return null;
+	}
+
+	/**
+	 * Check that one step of value iteration does not increase {@code vect} for any of the {@code unknown} states,
+	 * i.e. that it is an upper bound on the values. The comparison is exact: rounding errors are instead
+	 * absorbed by inflating the candidate vector further (see {@link #computeUpperBound}).
+	 * For probabilities, the step is capped at 1, which all values are below anyway.
+	 */
+	protected boolean isUpperBound(IMDP<Double> imdp, MDPRewards<Double> mdpRewards, MinMax minMax, double[] vect, BitSet unknown, IMDP.Scratch scratch)
+	{
+		for (int s = unknown.nextSetBit(0); s >= 0; s = unknown.nextSetBit(s + 1)) {
+			double d = mdpRewards == null ? imdp.mvMultSingle(s, vect, minMax, null, scratch) : imdp.mvMultRewSingle(s, vect, mdpRewards, minMax, null, scratch);
+			if (mdpRewards == null && d > 1.0) {
+				d = 1.0;
+			}
+			if (d > vect[s]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Compute the SCCs of the {@code unknown} states of {@code imdp}, in topological order, for topological value iteration.
+	 * Returns null if they form a single SCC, for which plain value iteration is the same, without the overhead.
+	 * The result is reused while {@code imdp} and {@code unknown} stay the same, so the transition structure
+	 * of {@code imdp} must not change in between (only the intervals, as for estimates updated in place).
+	 */
+	protected SCCInfo computeTopologicalOrdering(IMDP<Double> imdp, BitSet unknown) throws PrismException
+	{
+		if (topoSCCs == null || imdp != topoModel || !unknown.equals(topoUnknown)) {
+			topoSCCs = SCCComputer.computeTopologicalOrdering(this, imdp, true, unknown::get);
+			topoModel = imdp;
+			topoUnknown = (BitSet) unknown.clone();
+		}
+		if (topoSCCs.getNumSCCs() == 1 && !topoSCCs.isSingletonSCC(0)) {
+			return null;
+		}
+		return topoSCCs;
+	}
+
+	/**
+	 * Copy the values of the {@code unknown} states from the warm start solution (see {@link #setWarmStart})
+	 * into the initial solution vector {@code init} for value iteration, for reachability probabilities
+	 * (if {@code mdpRewards} is null) or expected rewards. Returns false, leaving {@code init} unchanged,
+	 * if there is no (suitable) warm start, or if it is not known to be sound for the problem: it is only used
+	 * for reachability probabilities computed after both Prob0 and Prob1 precomputation, and for maximum expected
+	 * rewards, so that value iteration starts cold otherwise.
+	 * For max problems, the choices of the warm start strategy are also stored in {@code strat} (if non-null)
+	 * for the unknown states: value iteration only changes the choice of a state when another one is strictly better,
+	 * so starting without a choice would, at the fixed point, lock in any of the optimal choices,
+	 * including ones that never leave the unknown states.
+	 * <br>
+	 * As for the default initial values, value iteration then converges from below, so that (like without a warm start)
+	 * it does not stop early far above the solution, when values decrease slowly. The initial values must be a lower bound:
+	 * <ul>
+	 * <li>For min problems, the solution is the unique fixed point over the unknown states, since after
+	 * precomputation no strategy can remain in them forever (lower bounds being positive). Values are
+	 * repeatedly lowered to 0 in states where one step of value iteration would decrease them; the remaining
+	 * values are then below one step of value iteration, and hence below its fixed point.</li>
+	 * <li>For max problems, values are lowered to 0 in states where they are not below the value of the warm start
+	 * strategy: states from which this strategy cannot leave the unknown states, and then, repeatedly, states where
+	 * one step of the strategy would decrease the value. The remaining values are then below those of the strategy,
+	 * and hence of the optimum.</li>
+	 * </ul>
+	 */
+	protected boolean applyWarmStart(IMDP<Double> imdp, MDPRewards<Double> mdpRewards, MinMax minMax, double[] init, BitSet unknown, int[] strat, IMDP.Scratch scratch)
+	{
+		int n = imdp.getNumStates();
+		if (warmStartSoln == null || warmStartSoln.length != n) {
+			return false;
+		}
+		if (mdpRewards == null ? !(precomp && prob0 && prob1) : minMax.isMin()) {
+			return false;
+		}
+		double[] soln = init.clone();
+		for (int s = unknown.nextSetBit(0); s >= 0; s = unknown.nextSetBit(s + 1)) {
+			double v = warmStartSoln[s];
+			if (!(v >= 0.0) || v == Double.POSITIVE_INFINITY || (mdpRewards == null && v > 1.0)) {
+				return false;
+			}
+			soln[s] = v;
+		}
+		boolean min = minMax.isMin();
+		// Warm start strategy (arbitrary where it has no valid choice), only used for max
+		int warmStrat[] = new int[n];
+		if (!min) {
+			for (int s = unknown.nextSetBit(0); s >= 0; s = unknown.nextSetBit(s + 1)) {
+				int i = warmStartStrat == null ? -1 : warmStartStrat.getChoiceIndex(s);
+				warmStrat[s] = i >= 0 && i < imdp.getNumChoices(s) ? i : 0;
+			}
+		}
+		// Predecessor relation of the unknown states, under any choice (min) or under the strategy (max)
+		int predStarts[] = new int[n + 1];
+		for (int s = unknown.nextSetBit(0); s >= 0; s = unknown.nextSetBit(s + 1)) {
+			for (int i = min ? 0 : warmStrat[s], last = min ? imdp.getNumChoices(s) - 1 : warmStrat[s]; i <= last; i++) {
+				for (SuccessorsIterator succs = imdp.getSuccessors(s, i); succs.hasNext();) {
+					predStarts[succs.nextInt() + 1]++;
+				}
+			}
+		}
+		for (int s = 0; s < n; s++) {
+			predStarts[s + 1] += predStarts[s];
+		}
+		int preds[] = new int[predStarts[n]];
+		int fill[] = predStarts.clone();
+		for (int s = unknown.nextSetBit(0); s >= 0; s = unknown.nextSetBit(s + 1)) {
+			for (int i = min ? 0 : warmStrat[s], last = min ? imdp.getNumChoices(s) - 1 : warmStrat[s]; i <= last; i++) {
+				for (SuccessorsIterator succs = imdp.getSuccessors(s, i); succs.hasNext();) {
+					preds[fill[succs.nextInt()]++] = s;
+				}
+			}
+		}
+		int stack[] = new int[n];
+		int top = 0;
+		BitSet lowered = new BitSet();
+		if (!min) {
+			// Unknown states from which the strategy can leave the unknown states
+			BitSet leaving = new BitSet();
+			for (int t = 0; t < n; t++) {
+				if (!unknown.get(t)) {
+					for (int k = predStarts[t]; k < predStarts[t + 1]; k++) {
+						if (!leaving.get(preds[k])) {
+							leaving.set(preds[k]);
+							stack[top++] = preds[k];
+						}
+					}
+				}
+			}
+			while (top > 0) {
+				int t = stack[--top];
+				for (int k = predStarts[t]; k < predStarts[t + 1]; k++) {
+					if (!leaving.get(preds[k])) {
+						leaving.set(preds[k]);
+						stack[top++] = preds[k];
+					}
+				}
+			}
+			// Lower values to 0 where not leaving
+			for (int s = unknown.nextSetBit(0); s >= 0; s = unknown.nextSetBit(s + 1)) {
+				if (!leaving.get(s)) {
+					soln[s] = 0.0;
+					lowered.set(s);
+				}
+			}
+		}
+		// Lower values to 0 where a step of value iteration (min) or of the strategy (max) decreases them
+		BitSet check = (BitSet) unknown.clone();
+		check.andNot(lowered);
+		for (int s = check.nextSetBit(0); s >= 0; s = check.nextSetBit(s + 1)) {
+			stack[top++] = s;
+		}
+		while (top > 0) {
+			int s = stack[--top];
+			check.clear(s);
+			if (lowered.get(s)) {
+				continue;
+			}
+			double v;
+			if (min) {
+				v = mdpRewards == null ? imdp.mvMultSingle(s, soln, minMax, null, scratch) : imdp.mvMultRewSingle(s, soln, mdpRewards, minMax, null, scratch);
+			} else {
+				v = mdpRewards == null ? imdp.mvMultSingle(s, warmStrat[s], soln, minMax, scratch) : imdp.mvMultRewSingle(s, warmStrat[s], soln, mdpRewards, minMax, scratch);
+			}
+			if (v < soln[s]) {
+				soln[s] = 0.0;
+				lowered.set(s);
+				for (int k = predStarts[s]; k < predStarts[s + 1]; k++) {
+					int p = preds[k];
+					if (!lowered.get(p) && !check.get(p)) {
+						check.set(p);
+						stack[top++] = p;
+					}
+				}
+			}
+		}
+		System.arraycopy(soln, 0, init, 0, n);
+		if (!min && strat != null) {
+			for (int s = unknown.nextSetBit(0); s >= 0; s = unknown.nextSetBit(s + 1)) {
+				strat[s] = warmStrat[s];
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * Check that all of the values in an MDP reward structure over (double) intervals
 	 * are actual singleton values, then return a new one just over doubles.
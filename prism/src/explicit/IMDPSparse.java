@@ -0,0 +1,578 @@
+package explicit;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import common.Interval;
+import explicit.rewards.MDPRewards;
+import parser.State;
+import prism.Evaluator;
+import prism.PrismException;
+
+/**
+ * Sparse matrix (non-mutable) explicit-state representation of an IMDP.
+ * The lower and upper bounds of the transition probability intervals are stored in separate
+ * arrays, in the same layout as the probabilities of {@link MDPSparse}.
+ * <br>
+ * The interval value iteration step {@link #mvMultSingle(int, int, double[], MinMax, IMDP.Scratch)} works
+ * directly on these arrays and does not allocate. The order of the transitions of each choice
+ * by successor value, which it needs, is kept from one call to the next in the scratch space of the solve
+ * (see {@link #createScratch()}) and repaired by insertion sort, which is cheap since it rarely changes
+ * between successive iterations. The IMDP itself keeps no such state, so several solves can run on it
+ * concurrently (as long as none of them modifies it).
+ */
+public class IMDPSparse extends MDPExplicit<Interval<Double>> implements IMDP<Double>
+{
+	// Sparse matrix storing transition function (Steps)
+	/** Lower bounds of the probability interval for each transition (array of size numTransitions) */
+	protected double lower[];
+	/** Upper bounds of the probability interval for each transition (array of size numTransitions) */
+	protected double upper[];
+	/** Column (destination) indices for each transition (array of size numTransitions) */
+	protected int cols[];
+	/** Indices into lower/upper/cols giving the start of the transitions for each choice (distribution);
+	 * array is of size numDistrs+1 and last entry is always equal to numTransitions */
+	protected int choiceStarts[];
+	/** Indices into choiceStarts giving the start of the choices for each state;
+	 * array is of size numStates+1 and last entry is always equal to numDistrs */
+	protected int rowStarts[];
+
+	// Action labels
+	/** Array of action labels for choices;
+	 * if null, there are no actions; otherwise, is an array of size numDistrs */
+	protected Object actions[];
+
+	// Other statistics
+	protected int numDistrs;
+	protected int numTransitions;
+	protected int maxNumDistrs;
+
+	/**
+	 * Orderings of the transitions of each choice by successor value,
+	 * the scratch space of value iteration for an IMDPSparse.
+	 */
+	protected static final class Orderings implements IMDP.Scratch
+	{
+		/** Transitions of each choice (as indices into lower/upper/cols), sorted by ascending successor value */
+		protected final int ascending[];
+		/** Transitions of each choice (as indices into lower/upper/cols), sorted by descending successor value */
+		protected final int descending[];
+
+		/**
+		 * Constructor: orderings of {@code numTransitions} transitions in storage order.
+		 */
+		protected Orderings(int numTransitions)
+		{
+			ascending = new int[numTransitions];
+			descending = new int[numTransitions];
+			for (int k = 0; k < numTransitions; k++) {
+				ascending[k] = descending[k] = k;
+			}
+		}
+	}
+
+	// Constructors
+
+	/**
+	 * Constructor for subclasses, which set up the transition function themselves.
+	 */
+	protected IMDPSparse()
+	{
+	}
+
+	/**
+	 * Constructor: Build new IMDPSparse from arbitrary IMDP type.
+	 * Transitions are stored in the order of the IMDP's transition iterators.
+	 *
+	 * @param imdp some IMDP
+	 */
+	public IMDPSparse(final IMDP<Double> imdp)
+	{
+		initialise(imdp.getNumStates());
+		copyFrom(imdp);
+		setEvaluator(Evaluator.createForDoubleIntervals());
+
+		// Copy stats
+		numDistrs = imdp.getNumChoices();
+		numTransitions = imdp.getNumTransitions();
+		maxNumDistrs = imdp.getMaxNumChoices();
+		// Initialise transition function
+		lower = new double[numTransitions];
+		upper = new double[numTransitions];
+		cols = new int[numTransitions];
+		choiceStarts = new int[numDistrs + 1];
+		rowStarts = new int[numStates + 1];
+		actions = new Object[numDistrs];
+
+		// Copy transition function
+		int rowIndex = 0, choiceIndex = 0;
+		for (int state = 0; state < numStates; state++) {
+			rowStarts[state] = rowIndex;
+			for (int choice = 0, numChoices = imdp.getNumChoices(state); choice < numChoices; choice++) {
+				actions[rowIndex] = imdp.getAction(state, choice);
+				choiceStarts[rowIndex] = choiceIndex;
+				for (Iterator<Entry<Integer, Interval<Double>>> transitions = imdp.getTransitionsIterator(state, choice); transitions.hasNext();) {
+					final Map.Entry<Integer, Interval<Double>> trans = transitions.next();
+					cols[choiceIndex] = trans.getKey();
+					lower[choiceIndex] = trans.getValue().getLower();
+					upper[choiceIndex] = trans.getValue().getUpper();
+					choiceIndex++;
+				}
+				rowIndex++;
+			}
+		}
+		choiceStarts[numDistrs] = numTransitions;
+		rowStarts[numStates] = numDistrs;
+	}
+
+	/**
+	 * Copy constructor: the copy has the intervals that {@code imdp} has now, e.g. to keep an immutable
+	 * snapshot of an {@link IMDPFromMDP}. The (non-mutable) sparse matrix of {@code imdp} is shared,
+	 * only the bounds are copied.
+	 */
+	public IMDPSparse(final IMDPSparse imdp)
+	{
+		initialise(imdp.getNumStates());
+		copyFrom(imdp);
+		setEvaluator(Evaluator.createForDoubleIntervals());
+		numDistrs = imdp.numDistrs;
+		numTransitions = imdp.numTransitions;
+		maxNumDistrs = imdp.maxNumDistrs;
+		cols = imdp.cols;
+		choiceStarts = imdp.choiceStarts;
+		rowStarts = imdp.rowStarts;
+		actions = imdp.actions;
+		lower = imdp.lower.clone();
+		upper = imdp.upper.clone();
+	}
+
+	/**
+	 * Constructor: Build new IMDPSparse with the transition structure of {@code mdp} where the k-th transition
+	 * of its sparse matrix has the interval [{@code lower[k]}, {@code upper[k]}].
+	 * Neither the sparse matrix of {@code mdp} nor the arrays of bounds are copied, so the latter should not
+	 * be modified afterwards. The labels of the MDP are added to the IMDP (but their BitSets are not copied).
+	 *
+	 * @param mdp The MDP
+	 * @param lower Lower bounds of the transitions (array of size mdp.getNumTransitions())
+	 * @param upper Upper bounds of the transitions (array of size mdp.getNumTransitions())
+	 */
+	public IMDPSparse(final MDPSparse mdp, double lower[], double upper[])
+	{
+		if (lower.length != mdp.getNumTransitions() || upper.length != mdp.getNumTransitions()) {
+			throw new IllegalArgumentException("Expected bounds for " + mdp.getNumTransitions() + " transitions");
+		}
+		initialiseFromMDP(mdp);
+		shareMatrix(mdp);
+		this.lower = lower;
+		this.upper = upper;
+	}
+
+	/**
+	 * Build an IMDPSparse with the transition structure of {@code mdp}, where each transition has
+	 * the point interval [p,p] of its probability p in the MDP. The sparse matrix of {@code mdp} is shared,
+	 * but the bounds are copies of its probabilities.
+	 */
+	public static IMDPSparse fromMDP(final MDPSparse mdp)
+	{
+		return new IMDPSparse(mdp, mdp.nonZeros.clone(), mdp.nonZeros.clone());
+	}
+
+	/**
+	 * Initialise as an IMDP with the states, initial states, deadlocks, labels and statistics of {@code mdp}
+	 * (but without its transition function). The BitSets of the labels are not copied.
+	 */
+	protected void initialiseFromMDP(final MDP<Double> mdp)
+	{
+		initialise(mdp.getNumStates());
+		setEvaluator(Evaluator.createForDoubleIntervals());
+		for (int in : mdp.getInitialStates()) {
+			addInitialState(in);
+		}
+		for (int dl : mdp.getDeadlockStates()) {
+			addDeadlockState(dl);
+		}
+		statesList = mdp.getStatesList();
+		constantValues = mdp.getConstantValues();
+		varList = mdp.getVarList();
+		for (Map.Entry<String, BitSet> label : mdp.getLabelToStatesMap().entrySet()) {
+			addLabel(label.getKey(), label.getValue());
+		}
+		numDistrs = mdp.getNumChoices();
+		numTransitions = mdp.getNumTransitions();
+		maxNumDistrs = mdp.getMaxNumChoices();
+	}
+
+	/**
+	 * Share the sparse matrix (successors, choices and actions) of {@code mdp}, which is not modified after construction.
+	 */
+	protected void shareMatrix(final MDPSparse mdp)
+	{
+		cols = mdp.cols;
+		choiceStarts = mdp.choiceStarts;
+		rowStarts = mdp.rowStarts;
+		actions = mdp.actions;
+	}
+
+	// Mutators (other)
+
+	@Override
+	public void initialise(int numStates)
+	{
+		super.initialise(numStates);
+		numDistrs = numTransitions = maxNumDistrs = 0;
+		actions = null;
+	}
+
+	@Override
+	public void buildFromPrismExplicit(String filename) throws PrismException
+	{
+		throw new PrismException("Building an IMDPSparse from a file is not supported");
+	}
+
+	// Accessors (for Model)
+
+	@Override
+	public int getNumTransitions()
+	{
+		return numTransitions;
+	}
+
+	@Override
+	public int getNumTransitions(int s)
+	{
+		return choiceStarts[rowStarts[s + 1]] - choiceStarts[rowStarts[s]];
+	}
+
+	private SuccessorsIterator colsIterator(int start, int end, boolean distinct)
+	{
+		return new SuccessorsIterator()
+		{
+			int cur = start;
+
+			@Override
+			public boolean successorsAreDistinct()
+			{
+				return distinct;
+			}
+
+			@Override
+			public boolean hasNext()
+			{
+				return cur < end;
+			}
+
+			@Override
+			public int nextInt()
+			{
+				return cols[cur++];
+			}
+		};
+	}
+
+	@Override
+	public SuccessorsIterator getSuccessors(final int s)
+	{
+		int start = choiceStarts[rowStarts[s]];
+		int end = choiceStarts[rowStarts[s + 1]];
+		// we can guarantee that the successors are distinct if there is at most one successor...
+		boolean distinct = (start == end || start + 1 == end);
+		return colsIterator(start, end, distinct);
+	}
+
+	@Override
+	public void findDeadlocks(boolean fix) throws PrismException
+	{
+		for (int i = 0; i < numStates; i++) {
+			// Note that no distributions is a deadlock, not an empty distribution
+			if (getNumChoices(i) == 0) {
+				addDeadlockState(i);
+				if (fix) {
+					throw new PrismException("Can't fix deadlocks in an IMDPSparse since it cannot be modified after construction");
+				}
+			}
+		}
+	}
+
+	@Override
+	public void checkForDeadlocks(BitSet except) throws PrismException
+	{
+		for (int i = 0; i < numStates; i++) {
+			if (getNumChoices(i) == 0 && (except == null || !except.get(i)))
+				throw new PrismException("IMDP has a deadlock in state " + i);
+		}
+	}
+
+	// Accessors (for NondetModel)
+
+	@Override
+	public int getNumChoices(int s)
+	{
+		return rowStarts[s + 1] - rowStarts[s];
+	}
+
+	@Override
+	public int getMaxNumChoices()
+	{
+		return maxNumDistrs;
+	}
+
+	@Override
+	public int getNumChoices()
+	{
+		return numDistrs;
+	}
+
+	@Override
+	public Object getAction(int s, int i)
+	{
+		return i < 0 || actions == null ? null : actions[rowStarts[s] + i];
+	}
+
+	@Override
+	public SuccessorsIterator getSuccessors(final int s, final int i)
+	{
+		int start = choiceStarts[rowStarts[s] + i];
+		int end = choiceStarts[rowStarts[s] + i + 1];
+		// we assume here that the successors for a single choice are distinct
+		return colsIterator(start, end, true);
+	}
+
+	// Accessors (for MDP)
+
+	@Override
+	public int getNumTransitions(int s, int i)
+	{
+		return choiceStarts[rowStarts[s] + i + 1] - choiceStarts[rowStarts[s] + i];
+	}
+
+	@Override
+	public Iterator<Entry<Integer, Interval<Double>>> getTransitionsIterator(final int s, final int i)
+	{
+		return new Iterator<Entry<Integer, Interval<Double>>>()
+		{
+			int col = choiceStarts[rowStarts[s] + i];
+			final int end = choiceStarts[rowStarts[s] + i + 1];
+
+			@Override
+			public boolean hasNext()
+			{
+				return col < end;
+			}
+
+			@Override
+			public Entry<Integer, Interval<Double>> next()
+			{
+				assert (col < end);
+				final int k = col;
+				col++;
+				return new AbstractMap.SimpleImmutableEntry<Integer, Interval<Double>>(cols[k], new Interval<Double>(lower[k], upper[k]));
+			}
+		};
+	}
+
+	// Accessors (for IMDP)
+
+	@Override
+	public void checkLowerBoundsArePositive() throws PrismException
+	{
+		for (int s = 0; s < numStates; s++) {
+			for (int k = choiceStarts[rowStarts[s]], stop = choiceStarts[rowStarts[s + 1]]; k < stop; k++) {
+				if (!(lower[k] > 0)) {
+					List<State> sl = getStatesList();
+					String state = sl == null ? "" + s : sl.get(s).toString();
+					throw new PrismException("Transition probability has lower bound of 0 in state " + state);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Scratch space for value iteration: orderings of all transitions (in storage order, to start with),
+	 * i.e. 8 bytes per transition.
+	 */
+	@Override
+	public IMDP.Scratch createScratch()
+	{
+		return new Orderings(numTransitions);
+	}
+
+	@Override
+	public double mvMultSingle(int s, int i, double vect[], MinMax minMax, IMDP.Scratch scratch)
+	{
+		// Without scratch space, sort the transitions afresh
+		if (scratch == null) {
+			return IMDP.super.mvMultSingle(s, i, vect, minMax, null);
+		}
+		// One step of value iteration for IDTMCs
+		// (see IMDP.mvMultSingle for details of the method)
+		int j = rowStarts[s] + i;
+		int l2 = choiceStarts[j];
+		int h2 = choiceStarts[j + 1];
+		// First add products of probability lower bounds and successor values
+		double res = 0.0;
+		double totP = 1.0;
+		for (int k = l2; k < h2; k++) {
+			res += vect[cols[k]] * lower[k];
+			totP -= lower[k];
+		}
+		// Then add remaining ones in descending (or ascending) order of successor values
+		boolean desc = minMax.isMaxUnc();
+		Orderings o = (Orderings) scratch;
+		int order[] = desc ? o.descending : o.ascending;
+		sortTransitions(order, l2, h2, vect, desc);
+		for (int k = l2; k < h2; k++) {
+			int t = order[k];
+			double delta = upper[t] - lower[t];
+			if (delta < totP) {
+				res += delta * vect[cols[t]];
+				totP -= delta;
+			} else {
+				res += totP * vect[cols[t]];
+				break;
+			}
+		}
+		return res;
+	}
+
+	@Override
+	public double mvMultJacSingle(int s, int i, double vect[], MinMax minMax, IMDP.Scratch scratch)
+	{
+		if (scratch == null) {
+			return IMDP.super.mvMultJacSingle(s, i, vect, minMax, null);
+		}
+		return mvMultJacSingle(s, i, vect, 0.0, minMax, (Orderings) scratch);
+	}
+
+	@Override
+	public double mvMultRewJacSingle(int s, int i, double vect[], MDPRewards<Double> mdpRewards, MinMax minMax, IMDP.Scratch scratch)
+	{
+		if (scratch == null) {
+			return IMDP.super.mvMultRewJacSingle(s, i, vect, mdpRewards, minMax, null);
+		}
+		double rew = mdpRewards.getStateReward(s) + mdpRewards.getTransitionReward(s, i);
+		return mvMultJacSingle(s, i, vect, rew, minMax, (Orderings) scratch);
+	}
+
+	/**
+	 * Fixed point for state {@code s} under choice {@code i} if it forms a singleton SCC, with reward {@code rew}
+	 * (see {@link IDTMC#mvMultJacSingleUnc(int, int[], double[], double[], int[], int, int, double[], double, MinMax)}),
+	 * keeping the orderings of transitions in {@code o}.
+	 */
+	private double mvMultJacSingle(int s, int i, double vect[], double rew, MinMax minMax, Orderings o)
+	{
+		int j = rowStarts[s] + i;
+		int l2 = choiceStarts[j];
+		int h2 = choiceStarts[j + 1];
+		boolean desc = minMax.isMaxUnc();
+		int order[] = desc ? o.descending : o.ascending;
+		sortTransitions(order, l2, h2, vect, desc);
+		return IDTMC.mvMultJacSingleUnc(s, cols, lower, upper, order, l2, h2, vect, rew, minMax);
+	}
+
+	/**
+	 * Sort the transitions {@code order[start..end)} by the values of their successors in {@code vect}
+	 * (descending if {@code desc} is true, ascending otherwise), breaking ties by transition index.
+	 * This gives the same order as a stable sort of the transitions in storage order.
+	 * Insertion sort is used since the existing order is usually (almost) right.
+	 */
+	private void sortTransitions(int order[], int start, int end, double vect[], boolean desc)
+	{
+		for (int k = start + 1; k < end; k++) {
+			int t = order[k];
+			double v = vect[cols[t]];
+			int m = k - 1;
+			while (m >= start && precedes(t, v, order[m], vect[cols[order[m]]], desc)) {
+				order[m + 1] = order[m];
+				m--;
+			}
+			order[m + 1] = t;
+		}
+	}
+
+	/**
+	 * Does transition {@code t1} (with successor value {@code v1})
+	 * come strictly before transition {@code t2} (with successor value {@code v2})?
+	 */
+	private static boolean precedes(int t1, double v1, int t2, double v2, boolean desc)
+	{
+		int c = Double.compare(v1, v2);
+		if (c == 0) {
+			return t1 < t2;
+		}
+		return desc ? c > 0 : c < 0;
+	}
+
+	// Standard methods
+
+	@Override
+	public String toString()
+	{
+		StringBuilder s = new StringBuilder("[ ");
+		for (int i = 0; i < numStates; i++) {
+			if (i > 0)
+				s.append(", ");
+			s.append(i + ": [");
+			for (int j = rowStarts[i]; j < rowStarts[i + 1]; j++) {
+				if (j > rowStarts[i])
+					s.append(",");
+				Object o = getAction(i, j - rowStarts[i]);
+				if (o != null)
+					s.append(o + ":");
+				s.append("{");
+				for (int k = choiceStarts[j]; k < choiceStarts[j + 1]; k++) {
+					if (k > choiceStarts[j])
+						s.append(", ");
+					s.append(cols[k] + ":[" + lower[k] + "," + upper[k] + "]");
+				}
+				s.append("}");
+			}
+			s.append("]");
+		}
+		s.append(" ]");
+		return s.toString();
+	}
+
+	@Override
+	public boolean equals(Object o)
+	{
+		if (o == null || !(o instanceof IMDPSparse))
+			return false;
+		IMDPSparse imdp = (IMDPSparse) o;
+		if (numStates != imdp.numStates)
+			return false;
+		if (!initialStates.equals(imdp.initialStates))
+			return false;
+		if (!Utils.doubleArraysAreEqual(lower, imdp.lower))
+			return false;
+		if (!Utils.doubleArraysAreEqual(upper, imdp.upper))
+			return false;
+		if (!Utils.intArraysAreEqual(cols, imdp.cols))
+			return false;
+		if (!Utils.intArraysAreEqual(choiceStarts, imdp.choiceStarts))
+			return false;
+		if (!Utils.intArraysAreEqual(rowStarts, imdp.rowStarts))
+			return false;
+		return true;
+	}
+
+	/**
+	 * Hash code consistent with {@link #equals}. Only the transition structure is hashed, not the bounds,
+	 * since they can be changed in place (see {@link IMDPFromMDP}) and are compared with {@code ==},
+	 * under which 0.0 and -0.0 are equal.
+	 */
+	@Override
+	public int hashCode()
+	{
+		int hash = numStates;
+		hash = 31 * hash + initialStates.hashCode();
+		hash = 31 * hash + Arrays.hashCode(cols);
+		hash = 31 * hash + Arrays.hashCode(choiceStarts);
+		hash = 31 * hash + Arrays.hashCode(rowStarts);
+		return hash;
+	}
+}
@@ -420,8 +420,9 @@ public abstract class IterationMethod {
 	 * in an IDTMC.
 	 * @param imdp the IMDP
 	 * @param minMax min/max info
+	 * @param scratch scratch space of the solve (see {@link IMDP#createScratch()}), shared by all its iterations
 	 */
-	public abstract IterationValIter forMvMultMinMaxUnc(IMDP<Double> imdp, MinMax minMax, int[] strat) throws PrismException;
+	public abstract IterationValIter forMvMultMinMaxUnc(IMDP<Double> imdp, MinMax minMax, int[] strat, IMDP.Scratch scratch) throws PrismException;
 	
 	/**
 	 * Obtain an Iteration object using mvMult (matrix-vector multiplication, followed by min/max)
@@ -429,9 +430,60 @@ public abstract class IterationMethod {
 	 * @param imdp the IMDP
 	 * @param mdpRewards the reward structure
 	 * @param minMax min/max info
+	 * @param scratch scratch space of the solve (see {@link IMDP#createScratch()}), shared by all its iterations
 	 */
-	public abstract IterationValIter forMvMultRewMinMaxUnc(IMDP<Double> imdp, MDPRewards<Double> mdpRewards, MinMax minMax, int[] strat) throws PrismException;
+	public abstract IterationValIter forMvMultRewMinMaxUnc(IMDP<Double> imdp, MDPRewards<Double> mdpRewards, MinMax minMax, int[] strat, IMDP.Scratch scratch) throws PrismException;
 	
+	/**
+	 * Obtain an Iteration object using mvMult (matrix-vector multiplication, followed by min/max)
+	 * in an IDTMC, for interval iteration (from below or from above).
+	 * @param idtmc the IDTMC
+	 * @param minMax min/max info
+	 * @param fromBelow for interval iteration from below?
+	 * @param enforceMonotonicity enforce element-wise monotonicity of the solution vector
+	 * @param checkMonotonicity check the element-wise monotonicity of the solution vector, throw exception if violated
+	 */
+	public abstract IterationIntervalIter forMvMultMinMaxUncInterval(IDTMC<Double> idtmc, MinMax minMax, boolean fromBelow, boolean enforceMonotonicity, boolean checkMonotonicity) throws PrismException;
+
+	/**
+	 * Obtain an Iteration object using mvMultRew (matrix-vector multiplication with rewards, followed by min/max)
+	 * in an IDTMC, for interval iteration (from below or from above).
+	 * @param idtmc the IDTMC
+	 * @param mcRewards the reward structure
+	 * @param minMax min/max info
+	 * @param fromBelow for interval iteration from below?
+	 * @param enforceMonotonicity enforce element-wise monotonicity of the solution vector
+	 * @param checkMonotonicity check the element-wise monotonicity of the solution vector, throw exception if violated
+	 */
+	public abstract IterationIntervalIter forMvMultRewMinMaxUncInterval(IDTMC<Double> idtmc, MCRewards<Double> mcRewards, MinMax minMax, boolean fromBelow, boolean enforceMonotonicity, boolean checkMonotonicity) throws PrismException;
+
+	/**
+	 * Obtain an Iteration object using mvMult (matrix-vector multiplication, followed by min/max)
+	 * in an IMDP, for interval iteration (from below or from above).
+	 * @param imdp the IMDP
+	 * @param minMax min/max info
+	 * @param strat optional, storage for strategy, ignored if null
+	 * @param fromBelow for interval iteration from below?
+	 * @param enforceMonotonicity enforce element-wise monotonicity of the solution vector
+	 * @param checkMonotonicity check the element-wise monotonicity of the solution vector, throw exception if violated
+	 * @param scratch scratch space of the solve (see {@link IMDP#createScratch()}), shared by all its iterations
+	 */
+	public abstract IterationIntervalIter forMvMultMinMaxUncInterval(IMDP<Double> imdp, MinMax minMax, int[] strat, boolean fromBelow, boolean enforceMonotonicity, boolean checkMonotonicity, IMDP.Scratch scratch) throws PrismException;
+
+	/**
+	 * Obtain an Iteration object using mvMultRew (matrix-vector multiplication with rewards, followed by min/max)
+	 * in an IMDP, for interval iteration (from below or from above).
+	 * @param imdp the IMDP
+	 * @param mdpRewards the reward structure
+	 * @param minMax min/max info
+	 * @param strat optional, storage for strategy, ignored if null
+	 * @param fromBelow for interval iteration from below?
+	 * @param enforceMonotonicity enforce element-wise monotonicity of the solution vector
+	 * @param checkMonotonicity check the element-wise monotonicity of the solution vector, throw exception if violated
+	 * @param scratch scratch space of the solve (see {@link IMDP#createScratch()}), shared by all its iterations
+	 */
+	public abstract IterationIntervalIter forMvMultRewMinMaxUncInterval(IMDP<Double> imdp, MDPRewards<Double> mdpRewards, MinMax minMax, int[] strat, boolean fromBelow, boolean enforceMonotonicity, boolean checkMonotonicity, IMDP.Scratch scratch) throws PrismException;
+
 	// ------------ Abstract generic methods ----------------------------
 
 	/**
@@ -724,6 +776,16 @@ public abstract class IterationMethod {
 	 * @throws PrismException on non-convergence (if mc.errorOnNonConverge is set)
 	 */
 	public ModelCheckerResult doTopologicalIntervalIteration(ProbModelChecker mc, String description, SCCInfo sccs, IterationIntervalIter below, IterationIntervalIter above, SingletonSCCSolver singletonSCCSolver, long timer, ExportIterations iterationsExport) throws PrismException {
+		return doTopologicalIntervalIteration(mc, description, sccs, below, above, singletonSCCSolver, singletonSCCSolver, timer, iterationsExport);
+	}
+
+	/**
+	 * Perform the actual work of a topological interval iteration, as
+	 * {@link #doTopologicalIntervalIteration(ProbModelChecker, String, SCCInfo, IterationIntervalIter, IterationIntervalIter, SingletonSCCSolver, long, ExportIterations)},
+	 * but with separate solvers for the singleton SCCs from below and from above
+	 * (e.g., to store separate strategies for the two).
+	 */
+	public ModelCheckerResult doTopologicalIntervalIteration(ProbModelChecker mc, String description, SCCInfo sccs, IterationIntervalIter below, IterationIntervalIter above, SingletonSCCSolver singletonSCCSolverBelow, SingletonSCCSolver singletonSCCSolverAbove, long timer, ExportIterations iterationsExport) throws PrismException {
 		try {
 			// Start iterations
 			int iters = 0;
@@ -745,8 +807,8 @@ public abstract class IterationMethod {
 				if (sccs.isSingletonSCC(scc)) {
 					// get the single state in this SCC
 					int state = sccs.getStatesForSCC(scc).iterator().nextInt();
-					below.solveSingletonSCC(state, singletonSCCSolver);
-					above.solveSingletonSCC(state, singletonSCCSolver);
+					below.solveSingletonSCC(state, singletonSCCSolverBelow);
+					above.solveSingletonSCC(state, singletonSCCSolverAbove);
 
 					// no need to call doneWith(...), as solveSingletonSCC updates
 					// both vectors for two-iteration methods
@@ -237,14 +237,14 @@ public class IterationMethodGS extends IterationMethod {
 	}
 	
 	@Override
-	public IterationValIter forMvMultMinMaxUnc(IMDP<Double> imdp, MinMax minMax, int[] strat)
+	public IterationValIter forMvMultMinMaxUnc(IMDP<Double> imdp, MinMax minMax, int[] strat, IMDP.Scratch scratch)
 	{
 		return new SingleVectorIterationValIter(imdp) {
 			@Override
 			public boolean iterateAndCheckConvergence(IntSet states)
 			{
 				// Matrix-vector multiply
-				error = imdp.mvMultGS(soln, minMax, states.iterator(), absolute, strat);
+				error = imdp.mvMultGS(soln, minMax, states.iterator(), absolute, strat, scratch);
 				// Check termination
 				return (error < termCritParam);
 			}
@@ -252,20 +252,72 @@ public class IterationMethodGS extends IterationMethod {
 	}
 	
 	@Override
-	public IterationValIter forMvMultRewMinMaxUnc(IMDP<Double> imdp, MDPRewards<Double> mdpRewards, MinMax minMax, int[] strat)
+	public IterationValIter forMvMultRewMinMaxUnc(IMDP<Double> imdp, MDPRewards<Double> mdpRewards, MinMax minMax, int[] strat, IMDP.Scratch scratch)
 	{
 		return new SingleVectorIterationValIter(imdp) {
 			@Override
 			public boolean iterateAndCheckConvergence(IntSet states)
 			{
 				// Matrix-vector multiply
-				error = imdp.mvMultRewGS(soln, mdpRewards, minMax, states.iterator(), absolute, strat);
+				error = imdp.mvMultRewGS(soln, mdpRewards, minMax, states.iterator(), absolute, strat, scratch);
 				// Check termination
 				return (error < termCritParam);
 			}
 		};
 	}
 	
+	@Override
+	public IterationIntervalIter forMvMultMinMaxUncInterval(IDTMC<Double> idtmc, MinMax minMax, boolean fromBelow, boolean enforceMonotonicity, boolean checkMonotonicity)
+	{
+		return new SingleVectorIterationIntervalIter(idtmc) {
+			@Override
+			public void iterate(IntSet states) throws PrismException
+			{
+				// Matrix-vector multiply
+				idtmc.mvMultGSIntervalIter(soln, minMax, backwards ? states.reversedIterator() : states.iterator(), enforceMonotonicity, fromBelow, checkMonotonicity);
+			}
+		};
+	}
+
+	@Override
+	public IterationIntervalIter forMvMultRewMinMaxUncInterval(IDTMC<Double> idtmc, MCRewards<Double> mcRewards, MinMax minMax, boolean fromBelow, boolean enforceMonotonicity, boolean checkMonotonicity)
+	{
+		return new SingleVectorIterationIntervalIter(idtmc) {
+			@Override
+			public void iterate(IntSet states) throws PrismException
+			{
+				// Matrix-vector multiply
+				idtmc.mvMultRewGSIntervalIter(soln, mcRewards, minMax, backwards ? states.reversedIterator() : states.iterator(), enforceMonotonicity, fromBelow, checkMonotonicity);
+			}
+		};
+	}
+
+	@Override
+	public IterationIntervalIter forMvMultMinMaxUncInterval(IMDP<Double> imdp, MinMax minMax, int[] strat, boolean fromBelow, boolean enforceMonotonicity, boolean checkMonotonicity, IMDP.Scratch scratch)
+	{
+		return new SingleVectorIterationIntervalIter(imdp) {
+			@Override
+			public void iterate(IntSet states) throws PrismException
+			{
+				// Matrix-vector multiply
+				imdp.mvMultGSIntervalIter(soln, minMax, backwards ? states.reversedIterator() : states.iterator(), strat, enforceMonotonicity, fromBelow, checkMonotonicity, scratch);
+			}
+		};
+	}
+
+	@Override
+	public IterationIntervalIter forMvMultRewMinMaxUncInterval(IMDP<Double> imdp, MDPRewards<Double> mdpRewards, MinMax minMax, int[] strat, boolean fromBelow, boolean enforceMonotonicity, boolean checkMonotonicity, IMDP.Scratch scratch)
+	{
+		return new SingleVectorIterationIntervalIter(imdp) {
+			@Override
+			public void iterate(IntSet states) throws PrismException
+			{
+				// Matrix-vector multiply
+				imdp.mvMultRewGSIntervalIter(soln, mdpRewards, minMax, backwards ? states.reversedIterator() : states.iterator(), strat, enforceMonotonicity, fromBelow, checkMonotonicity, scratch);
+			}
+		};
+	}
+
 	@Override
 	public String getDescriptionShort()
 	{
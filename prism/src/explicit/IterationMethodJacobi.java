@@ -142,13 +142,37 @@ class IterationMethodJacobi extends IterationMethod {
 	}
 
 	@Override
-	public IterationValIter forMvMultMinMaxUnc(IMDP<Double> idtmc, MinMax minMax, int[] strat) throws PrismException
+	public IterationValIter forMvMultMinMaxUnc(IMDP<Double> idtmc, MinMax minMax, int[] strat, IMDP.Scratch scratch) throws PrismException
 	{
 		throw new PrismNotSupportedException("Jacobi not supported for IMDPs");
 	}
 
 	@Override
-	public IterationValIter forMvMultRewMinMaxUnc(IMDP<Double> imdp, MDPRewards<Double> mdpRewards, MinMax minMax, int[] strat) throws PrismException
+	public IterationValIter forMvMultRewMinMaxUnc(IMDP<Double> imdp, MDPRewards<Double> mdpRewards, MinMax minMax, int[] strat, IMDP.Scratch scratch) throws PrismException
+	{
+		throw new PrismNotSupportedException("Jacobi not supported for IMDPs");
+	}
+
+	@Override
+	public IterationIntervalIter forMvMultMinMaxUncInterval(IDTMC<Double> idtmc, MinMax minMax, boolean fromBelow, boolean enforceMonotonicity, boolean checkMonotonicity) throws PrismException
+	{
+		throw new PrismNotSupportedException("Jacobi not supported for IDTMCs");
+	}
+
+	@Override
+	public IterationIntervalIter forMvMultRewMinMaxUncInterval(IDTMC<Double> idtmc, MCRewards<Double> mcRewards, MinMax minMax, boolean fromBelow, boolean enforceMonotonicity, boolean checkMonotonicity) throws PrismException
+	{
+		throw new PrismNotSupportedException("Jacobi not supported for IDTMCs");
+	}
+
+	@Override
+	public IterationIntervalIter forMvMultMinMaxUncInterval(IMDP<Double> imdp, MinMax minMax, int[] strat, boolean fromBelow, boolean enforceMonotonicity, boolean checkMonotonicity, IMDP.Scratch scratch) throws PrismException
+	{
+		throw new PrismNotSupportedException("Jacobi not supported for IMDPs");
+	}
+
+	@Override
+	public IterationIntervalIter forMvMultRewMinMaxUncInterval(IMDP<Double> imdp, MDPRewards<Double> mdpRewards, MinMax minMax, int[] strat, boolean fromBelow, boolean enforceMonotonicity, boolean checkMonotonicity, IMDP.Scratch scratch) throws PrismException
 	{
 		throw new PrismNotSupportedException("Jacobi not supported for IMDPs");
 	}
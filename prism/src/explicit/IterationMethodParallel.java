@@ -0,0 +1,322 @@
+package explicit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.DoubleAccumulator;
+
+import common.IntSet;
+import explicit.rewards.MCRewards;
+import explicit.rewards.MDPRewards;
+import prism.PrismException;
+import prism.PrismNotSupportedException;
+import prism.PrismUtils;
+
+/**
+ * IterationMethod that performs the iterations of the power method (or of the Jacobi method) in parallel.
+ * The states to be updated are split into blocks of consecutive states, which are updated
+ * by the threads of a {@link ForkJoinPool}, and each block also measures its convergence error.
+ * <br>
+ * Since each state is updated only from the previous solution vector, the results are identical
+ * to those of {@link IterationMethodPower} (or {@link IterationMethodJacobi}).
+ * Like the latter, the Jacobi method is only supported for DTMCs.
+ * For IMDPs, the blocks share the scratch space of the solve (see {@link IMDP#createScratch()}),
+ * which is safe since they update disjoint sets of states.
+ */
+public class IterationMethodParallel extends IterationMethod {
+
+	/** Minimum number of states in a block, so that the threads are not mostly waiting for each other */
+	private static final int MIN_BLOCK_SIZE = 1024;
+	/** Number of blocks per thread, to balance the load (the number of transitions per state varies) */
+	private static final int BLOCKS_PER_THREAD = 4;
+
+	/** The pools, shared by all iteration methods with the same number of threads */
+	private static final Map<Integer, ForkJoinPool> pools = new HashMap<>();
+
+	/** Jacobi (rather than power) method? */
+	private final boolean jacobi;
+	/** Number of threads */
+	private final int numThreads;
+	/** Pool for the blocks of each iteration */
+	private final ForkJoinPool pool;
+
+	/**
+	 * Constructor.
+	 * @param absolute For convergence check, perform absolute comparison?
+	 * @param termCritParam For convergence check, the epsilon value to use
+	 * @param jacobi Use the Jacobi method (rather than the power method)?
+	 * @param numThreads Number of threads
+	 */
+	public IterationMethodParallel(boolean absolute, double epsilon, boolean jacobi, int numThreads)
+	{
+		super(absolute, epsilon);
+		this.jacobi = jacobi;
+		this.numThreads = numThreads;
+		this.pool = getPool(numThreads);
+	}
+
+	/**
+	 * Get the pool with {@code numThreads} threads (created on first use).
+	 */
+	private static synchronized ForkJoinPool getPool(int numThreads)
+	{
+		return pools.computeIfAbsent(numThreads, ForkJoinPool::new);
+	}
+
+	/**
+	 * Update of the states of a block, from {@code soln} into {@code soln2}.
+	 */
+	@FunctionalInterface
+	private interface BlockUpdate {
+		void apply(double[] soln, double[] soln2, PrimitiveIterator.OfInt states);
+	}
+
+	/**
+	 * TwoVectorIteration that updates the blocks of states in parallel.
+	 */
+	private class ParallelTwoVectorIteration extends TwoVectorIteration {
+		private final BlockUpdate update;
+		/** The states last iterated over, and an array of them */
+		private IntSet lastStates;
+		private int[] lastStatesArray;
+
+		/** Constructor */
+		private ParallelTwoVectorIteration(Model<?> model, IterationPostProcessor postProcessor, BlockUpdate update)
+		{
+			super(model, postProcessor);
+			this.update = update;
+		}
+
+		@Override
+		public void doIterate(IntSet states)
+		{
+			iterateBlocks(states, false);
+		}
+
+		@Override
+		public boolean iterateAndCheckConvergence(IntSet states) throws PrismException
+		{
+			// the error can only be measured by the blocks if there is no post processing
+			if (postProcessor != null) {
+				return super.iterateAndCheckConvergence(states);
+			}
+			double error = iterateBlocks(states, true);
+
+			// switch vectors
+			double[] tmp = soln;
+			soln = soln2;
+			soln2 = tmp;
+
+			return error < termCritParam;
+		}
+
+		/**
+		 * Update the {@code states}, block by block, and return the maximum error if {@code measureError} is true.
+		 */
+		private double iterateBlocks(IntSet states, boolean measureError)
+		{
+			// the same set of states is usually iterated over until convergence
+			if (states != lastStates) {
+				lastStatesArray = states.stream().toArray();
+				lastStates = states;
+			}
+			int[] statesArray = lastStatesArray;
+			int n = statesArray.length;
+			int blockSize = Math.max(MIN_BLOCK_SIZE, (n + numThreads * BLOCKS_PER_THREAD - 1) / (numThreads * BLOCKS_PER_THREAD));
+			if (n <= blockSize) {
+				// a single block is not worth handing over to the pool
+				return iterateBlock(statesArray, 0, n, measureError);
+			}
+			DoubleAccumulator error = new DoubleAccumulator(Math::max, 0.0);
+			List<ForkJoinTask<?>> tasks = new ArrayList<>();
+			for (int start = 0; start < n; start += blockSize) {
+				int from = start;
+				int to = Math.min(start + blockSize, n);
+				tasks.add(pool.submit(() -> error.accumulate(iterateBlock(statesArray, from, to, measureError))));
+			}
+			for (ForkJoinTask<?> task : tasks) {
+				task.join();
+			}
+			return error.get();
+		}
+
+		/**
+		 * Update the states {@code statesArray[from..to)}, and return their maximum error if {@code measureError} is true.
+		 */
+		private double iterateBlock(int[] statesArray, int from, int to, boolean measureError)
+		{
+			update.apply(soln, soln2, Arrays.stream(statesArray, from, to).iterator());
+			double error = 0.0;
+			if (measureError) {
+				for (int k = from; k < to; k++) {
+					int s = statesArray[k];
+					double diff = absolute ? PrismUtils.measureSupNormAbs(soln[s], soln2[s]) : Math.abs(PrismUtils.measureSupNormRel(soln[s], soln2[s]));
+					// (NaN, for an infinite old value and a finite new one, is not converged either)
+					error = Double.isNaN(diff) ? Double.POSITIVE_INFINITY : Math.max(error, diff);
+				}
+			}
+			return error;
+		}
+	}
+
+	/**
+	 * Post processing for interval iteration (see {@link IterationMethod#twoVectorPostProcessing}).
+	 */
+	private static IterationPostProcessor intervalPostProcessor(boolean fromBelow, boolean enforceMonotonicity, boolean checkMonotonicity)
+	{
+		return (soln, soln2, states) -> {
+			twoVectorPostProcessing(soln, soln2, states, fromBelow, enforceMonotonicity, checkMonotonicity);
+		};
+	}
+
+	/**
+	 * Throw an exception for the Jacobi method on a model with nondeterminism or uncertainty.
+	 */
+	private void checkNotJacobi(String modelType) throws PrismException
+	{
+		if (jacobi) {
+			throw new PrismNotSupportedException("Jacobi not supported for " + modelType);
+		}
+	}
+
+	@Override
+	public IterationValIter forMvMult(DTMC<Double> dtmc)
+	{
+		if (jacobi) {
+			return new ParallelTwoVectorIteration(dtmc, null, (soln, soln2, states) -> dtmc.mvMultJac(soln, soln2, states));
+		}
+		return new ParallelTwoVectorIteration(dtmc, null, (soln, soln2, states) -> dtmc.mvMult(soln, soln2, states));
+	}
+
+	@Override
+	public IterationIntervalIter forMvMultInterval(DTMC<Double> dtmc, boolean fromBelow, boolean enforceMonotonicity, boolean checkMonotonicity)
+	{
+		IterationPostProcessor post = intervalPostProcessor(fromBelow, enforceMonotonicity, checkMonotonicity);
+		if (jacobi) {
+			return new ParallelTwoVectorIteration(dtmc, post, (soln, soln2, states) -> dtmc.mvMultJac(soln, soln2, states));
+		}
+		return new ParallelTwoVectorIteration(dtmc, post, (soln, soln2, states) -> dtmc.mvMult(soln, soln2, states));
+	}
+
+	@Override
+	public IterationValIter forMvMultRew(DTMC<Double> dtmc, MCRewards<Double> rew)
+	{
+		if (jacobi) {
+			return new ParallelTwoVectorIteration(dtmc, null, (soln, soln2, states) -> dtmc.mvMultRewJac(soln, rew, soln2, states));
+		}
+		return new ParallelTwoVectorIteration(dtmc, null, (soln, soln2, states) -> dtmc.mvMultRew(soln, rew, soln2, states));
+	}
+
+	@Override
+	public IterationIntervalIter forMvMultRewInterval(DTMC<Double> dtmc, MCRewards<Double> rew, boolean fromBelow, boolean enforceMonotonicity, boolean checkMonotonicity)
+	{
+		IterationPostProcessor post = intervalPostProcessor(fromBelow, enforceMonotonicity, checkMonotonicity);
+		if (jacobi) {
+			return new ParallelTwoVectorIteration(dtmc, post, (soln, soln2, states) -> dtmc.mvMultRewJac(soln, rew, soln2, states));
+		}
+		return new ParallelTwoVectorIteration(dtmc, post, (soln, soln2, states) -> dtmc.mvMultRew(soln, rew, soln2, states));
+	}
+
+	@Override
+	public IterationValIter forMvMultMinMax(MDP<Double> mdp, boolean min, int[] strat) throws PrismException
+	{
+		checkNotJacobi("MDPs");
+		return new ParallelTwoVectorIteration(mdp, null, (soln, soln2, states) -> mdp.mvMultMinMax(soln, min, soln2, states, strat));
+	}
+
+	@Override
+	public IterationIntervalIter forMvMultMinMaxInterval(MDP<Double> mdp, boolean min, int[] strat, boolean fromBelow, boolean enforceMonotonicity,
+			boolean checkMonotonicity) throws PrismException
+	{
+		checkNotJacobi("MDPs");
+		IterationPostProcessor post = intervalPostProcessor(fromBelow, enforceMonotonicity, checkMonotonicity);
+		return new ParallelTwoVectorIteration(mdp, post, (soln, soln2, states) -> mdp.mvMultMinMax(soln, min, soln2, states, strat));
+	}
+
+	@Override
+	public IterationValIter forMvMultRewMinMax(MDP<Double> mdp, MDPRewards<Double> rewards, boolean min, int[] strat) throws PrismException
+	{
+		checkNotJacobi("MDPs");
+		return new ParallelTwoVectorIteration(mdp, null, (soln, soln2, states) -> mdp.mvMultRewMinMax(soln, rewards, min, soln2, states, strat));
+	}
+
+	@Override
+	public IterationIntervalIter forMvMultRewMinMaxInterval(MDP<Double> mdp, MDPRewards<Double> rewards, boolean min, int[] strat, boolean fromBelow,
+			boolean enforceMonotonicity, boolean checkMonotonicity) throws PrismException
+	{
+		checkNotJacobi("MDPs");
+		IterationPostProcessor post = intervalPostProcessor(fromBelow, enforceMonotonicity, checkMonotonicity);
+		return new ParallelTwoVectorIteration(mdp, post, (soln, soln2, states) -> mdp.mvMultRewMinMax(soln, rewards, min, soln2, states, strat));
+	}
+
+	@Override
+	public IterationValIter forMvMultMinMaxUnc(IDTMC<Double> idtmc, MinMax minMax) throws PrismException
+	{
+		checkNotJacobi("IDTMCs");
+		return new ParallelTwoVectorIteration(idtmc, null, (soln, soln2, states) -> idtmc.mvMult(soln, minMax, soln2, states));
+	}
+
+	@Override
+	public IterationValIter forMvMultRewMinMaxUnc(IDTMC<Double> idtmc, MCRewards<Double> mcRewards, MinMax minMax) throws PrismException
+	{
+		checkNotJacobi("IDTMCs");
+		return new ParallelTwoVectorIteration(idtmc, null, (soln, soln2, states) -> idtmc.mvMultRew(soln, mcRewards, minMax, soln2, states));
+	}
+
+	@Override
+	public IterationValIter forMvMultMinMaxUnc(IMDP<Double> imdp, MinMax minMax, int[] strat, IMDP.Scratch scratch) throws PrismException
+	{
+		checkNotJacobi("IMDPs");
+		return new ParallelTwoVectorIteration(imdp, null, (soln, soln2, states) -> imdp.mvMult(soln, minMax, soln2, states, strat, scratch));
+	}
+
+	@Override
+	public IterationValIter forMvMultRewMinMaxUnc(IMDP<Double> imdp, MDPRewards<Double> mdpRewards, MinMax minMax, int[] strat, IMDP.Scratch scratch) throws PrismException
+	{
+		checkNotJacobi("IMDPs");
+		return new ParallelTwoVectorIteration(imdp, null, (soln, soln2, states) -> imdp.mvMultRew(soln, mdpRewards, minMax, soln2, states, strat, scratch));
+	}
+
+	@Override
+	public IterationIntervalIter forMvMultMinMaxUncInterval(IDTMC<Double> idtmc, MinMax minMax, boolean fromBelow, boolean enforceMonotonicity, boolean checkMonotonicity) throws PrismException
+	{
+		checkNotJacobi("IDTMCs");
+		IterationPostProcessor post = intervalPostProcessor(fromBelow, enforceMonotonicity, checkMonotonicity);
+		return new ParallelTwoVectorIteration(idtmc, post, (soln, soln2, states) -> idtmc.mvMult(soln, minMax, soln2, states));
+	}
+
+	@Override
+	public IterationIntervalIter forMvMultRewMinMaxUncInterval(IDTMC<Double> idtmc, MCRewards<Double> mcRewards, MinMax minMax, boolean fromBelow, boolean enforceMonotonicity, boolean checkMonotonicity) throws PrismException
+	{
+		checkNotJacobi("IDTMCs");
+		IterationPostProcessor post = intervalPostProcessor(fromBelow, enforceMonotonicity, checkMonotonicity);
+		return new ParallelTwoVectorIteration(idtmc, post, (soln, soln2, states) -> idtmc.mvMultRew(soln, mcRewards, minMax, soln2, states));
+	}
+
+	@Override
+	public IterationIntervalIter forMvMultMinMaxUncInterval(IMDP<Double> imdp, MinMax minMax, int[] strat, boolean fromBelow, boolean enforceMonotonicity, boolean checkMonotonicity, IMDP.Scratch scratch) throws PrismException
+	{
+		checkNotJacobi("IMDPs");
+		IterationPostProcessor post = intervalPostProcessor(fromBelow, enforceMonotonicity, checkMonotonicity);
+		return new ParallelTwoVectorIteration(imdp, post, (soln, soln2, states) -> imdp.mvMult(soln, minMax, soln2, states, strat, scratch));
+	}
+
+	@Override
+	public IterationIntervalIter forMvMultRewMinMaxUncInterval(IMDP<Double> imdp, MDPRewards<Double> mdpRewards, MinMax minMax, int[] strat, boolean fromBelow, boolean enforceMonotonicity, boolean checkMonotonicity, IMDP.Scratch scratch) throws PrismException
+	{
+		checkNotJacobi("IMDPs");
+		IterationPostProcessor post = intervalPostProcessor(fromBelow, enforceMonotonicity, checkMonotonicity);
+		return new ParallelTwoVectorIteration(imdp, post, (soln, soln2, states) -> imdp.mvMultRew(soln, mdpRewards, minMax, soln2, states, strat, scratch));
+	}
+
+	@Override
+	public String getDescriptionShort()
+	{
+		return (jacobi ? "Jacobi" : "Power method") + " (" + numThreads + " threads)";
+	}
+}
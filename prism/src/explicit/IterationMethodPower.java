@@ -191,25 +191,89 @@ public class IterationMethodPower extends IterationMethod {
 	}
 
 	@Override
-	public IterationValIter forMvMultMinMaxUnc(IMDP<Double> imdp, MinMax minMax, int[] strat)
+	public IterationValIter forMvMultMinMaxUnc(IMDP<Double> imdp, MinMax minMax, int[] strat, IMDP.Scratch scratch)
 	{
 		return new TwoVectorIteration(imdp, null) {
 			@Override
 			public void doIterate(IntSet states)
 			{
-				imdp.mvMult(soln, minMax, soln2, states.iterator(), strat);
+				imdp.mvMult(soln, minMax, soln2, states.iterator(), strat, scratch);
 			}
 		};
 	}
 	
 	@Override
-	public IterationValIter forMvMultRewMinMaxUnc(IMDP<Double> imdp, MDPRewards<Double> mdpRewards, MinMax minMax, int[] strat)
+	public IterationValIter forMvMultRewMinMaxUnc(IMDP<Double> imdp, MDPRewards<Double> mdpRewards, MinMax minMax, int[] strat, IMDP.Scratch scratch)
 	{
 		return new TwoVectorIteration(imdp, null) {
 			@Override
 			public void doIterate(IntSet states)
 			{
-				imdp.mvMultRew(soln, mdpRewards, minMax, soln2, states.iterator(), strat);
+				imdp.mvMultRew(soln, mdpRewards, minMax, soln2, states.iterator(), strat, scratch);
+			}
+		};
+	}
+
+	@Override
+	public IterationIntervalIter forMvMultMinMaxUncInterval(IDTMC<Double> idtmc, MinMax minMax, boolean fromBelow, boolean enforceMonotonicity, boolean checkMonotonicity)
+	{
+		IterationPostProcessor post = (soln, soln2, states) -> {
+			twoVectorPostProcessing(soln, soln2, states, fromBelow, enforceMonotonicity, checkMonotonicity);
+		};
+
+		return new TwoVectorIteration(idtmc, post) {
+			@Override
+			public void doIterate(IntSet states)
+			{
+				idtmc.mvMult(soln, minMax, soln2, states.iterator());
+			}
+		};
+	}
+
+	@Override
+	public IterationIntervalIter forMvMultRewMinMaxUncInterval(IDTMC<Double> idtmc, MCRewards<Double> mcRewards, MinMax minMax, boolean fromBelow, boolean enforceMonotonicity, boolean checkMonotonicity)
+	{
+		IterationPostProcessor post = (soln, soln2, states) -> {
+			twoVectorPostProcessing(soln, soln2, states, fromBelow, enforceMonotonicity, checkMonotonicity);
+		};
+
+		return new TwoVectorIteration(idtmc, post) {
+			@Override
+			public void doIterate(IntSet states)
+			{
+				idtmc.mvMultRew(soln, mcRewards, minMax, soln2, states.iterator());
+			}
+		};
+	}
+
+	@Override
+	public IterationIntervalIter forMvMultMinMaxUncInterval(IMDP<Double> imdp, MinMax minMax, int[] strat, boolean fromBelow, boolean enforceMonotonicity, boolean checkMonotonicity, IMDP.Scratch scratch)
+	{
+		IterationPostProcessor post = (soln, soln2, states) -> {
+			twoVectorPostProcessing(soln, soln2, states, fromBelow, enforceMonotonicity, checkMonotonicity);
+		};
+
+		return new TwoVectorIteration(imdp, post) {
+			@Override
+			public void doIterate(IntSet states)
+			{
+				imdp.mvMult(soln, minMax, soln2, states.iterator(), strat, scratch);
+			}
+		};
+	}
+
+	@Override
+	public IterationIntervalIter forMvMultRewMinMaxUncInterval(IMDP<Double> imdp, MDPRewards<Double> mdpRewards, MinMax minMax, int[] strat, boolean fromBelow, boolean enforceMonotonicity, boolean checkMonotonicity, IMDP.Scratch scratch)
+	{
+		IterationPostProcessor post = (soln, soln2, states) -> {
+			twoVectorPostProcessing(soln, soln2, states, fromBelow, enforceMonotonicity, checkMonotonicity);
+		};
+
+		return new TwoVectorIteration(imdp, post) {
+			@Override
+			public void doIterate(IntSet states)
+			{
+				imdp.mvMultRew(soln, mdpRewards, minMax, soln2, states.iterator(), strat, scratch);
 			}
 		};
 	}
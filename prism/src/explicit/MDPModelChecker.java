@@ -560,7 +560,7 @@ public class MDPModelChecker extends ProbModelChecker
 		IterationMethod iterationMethod = null;
 		switch (method) {
 		case VALUE_ITERATION:
-			iterationMethod = new IterationMethodPower(termCrit == TermCrit.ABSOLUTE, termCritParam);
+			iterationMethod = createTwoVectorIterationMethod(false);
 			break;
 		case GAUSS_SEIDEL:
 			iterationMethod = new IterationMethodGS(termCrit == TermCrit.ABSOLUTE, termCritParam, false);
@@ -809,7 +809,7 @@ public class MDPModelChecker extends ProbModelChecker
 	protected ModelCheckerResult computeReachProbsValIter(MDP<Double> mdp, BitSet no, BitSet yes, boolean min, double init[], BitSet known, int strat[])
 			throws PrismException
 	{
-		IterationMethodPower iterationMethod = new IterationMethodPower(termCrit == TermCrit.ABSOLUTE, termCritParam);
+		IterationMethod iterationMethod = createTwoVectorIterationMethod(false);
 		return doValueIterationReachProbs(mdp, no, yes, min, init, known, iterationMethod, false, strat);
 	}
 
@@ -2252,7 +2252,7 @@ public class MDPModelChecker extends ProbModelChecker
 		IterationMethod iterationMethod = null;
 		switch (method) {
 		case VALUE_ITERATION:
-			iterationMethod = new IterationMethodPower(termCrit == TermCrit.ABSOLUTE, termCritParam);
+			iterationMethod = createTwoVectorIterationMethod(false);
 			break;
 		case GAUSS_SEIDEL:
 			iterationMethod = new IterationMethodGS(termCrit == TermCrit.ABSOLUTE, termCritParam, false);
@@ -2294,7 +2294,7 @@ public class MDPModelChecker extends ProbModelChecker
 	protected ModelCheckerResult computeReachRewardsValIter(MDP<Double> mdp, MDPRewards<Double> mdpRewards, BitSet target, BitSet inf, boolean min, double init[], BitSet known, int strat[])
 			throws PrismException
 	{
-		IterationMethodPower iterationMethod = new IterationMethodPower(termCrit == TermCrit.ABSOLUTE, termCritParam);
+		IterationMethod iterationMethod = createTwoVectorIterationMethod(false);
 		return doValueIterationReachRewards(mdp, mdpRewards, iterationMethod, target, inf, min, init, known, false, strat);
 	}
 
@@ -368,6 +368,30 @@ public class MDPSparse extends MDPExplicit<Double>
 		rowStarts[numStates] = numDistrs;
 	}
 
+	/**
+	 * Constructor: Build an MDP directly from its sparse matrix (whose arrays are used, not copied),
+	 * e.g. for a model generated in memory. There are no initial states (and no states list).
+	 * @param rowStarts First choice of each state; length numStates+1
+	 * @param choiceStarts First transition of each choice; length numChoices+1
+	 * @param cols Successor of each transition
+	 * @param nonZeros Probability of each transition
+	 * @param actions Action of each choice (null if there are no action labels)
+	 */
+	public MDPSparse(int[] rowStarts, int[] choiceStarts, int[] cols, double[] nonZeros, Object[] actions)
+	{
+		initialise(rowStarts.length - 1);
+		this.rowStarts = rowStarts;
+		this.choiceStarts = choiceStarts;
+		this.cols = cols;
+		this.nonZeros = nonZeros;
+		this.actions = actions;
+		numDistrs = rowStarts[numStates];
+		numTransitions = choiceStarts[numDistrs];
+		for (int s = 0; s < numStates; s++) {
+			maxNumDistrs = Math.max(maxNumDistrs, rowStarts[s + 1] - rowStarts[s]);
+		}
+	}
+
 	// Mutators (other)
 
 	@Override
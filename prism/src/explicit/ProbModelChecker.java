@@ -78,6 +78,8 @@ public class ProbModelChecker extends NonProbModelChecker
 	protected double termCritParam = 1e-8;
 	// Max iterations for numerical solution
 	protected int maxIters = 100000;
+	// Number of threads for the iterations of the power/Jacobi method (1: sequential)
+	protected int numIterationThreads = 1;
 	// Resolution for POMDP fixed grid approximation algorithm
 	protected int gridResolution = 10;
 	// Use precomputation algorithms in model checking?
@@ -224,6 +226,8 @@ public class ProbModelChecker extends NonProbModelChecker
 			setTermCritParam(settings.getDouble(PrismSettings.PRISM_TERM_CRIT_PARAM));
 			// PRISM_MAX_ITERS
 			setMaxIters(settings.getInteger(PrismSettings.PRISM_MAX_ITERS));
+			// PRISM_ITERATION_THREADS
+			setNumIterationThreads(settings.getInteger(PrismSettings.PRISM_ITERATION_THREADS));
 			// PRISM_GRID_RESOLUTION
 			setGridResolution(settings.getInteger(PrismSettings.PRISM_GRID_RESOLUTION));
 			// PRISM_PRECOMPUTATION
@@ -263,6 +267,7 @@ public class ProbModelChecker extends NonProbModelChecker
 		setTermCrit(other.getTermCrit());
 		setTermCritParam(other.getTermCritParam());
 		setMaxIters(other.getMaxIters());
+		setNumIterationThreads(other.getNumIterationThreads());
 		setGridResolution(other.getGridResolution());
 		setPrecomp(other.getPrecomp());
 		setProb0(other.getProb0());
@@ -354,6 +359,15 @@ public class ProbModelChecker extends NonProbModelChecker
 		this.maxIters = maxIters;
 	}
 
+	/**
+	 * Set number of threads for the iterations of the power/Jacobi method (1: sequential).
+	 * The results are the same as for the sequential method.
+	 */
+	public void setNumIterationThreads(int numIterationThreads)
+	{
+		this.numIterationThreads = numIterationThreads;
+	}
+
 	/**
 	 * Set resolution for POMDP fixed grid approximation algorithm.
 	 */
@@ -460,6 +474,11 @@ public class ProbModelChecker extends NonProbModelChecker
 		return maxIters;
 	}
 
+	public int getNumIterationThreads()
+	{
+		return numIterationThreads;
+	}
+
 	public int getGridResolution()
 	{
 		return gridResolution;
@@ -503,6 +522,19 @@ public class ProbModelChecker extends NonProbModelChecker
 		return errorOnNonConverge;
 	}
 
+	/**
+	 * Create the iteration method for the power method (or for the Jacobi method, if {@code jacobi} is true),
+	 * which updates the states in parallel if there is more than one iteration thread.
+	 */
+	protected IterationMethod createTwoVectorIterationMethod(boolean jacobi)
+	{
+		boolean absolute = termCrit == TermCrit.ABSOLUTE;
+		if (numIterationThreads > 1) {
+			return new IterationMethodParallel(absolute, termCritParam, jacobi, numIterationThreads);
+		}
+		return jacobi ? new IterationMethodJacobi(absolute, termCritParam) : new IterationMethodPower(absolute, termCritParam);
+	}
+
 	// Model checking functions
 
 	@Override
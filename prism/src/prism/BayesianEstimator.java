@@ -16,6 +16,7 @@ import explicit.Distribution;
 import explicit.IMDP;
 import explicit.IMDPModelChecker;
 import explicit.IMDPSimple;
+import explicit.IMDPFromMDP;
 import explicit.MDP;
 import explicit.MDPFromMDPAndMDStrategy;
 import explicit.ModelModelGenerator;
@@ -39,9 +40,10 @@ import simulator.method.CIwidth;
 import simulator.method.SimulationMethod;
 import strat.MDStrategy;
 import strat.MDStrategyArray;
-import strat.MRStrategy;
+import strat.MRStrategyArray;
 import strat.Strategy;
 import explicit.MDPModelChecker;
+import explicit.SuccessorsIterator;
 
 
 public class BayesianEstimator extends Estimator {
@@ -67,6 +69,9 @@ public class BayesianEstimator extends Estimator {
 	public int lowerStrengthBound = Integer.MAX_VALUE;
 	public int upperStrengthBound = Integer.MAX_VALUE;
 
+	/** Whether intervalsMap was changed other than for the observed state-action pairs since the estimate was updated */
+	private boolean intervalsMapChanged = false;
+
 
 	public BayesianEstimator(Prism prism, Experiment ex) {
 		super(prism, ex);
@@ -82,6 +87,14 @@ public class BayesianEstimator extends Estimator {
 		this.name = "LUI";
     }
 
+	@Override
+	public BayesianEstimator copy() {
+		BayesianEstimator copy = (BayesianEstimator) super.copy();
+		copy.trueProbabilitiesMap = new HashMap<>(this.trueProbabilitiesMap);
+		copy.strengthMap = new HashMap<>(this.strengthMap);
+		return copy;
+	}
+
 
 	public Result iterateDTMC(boolean verbose) throws PrismException {
 		//updateIntervals();
@@ -110,10 +123,13 @@ public class BayesianEstimator extends Estimator {
 		updateIntervalsSAConflict();
 		//HashMap<TransitionTriple, Interval<Double>> oldIntervals = checkValidity(validityScalingFactor, validityPrecision);
 		updateIMDP();
-		double resultRobustIMDP = round((Double) modelCheckIMDP(true).getResult());
-		double resultOptimisticIMDP = round((Double) modelCheckIMDP(false).getResult());
-		MDStrategy robustStrat = computeStrategyFromEstimate(estimate, true);
-		MDStrategy optimisticStrat = computeStrategyFromEstimate(estimate, false);
+		// Each solution carries both the value and the strategy, so the IMDP is solved only once per problem
+		Result robustIMDP = modelCheckIMDP(true);
+		Result optimisticIMDP = modelCheckIMDP(false);
+		double resultRobustIMDP = round((Double) robustIMDP.getResult());
+		double resultOptimisticIMDP = round((Double) optimisticIMDP.getResult());
+		MDStrategy robustStrat = (MDStrategy) robustIMDP.getStrategy();
+		MDStrategy optimisticStrat = (MDStrategy) optimisticIMDP.getStrategy();
 		double resultRobustDTMC = round((Double) checkDTMC(robustStrat).getResult());
 		double resultOptimisticDTMC = round((Double) checkDTMC(optimisticStrat).getResult());
 		double dist = round(this.averageDistanceToSUL());
@@ -125,10 +141,13 @@ public class BayesianEstimator extends Estimator {
 
 
 	public double[] getInitialResults() throws PrismException {
-		double resultRobustIMDP = round((Double) modelCheckIMDP(true).getResult());
-		double resultOptimisticIMDP = round((Double) modelCheckIMDP(false).getResult());
-		MDStrategy robustStrat = computeStrategyFromEstimate(estimate, true);
-		MDStrategy optimisticStrat = computeStrategyFromEstimate(estimate, false);
+		// Each solution carries both the value and the strategy, so the IMDP is solved only once per problem
+		Result robustIMDP = modelCheckIMDP(true);
+		Result optimisticIMDP = modelCheckIMDP(false);
+		double resultRobustIMDP = round((Double) robustIMDP.getResult());
+		double resultOptimisticIMDP = round((Double) optimisticIMDP.getResult());
+		MDStrategy robustStrat = (MDStrategy) robustIMDP.getStrategy();
+		MDStrategy optimisticStrat = (MDStrategy) optimisticIMDP.getStrategy();
 		double resultRobustDTMC = round((Double) checkDTMC(robustStrat).getResult());
 		double resultOptimisticDTMC = round((Double) checkDTMC(optimisticStrat).getResult());
 		double dist = round(this.averageDistanceToSUL());
@@ -145,11 +164,16 @@ public class BayesianEstimator extends Estimator {
 
 	
 	public void debugIntervalCheck() {
-		for (StateActionPair sa : this.sampleSizeMap.keySet()) {
+		for (int k = 0; k < this.observationCounts.getNumTouchedChoices(); k++) {
+			int c = this.observationCounts.getTouchedChoice(k);
+			int state = this.observationCounts.getChoiceState(c);
+			StateActionPair sa = new StateActionPair(state, getActionString(this.mdp, state, this.observationCounts.getChoiceOffset(c)));
 			ArrayList<TransitionTriple> transitions = new ArrayList<>();
 			double sum_lb = 0.0;
 			double sum_ub = 0.0;
-			for (int successor = 0; successor < this.mdp.getNumStates(); successor++) {
+			SuccessorsIterator successors = this.mdp.getSuccessors(state, this.observationCounts.getChoiceOffset(c));
+			while (successors.hasNext()) {
+				int successor = successors.nextInt();
 				TransitionTriple t = new TransitionTriple(sa.getState(), sa.getAction(), successor);
 
 				if (this.intervalsMap.containsKey(t)) {
@@ -176,12 +200,17 @@ public class BayesianEstimator extends Estimator {
 	}
 
 	public void debugPrintIntervalSums() {
-		for (StateActionPair sa : this.sampleSizeMap.keySet()) {
+		for (int k = 0; k < this.observationCounts.getNumTouchedChoices(); k++) {
+			int c = this.observationCounts.getTouchedChoice(k);
+			int state = this.observationCounts.getChoiceState(c);
+			StateActionPair sa = new StateActionPair(state, getActionString(this.mdp, state, this.observationCounts.getChoiceOffset(c)));
 			String out = "\nIntervals for state-action pair "  + sa.toString() + "\n";
 			double lowerboundSum = 0.0;
 			double upperboundSum = 0.0;
 			ArrayList<TransitionTriple> transitions = new ArrayList<>();
-			for (int successor = 0; successor < this.mdp.getNumStates(); successor++) {
+			SuccessorsIterator successors = this.mdp.getSuccessors(state, this.observationCounts.getChoiceOffset(c));
+			while (successors.hasNext()) {
+				int successor = successors.nextInt();
 				TransitionTriple t = new TransitionTriple(sa.getState(), sa.getAction(), successor);
 				if (this.intervalsMap.containsKey(t)) {
 					Interval i = this.intervalsMap.get(t);
@@ -208,7 +237,9 @@ public class BayesianEstimator extends Estimator {
 			for (int i=0; i < numChoices; i++) {
 				StateActionPair sa = new StateActionPair(s, getActionString(this.mdp,s,i));
 				System.out.println("Intervals for state-action pair "  + sa.toString());
-				for (int successor = 0; successor < this.mdp.getNumStates(); successor++) {
+				SuccessorsIterator successors = this.mdp.getSuccessors(s, i);
+				while (successors.hasNext()) {
+					int successor = successors.nextInt();
 					TransitionTriple t = new TransitionTriple(sa.getState(), sa.getAction(), successor);
 					if (this.intervalsMap.containsKey(t)) {
 						System.out.println(t.toString() + "  :  " + this.intervalsMap.get(t).toString());
@@ -228,17 +259,20 @@ public class BayesianEstimator extends Estimator {
 		double lowerbound = epsilon;
 		Interval newI = new Interval(lowerbound, upperbound);
 		this.intervalsMap.put(t, newI);
+		this.intervalsMapChanged = true;
 	}
 
 	public void resetIntervals(HashMap<TransitionTriple, Interval<Double>> oldIntervals) {
 		for (TransitionTriple t : oldIntervals.keySet()) {
 			this.intervalsMap.put(t, oldIntervals.get(t));
 		}
+		this.intervalsMapChanged = true;
 	}
 
 	public HashMap<TransitionTriple, Interval<Double>> checkValidity(double factor, double precision) {
 		HashMap<TransitionTriple, Interval<Double>> oldIntervals = new HashMap<>();
 		String DEBUG_OUT = "";
+		this.intervalsMapChanged = true;
 
 
 		int numStates = this.mdp.getNumStates();
@@ -252,7 +286,9 @@ public class BayesianEstimator extends Estimator {
 				double lowerboundSum = 0.0;
 				double upperboundSum = 0.0;
 				ArrayList<TransitionTriple> transitions = new ArrayList<>();
-				for (int successor = 0; successor < this.mdp.getNumStates(); successor++) {
+				SuccessorsIterator successors = this.mdp.getSuccessors(s, i);
+				while (successors.hasNext()) {
+					int successor = successors.nextInt();
 					TransitionTriple t = new TransitionTriple(sa.getState(), sa.getAction(), successor);
 					if (this.intervalsMap.containsKey(t)) {
 						if (this.trueProbabilitiesMap.get(t) == 1.0) {
@@ -303,6 +339,7 @@ public class BayesianEstimator extends Estimator {
 
 	public void setIntervalsMap(HashMap<TransitionTriple, Interval<Double>> map) {
 		this.intervalsMap = map;
+		this.intervalsMapChanged = true;
 	}
 
 	public void setStrengthMap(HashMap<TransitionTriple, Interval<Integer>> map) {
@@ -316,17 +353,8 @@ public class BayesianEstimator extends Estimator {
 
 
 	public Result modelCheckIMDP(boolean robust, boolean verbose) throws PrismException {
-		IMDPModelChecker mc = new IMDPModelChecker(this.prism);
-		mc.setErrorOnNonConverge(false);
-		mc.setGenStrat(true);
-		PropertiesFile pf = prism.parsePropertiesString(ex.robustSpec);
-		if (robust)
-			pf = prism.parsePropertiesString(ex.robustSpec);
-		else 
-			pf = prism.parsePropertiesString(ex.optimisticSpec);
-		ModulesFileModelGenerator<?> modelGen = ModulesFileModelGenerator.create(modulesFileIMDP, this.prism);
-		mc.setModelCheckingInfo(modelGen, pf, modelGen);
-		Result result = mc.check(this.estimate, pf.getProperty(0));
+		IMDPModelChecker mc = specs.getIMDPModelChecker(robust);
+		Result result = checkIMDP(mc, this.estimate, specs.getIMDPExpression(robust), specs.getIMDPSpec(robust));
 		if (verbose) {
 			System.out.println("\nModel checking IMDP:");
 			System.out.println(ex.robustSpec + " : " + result.getResultAndAccuracy());
@@ -373,18 +401,12 @@ public class BayesianEstimator extends Estimator {
 
 
 	public Result checkDTMC(MDStrategy strat) throws PrismException {
-		MDPExplicit<Double> mdp = (MDPExplicit<Double>) this.prism.getBuiltModelExplicit();
-		DTMC<Double> dtmc = (DTMC<Double>) mdp.constructInducedModel(strat);
-		DTMCModelChecker mc = new DTMCModelChecker(this.prism);
-		mc.setErrorOnNonConverge(false);
-		mc.setGenStrat(true);
-		PropertiesFile pf = prism.parsePropertiesString(ex.dtmcSpec);
-		ModulesFile modulesFileDTMC = (ModulesFile) modulesFileIMDP.deepCopy();
-		modulesFileDTMC.setModelType(ModelType.DTMC);
-		ModulesFileModelGenerator<?> modelGen = ModulesFileModelGenerator.create(modulesFileDTMC, this.prism);
-		RewardGeneratorMDStrat<?> rewGen = new RewardGeneratorMDStrat(modelGen, mdp, strat);
-		mc.setModelCheckingInfo(modelGen, pf, rewGen);
-		Result result = mc.check(dtmc, pf.getProperty(0));
+		long start = System.nanoTime();
+		MDPExplicit<Double> mdp = (MDPExplicit<Double>) this.mdp;
+		DTMC<Double> dtmc = specs.getInducedDTMC(mdp, strat);
+		DTMCModelChecker mc = specs.getDTMCModelChecker(mdp, strat);
+		Result result = mc.check(dtmc, specs.getDTMCExpression());
+		addDTMCCheckTime(start);
 		return result;
 	}
 
@@ -405,38 +427,28 @@ public class BayesianEstimator extends Estimator {
 	 */
 	public void buildWideIMDP(double epsilon) {
 		int numStates = this.mdp.getNumStates();
-		IMDPSimple<Double> imdp = new IMDPSimple<>(numStates);
-		imdp.addInitialState(this.mdp.getFirstInitialState());
-		imdp.setStatesList(this.mdp.getStatesList());
-		imdp.setEvaluator(Evaluator.createForDoubleIntervals());
+		IMDPFromMDP imdp = new IMDPFromMDP(this.mdp);
 
 		for (int s = 0; s < numStates; s++) {
 			int numChoices = this.mdp.getNumChoices(s);
 			final int state = s;
 			for (int i = 0 ; i < numChoices; i++) {
+				final int choice = i;
 				final String action = getActionString(this.mdp, s, i);
-				Distribution<Interval<Double>> distrNew = new Distribution<>(Evaluator.createForDoubleIntervals());
 				this.mdp.forEachDoubleTransition(s, i, (int sFrom, int sTo, double p)->{
 					this.trueProbabilitiesMap.put(new TransitionTriple(state, action, sTo), p);
 					if (0 < p && p < 1.0) {
-						distrNew.add(sTo, new Interval<Double>(epsilon, 1 - epsilon));
+						imdp.setInterval(state, choice, sTo, epsilon, 1 - epsilon);
 						this.intervalsMap.put(new TransitionTriple(state, action, sTo), new Interval<Double>(epsilon, 1 - epsilon));
 					}
 					else {
-						distrNew.add(sTo, new Interval<Double>(p, p));
+						imdp.setInterval(state, choice, sTo, p, p);
 						//System.out.println("Prob 1 transition found");
 						this.intervalsMap.put(new TransitionTriple(state, action, sTo), new Interval<Double>(p, p));
 					}
 				});
-				imdp.addActionLabelledChoice(s, distrNew, getActionString(this.mdp, s, i));
 			}
 		}
-		Map<String,BitSet> labels = this.mdp.getLabelToStatesMap();
-		Iterator<Entry<String, BitSet>> it = labels.entrySet().iterator();
-		while (it.hasNext()) {
-   			Map.Entry<String, BitSet> entry = it.next();
-    		imdp.addLabel(entry.getKey(), entry.getValue());
-		}
 		this.estimate = imdp;
 	}
 
@@ -446,17 +458,14 @@ public class BayesianEstimator extends Estimator {
 	 */
 	public void buildUniformIMDP(double epsilon) {
 		int numStates = this.mdp.getNumStates();
-		IMDPSimple<Double> imdp = new IMDPSimple<>(numStates);
-		imdp.addInitialState(this.mdp.getFirstInitialState());
-		imdp.setStatesList(this.mdp.getStatesList());
-		imdp.setEvaluator(Evaluator.createForDoubleIntervals());
+		IMDPFromMDP imdp = new IMDPFromMDP(this.mdp);
 
 		for (int s = 0; s < numStates; s++) {
 			int numChoices = this.mdp.getNumChoices(s);
 			final int state = s;
 			for (int i = 0 ; i < numChoices; i++) {
+				final int choice = i;
 				final String action = getActionString(this.mdp, s, i);
-				Distribution<Interval<Double>> distrNew = new Distribution<>(Evaluator.createForDoubleIntervals());
 				this.mdp.forEachDoubleTransition(s, i, (int sFrom, int sTo, double p)->{
 					TransitionTriple t = new TransitionTriple(state, action, sTo);
 					Interval<Double> interval;
@@ -465,25 +474,18 @@ public class BayesianEstimator extends Estimator {
 						double lower_bound = Math.max(1./numChoices - epsilon, 1e-8);
 						double upper_bound = Math.min(1./numChoices + epsilon, 1-1e-8);
 						interval = new Interval<>(lower_bound, upper_bound);
-						distrNew.add(sTo, interval);
+						imdp.setInterval(state, choice, sTo, interval);
 						this.intervalsMap.put(t, interval);
 					}
 					else {
 						interval = new Interval<>(p, p);
-						distrNew.add(sTo, interval);
+						imdp.setInterval(state, choice, sTo, interval);
 						//System.out.println("Prob 1 transition found");
 						this.intervalsMap.put(t, interval);
 					}
 				});
-				imdp.addActionLabelledChoice(s, distrNew, getActionString(this.mdp, s, i));
 			}
 		}
-		Map<String,BitSet> labels = this.mdp.getLabelToStatesMap();
-		Iterator<Entry<String, BitSet>> it = labels.entrySet().iterator();
-		while (it.hasNext()) {
-			Map.Entry<String, BitSet> entry = it.next();
-			imdp.addLabel(entry.getKey(), entry.getValue());
-		}
 		this.estimate = imdp;
 	}
 
@@ -495,36 +497,51 @@ public class BayesianEstimator extends Estimator {
 		}
 	}
 
+	/**
+	 * Update the estimate (in place) with the intervals in intervalsMap.
+	 * Only the state-action pairs observed in the current sequence are updated, unless the intervals
+	 * were changed by other means (or the SUL changed), in which case the whole estimate is updated.
+	 */
 	public IMDP<Double> updateIMDP() {
-		int numStates = mdp.getNumStates();
-		IMDPSimple<Double> imdp = new IMDPSimple<>(numStates);
-		imdp.addInitialState(mdp.getFirstInitialState());
-		imdp.setStatesList(mdp.getStatesList());
-		imdp.setEvaluator(Evaluator.createForDoubleIntervals());
-		for (int s = 0; s < numStates; s++) {
-			int numChoices = mdp.getNumChoices(s);
-			final int state = s;
-			for (int i = 0 ; i < numChoices; i++) {
-				final String action = getActionString(mdp, s, i);
-				Distribution<Interval<Double>> distrNew = new Distribution<>(Evaluator.createForDoubleIntervals());
-				mdp.forEachDoubleTransition(s, i, (int sFrom, int sTo, double p)->{
-					final TransitionTriple t = new TransitionTriple(state, action, sTo);
-					final Interval<Double> interval = intervalsMap.get(t);
-					distrNew.add(sTo, interval);
-				});
-				imdp.addActionLabelledChoice(s, distrNew, action);
-			}
+		long start = System.nanoTime();
+		boolean all = intervalsMapChanged || !isEstimateOver(mdp);
+		if (!isEstimateOver(mdp)) {
+			this.estimate = new IMDPFromMDP(mdp);
 		}
-		Map<String,BitSet> labels = mdp.getLabelToStatesMap();
-		Iterator<Entry<String, BitSet>> it = labels.entrySet().iterator();
-		while (it.hasNext()) {
-   			Map.Entry<String, BitSet> entry = it.next();
-    		imdp.addLabel(entry.getKey(), entry.getValue());
+		IMDPFromMDP imdp = (IMDPFromMDP) this.estimate;
+		if (all) {
+			int numStates = mdp.getNumStates();
+			for (int s = 0; s < numStates; s++) {
+				int numChoices = mdp.getNumChoices(s);
+				for (int i = 0 ; i < numChoices; i++) {
+					copyIntervalsToEstimate(imdp, this.observationCounts.getChoice(s, i));
+				}
+			}
+			intervalsMapChanged = false;
+		} else {
+			for (int k = 0; k < this.observationCounts.getNumTouchedChoices(); k++) {
+				copyIntervalsToEstimate(imdp, this.observationCounts.getTouchedChoice(k));
+			}
 		}
-
-		this.estimate = imdp;
+		addUpdateTime(start);
 		return imdp;
     }
+
+	/**
+	 * Copy the intervals of the transitions of (global) choice {@code c} (see {@link ObservationCounts})
+	 * from intervalsMap into {@code imdp}.
+	 */
+	private void copyIntervalsToEstimate(IMDPFromMDP imdp, int c) {
+		ObservationCounts counts = this.observationCounts;
+		int s = counts.getChoiceState(c);
+		int i = counts.getChoiceOffset(c);
+		for (int j = counts.getTransitionsStart(c); j < counts.getTransitionsEnd(c); j++) {
+			final Interval<Double> interval = intervalsMap.get(counts.getTransitionTriple(j));
+			if (interval != null) {
+				imdp.setInterval(s, i, counts.getSuccessor(j), interval);
+			}
+		}
+	}
     
 
 	@Override
@@ -633,102 +650,105 @@ public class BayesianEstimator extends Estimator {
 	}
 
 
+	/**
+	 * Update the intervals (and strengths) of the transitions observed in the current sequence.
+	 * Only the choices observed in the current sequence are visited, by their transition indices (see {@link ObservationCounts}).
+	 */
     public void updateIntervals() {
-		int nrStates = this.mdp.getNumStates();
-		for (int s = 0; s < nrStates; s++) {
-			int numChoices = this.mdp.getNumChoices(s);
-			for (int i = 0 ; i < numChoices; i++) {
-				String action = getActionString(this.mdp, s,i);
-				StateActionPair sa = new StateActionPair(s, action);
-				for (int successor = 0; successor < nrStates; successor++) {
-					TransitionTriple t = new TransitionTriple(s, action, successor);
-					if (this.samplesMap.containsKey(t)) {
-						Interval prior = this.intervalsMap.get(t);
-						Interval strength = this.strengthMap.get(t);
-						int sampleSize = this.sampleSizeMap.get(sa);
-						int samples = 0;
-						if (this.samplesMap.containsKey(t)) {
-							samples = this.samplesMap.get(t);
-						}
+		ObservationCounts counts = this.observationCounts;
+		for (int k = 0; k < counts.getNumTouchedChoices(); k++) {
+			int c = counts.getTouchedChoice(k);
+			int sampleSize = counts.getSampleSize(c);
+			for (int j = counts.getTransitionsStart(c); j < counts.getTransitionsEnd(c); j++) {
+				int samples = counts.getCount(j);
+				if (samples > 0) {
+					TransitionTriple t = counts.getTransitionTriple(j);
+					Interval prior = this.intervalsMap.get(t);
+					Interval strength = this.strengthMap.get(t);
 
-						Interval posterior = updateInterval(prior, strength, samples, sampleSize);
-						Interval postStrength = updateStrength(strength, sampleSize);
-						this.intervalsMap.put(t, posterior);
-						this.strengthMap.put(t, postStrength);
-					}
+					Interval posterior = updateInterval(prior, strength, samples, sampleSize);
+					Interval postStrength = updateStrength(strength, sampleSize);
+					this.intervalsMap.put(t, posterior);
+					this.strengthMap.put(t, postStrength);
 				}
 			}
 		}
 	}
 
 
+	/**
+	 * Update the intervals (and strengths) of the transitions of the choices observed in the current sequence,
+	 * taking prior-data conflicts into account. Only the choices observed in the current sequence are visited,
+	 * by their transition indices (see {@link ObservationCounts}).
+	 */
 	public void updateIntervalsSAConflict() {
-		int nrStates = this.mdp.getNumStates();
-		for (int s = 0; s < nrStates; s++) {
-			int numChoices = this.mdp.getNumChoices(s);
-			for (int i = 0 ; i < numChoices; i++) {
-				String action = getActionString(this.mdp, s,i);
-				StateActionPair sa = new StateActionPair(s, action);
+		long start = System.nanoTime();
+		ObservationCounts counts = this.observationCounts;
+		for (int k = 0; k < counts.getNumTouchedChoices(); k++) {
+			int c = counts.getTouchedChoice(k);
+			int sampleSize = counts.getSampleSize(c);
 
-				// do not update posterior of deterministic state-action pairs
-				if (!sampleSizeMap.containsKey(sa)) {
-					continue;
-				}
-
-				double sum_lb = 0.0;
-				double sum_ub = 0.0;
+			double sum_lb = 0.0;
+			double sum_ub = 0.0;
 
-				boolean lbConflict = checkStateActionLBConflict(sa);
-				boolean ubConflict = checkStateActionUBConflict(sa);
+			boolean lbConflict = checkStateActionLBConflict(c);
+			boolean ubConflict = checkStateActionUBConflict(c);
 
-				int sampleSize = this.sampleSizeMap.get(sa);
-				for (int successor = 0; successor < nrStates; successor++) {
-					TransitionTriple t = new TransitionTriple(s, action, successor);
+			for (int j = counts.getTransitionsStart(c); j < counts.getTransitionsEnd(c); j++) {
+				TransitionTriple t = counts.getTransitionTriple(j);
+				Interval prior = this.intervalsMap.get(t);
 
-					// skip states that are not successor
-					if (!this.intervalsMap.containsKey(t))
-						continue;
+				// skip states that are not successor
+				if (prior == null)
+					continue;
 
-					int samples = 0;
-					if (this.samplesMap.containsKey(t)) {
-						samples = this.samplesMap.get(t);
-					}
-					Interval prior = this.intervalsMap.get(t);
-					Interval strength = this.strengthMap.get(t);
+				int samples = counts.getCount(j);
+				Interval strength = this.strengthMap.get(t);
 
-					Interval posterior = updateIntervalSAConflict(prior, strength, samples, sampleSize, lbConflict, ubConflict);
+				Interval posterior = updateIntervalSAConflict(prior, strength, samples, sampleSize, lbConflict, ubConflict);
 
-					Interval postStrength = updateStrength(strength, sampleSize);
-					this.intervalsMap.put(t, posterior);
-					this.strengthMap.put(t, postStrength);
+				Interval postStrength = updateStrength(strength, sampleSize);
+				this.intervalsMap.put(t, posterior);
+				this.strengthMap.put(t, postStrength);
 
-					sum_ub += (Double) posterior.getUpper();
-					sum_lb += (Double) posterior.getLower();
-				}
-				if (this.sampleSizeMap.containsKey(sa)) {
-					if (sum_ub < 1.0)
-						System.out.printf("sum upper bound < 1.0 at %s: %f %n", sa, sum_ub);
-					if (sum_lb > 1.0)
-						System.out.printf("sum lower bound > 1.0 at %s: %f %n", sa, sum_lb);
-				}
+				sum_ub += (Double) posterior.getUpper();
+				sum_lb += (Double) posterior.getLower();
+			}
+			if (sum_ub < 1.0 || sum_lb > 1.0) {
+				int s = counts.getChoiceState(c);
+				StateActionPair sa = new StateActionPair(s, getActionString(this.mdp, s, counts.getChoiceOffset(c)));
+				if (sum_ub < 1.0)
+					System.out.printf("sum upper bound < 1.0 at %s: %f %n", sa, sum_ub);
+				if (sum_lb > 1.0)
+					System.out.printf("sum lower bound > 1.0 at %s: %f %n", sa, sum_lb);
 			}
 		}
+		addUpdateTime(start);
 	}
 
 
 	public boolean checkStateActionLBConflict(StateActionPair sa) {
-		int nrStates = this.mdp.getNumStates();
-		for (int successor = 0; successor < nrStates; successor++) {
-			TransitionTriple t = new TransitionTriple(sa.getState(), sa.getAction(), successor);
-			if (this.samplesMap.containsKey(t)) {
-				Interval prior = this.intervalsMap.get(t);
-				int sampleSize = this.sampleSizeMap.get(sa);
-				int samples = 0;
-				if (this.samplesMap.containsKey(t))
-					samples = this.samplesMap.get(t);
+		int c = this.observationCounts.findChoice(sa.getState(), sa.getAction());
+		return c >= 0 && checkStateActionLBConflict(c);
+	}
+
+	public boolean checkStateActionLBConflict(int s, int i) {
+		return checkStateActionLBConflict(this.observationCounts.getChoice(s, i));
+	}
+
+	/**
+	 * Check whether the point estimate of some transition of (global) choice {@code c} observed in the current
+	 * sequence is below the lower bound of its prior interval.
+	 */
+	private boolean checkStateActionLBConflict(int c) {
+		ObservationCounts counts = this.observationCounts;
+		for (int j = counts.getTransitionsStart(c); j < counts.getTransitionsEnd(c); j++) {
+			int samples = counts.getCount(j);
+			if (samples > 0) {
+				Interval prior = this.intervalsMap.get(counts.getTransitionTriple(j));
+				int sampleSize = counts.getSampleSize(c);
 				double pointEstimate = samples / sampleSize;
 				double priorLower = (Double) prior.getLower();
-				double priorUpper = (Double) prior.getUpper();
 				if (pointEstimate < priorLower)
 					return true;
 			}
@@ -738,17 +758,26 @@ public class BayesianEstimator extends Estimator {
 
 
 	public boolean checkStateActionUBConflict(StateActionPair sa) {
-		int nrStates = this.mdp.getNumStates();
-		for (int successor = 0; successor < nrStates; successor++) {
-			TransitionTriple t = new TransitionTriple(sa.getState(), sa.getAction(), successor);
-			if (this.samplesMap.containsKey(t)) {
-				Interval prior = this.intervalsMap.get(t);
-				int sampleSize = this.sampleSizeMap.get(sa);
-				int samples = 0;
-				if (this.samplesMap.containsKey(t))
-					samples = this.samplesMap.get(t);
+		int c = this.observationCounts.findChoice(sa.getState(), sa.getAction());
+		return c >= 0 && checkStateActionUBConflict(c);
+	}
+
+	public boolean checkStateActionUBConflict(int s, int i) {
+		return checkStateActionUBConflict(this.observationCounts.getChoice(s, i));
+	}
+
+	/**
+	 * Check whether the point estimate of some transition of (global) choice {@code c} observed in the current
+	 * sequence is above the upper bound of its prior interval.
+	 */
+	private boolean checkStateActionUBConflict(int c) {
+		ObservationCounts counts = this.observationCounts;
+		for (int j = counts.getTransitionsStart(c); j < counts.getTransitionsEnd(c); j++) {
+			int samples = counts.getCount(j);
+			if (samples > 0) {
+				Interval prior = this.intervalsMap.get(counts.getTransitionTriple(j));
+				int sampleSize = counts.getSampleSize(c);
 				double pointEstimate = samples / sampleSize;
-				double priorLower = (Double) prior.getLower();
 				double priorUpper = (Double) prior.getUpper();
 				if (pointEstimate > priorUpper)
 					return true;
@@ -766,7 +795,9 @@ public class BayesianEstimator extends Estimator {
 			int numChoices = this.mdp.getNumChoices(s);
 			for (int i = 0; i < numChoices; i++) {
 				String action = getActionString(this.mdp, s,i);
-				for (int successor = 0; successor < numStates; successor++) {
+				SuccessorsIterator successors = this.mdp.getSuccessors(s, i);
+				while (successors.hasNext()) {
+					int successor = successors.nextInt();
 					TransitionTriple t = new TransitionTriple(s, action, successor);
 					if (this.trueProbabilitiesMap.containsKey(t)) {
 						total += 1;
@@ -802,7 +833,7 @@ public class BayesianEstimator extends Estimator {
 
 
 	public Strategy buildRankedStrat() throws PrismException {
-		MRStrategy strat = new MRStrategy(this.mdp);
+		MRStrategyArray strat = new MRStrategyArray(this.mdp);
 		int numStates = this.mdp.getNumStates();
 		for (int s = 0; s < numStates; s++) {
 			int numChoices = this.mdp.getNumChoices(s);
@@ -812,7 +843,9 @@ public class BayesianEstimator extends Estimator {
 				String action = getActionString(this.mdp, s,i);
 				int count = 0;
 				double sum = 0;
-				for (int successor = 0; successor < numStates; successor++) {
+				SuccessorsIterator successors = this.mdp.getSuccessors(s, i);
+				while (successors.hasNext()) {
+					int successor = successors.nextInt();
 					Interval<Double> interval = intervalsMap.get(new TransitionTriple(s, action, successor));
 					if (interval != null) {
 						count += 1;
@@ -824,12 +857,9 @@ public class BayesianEstimator extends Estimator {
 				totalrank += rank[i];
 			}
 			for (int i = 0; i < numChoices; i++) {
-				if (totalrank > 0) {
-					strat.setActionProbability(s, getActionString(this.mdp, s, i), rank[i]/totalrank);
-				} else {
-					strat.setActionProbability(s, getActionString(this.mdp, s, i), 1./numChoices);
-				}
+				rank[i] = totalrank > 0 ? rank[i]/totalrank : 1./numChoices;
 			}
+			strat.setChoiceProbabilities(s, rank);
 		}
 		return strat;
 	}
@@ -847,7 +877,9 @@ public class BayesianEstimator extends Estimator {
 				String action = getActionString(this.mdp, s,i);
 				int count = 0;
 				double sum = 0;
-				for (int successor = 0; successor < numStates; successor++) {
+				SuccessorsIterator successors = this.mdp.getSuccessors(s, i);
+				while (successors.hasNext()) {
+					int successor = successors.nextInt();
 					Interval<Double> interval = intervalsMap.get(new TransitionTriple(s, action, successor));
 					if (interval != null) {
 						count += 1;
@@ -865,10 +897,7 @@ public class BayesianEstimator extends Estimator {
 		IMDPModelChecker mc = new IMDPModelChecker(this.prism);
 		mc.setGenStrat(true);
 		mc.setErrorOnNonConverge(false);
-		Expression exprTarget = this.prism.parsePropertiesString(ex.goal).getProperty(0);
-		if (this.DEBUG) {System.out.println("got exprTarget");}
-
-		BitSet target = mc.checkExpression(estimate, exprTarget, null).getBitSet();
+		BitSet target = specs.getGoalStates(estimate);
 		if (this.DEBUG) {System.out.println("Build rewards");}
 
 		if (this.DEBUG) {System.out.println("Getting reward strat");}
@@ -0,0 +1,253 @@
+package prism;
+
+import java.util.BitSet;
+
+import explicit.DTMC;
+import explicit.DTMCFromMDPAndMDStrategy;
+import explicit.DTMCModelChecker;
+import explicit.IMDP;
+import explicit.IMDPModelChecker;
+import explicit.MDPExplicit;
+import explicit.ProbModelChecker.LinEqMethod;
+import parser.ast.Expression;
+import parser.ast.ModulesFile;
+import parser.ast.PropertiesFile;
+import simulator.ModulesFileModelGenerator;
+import strat.MDStrategy;
+
+/**
+ * The properties of an {@link Experiment}, parsed and set up for checking once, rather than for every check.
+ * <br>
+ * An estimator checks the same properties every epoch: the robust and optimistic property on its estimate (an IMDP),
+ * and the DTMC property on the SUL under a strategy. This keeps the parsed properties, the model generators
+ * (including the DTMC version of the model file) and configured model checkers, as well as the goal states,
+ * which do not change since all estimates have the state space of the SUL, and the rewards of the SUL
+ * (see {@link FlatRewards}), from which those of the DTMC induced by a strategy are taken.
+ * <br>
+ * For a synthetic model (see {@link SyntheticModel}), which has no model file, the model itself takes
+ * the place of the model generators.
+ * <br>
+ * Everything is built on first use, so only the properties an estimator actually checks are parsed.
+ * The model checkers are reused between checks, so this is not thread-safe (each estimator has its own).
+ */
+public class CompiledSpecs
+{
+	private final Prism prism;
+	private final Experiment ex;
+	private final ModulesFile modulesFileIMDP;
+	private final SyntheticModel syntheticModel;
+
+	private ModulesFileModelGenerator<?> modelGenIMDP;
+	private ModulesFileModelGenerator<?> modelGenDTMC;
+
+	private PropertiesFile robustProperties;
+	private PropertiesFile optimisticProperties;
+	private PropertiesFile dtmcProperties;
+
+	private IMDPModelChecker robustChecker;
+	private IMDPModelChecker optimisticChecker;
+	private DTMCModelChecker dtmcChecker;
+	private FlatRewards sulRewards;
+
+	private BitSet goalStates;
+
+	/**
+	 * Create the compiled properties of experiment {@code ex}, for model file {@code modulesFileIMDP}
+	 * (the model file of the experiment, as an IMDP), parsed with {@code prism}.
+	 */
+	public CompiledSpecs(Prism prism, Experiment ex, ModulesFile modulesFileIMDP)
+	{
+		this.prism = prism;
+		this.ex = ex;
+		this.modulesFileIMDP = modulesFileIMDP;
+		this.syntheticModel = null;
+	}
+
+	/**
+	 * Create the compiled properties of experiment {@code ex}, for synthetic model {@code syntheticModel}.
+	 */
+	public CompiledSpecs(Prism prism, Experiment ex, SyntheticModel syntheticModel)
+	{
+		this.prism = prism;
+		this.ex = ex;
+		this.modulesFileIMDP = null;
+		this.syntheticModel = syntheticModel;
+	}
+
+	/**
+	 * Get the property checked on the estimate: the robust one ({@code ex.robustSpec}) or the optimistic one ({@code ex.optimisticSpec}).
+	 */
+	public String getIMDPSpec(boolean robust)
+	{
+		return robust ? ex.robustSpec : ex.optimisticSpec;
+	}
+
+	/**
+	 * Get the robust or optimistic property, parsed.
+	 */
+	public Expression getIMDPExpression(boolean robust) throws PrismException
+	{
+		return getIMDPProperties(robust).getProperty(0);
+	}
+
+	/**
+	 * Get the model checker for the robust or optimistic property on the estimate.
+	 * It does not stop with an error if value iteration does not converge, and generates strategies.
+	 * If the experiment asks for it, it uses interval iteration, so that results have a guaranteed error bound,
+	 * or (modified) policy iteration, or value iteration on several threads.
+	 */
+	public IMDPModelChecker getIMDPModelChecker(boolean robust) throws PrismException
+	{
+		IMDPModelChecker mc = robust ? robustChecker : optimisticChecker;
+		if (mc == null) {
+			mc = new IMDPModelChecker(prism);
+			mc.setErrorOnNonConverge(false);
+			mc.setGenStrat(true);
+			if (ex.intervalIterationEpsilon > 0) {
+				mc.setDoIntervalIteration(true);
+				mc.setTermCritParam(ex.intervalIterationEpsilon);
+			}
+			if (ex.imdpSolnMethod != null) {
+				mc.setMDPSolnMethod(ex.imdpSolnMethod);
+			}
+			if (ex.iterationThreads > 1) {
+				mc.setLinEqMethod(LinEqMethod.POWER);
+				mc.setNumIterationThreads(ex.iterationThreads);
+			}
+			mc.setModelCheckingInfo(getModelInfo(false), getIMDPProperties(robust), getRewardGeneratorIMDP());
+			if (robust) {
+				robustChecker = mc;
+			} else {
+				optimisticChecker = mc;
+			}
+		}
+		return mc;
+	}
+
+	/**
+	 * Get the property checked on the SUL under a strategy ({@code ex.dtmcSpec}), parsed.
+	 */
+	public Expression getDTMCExpression() throws PrismException
+	{
+		return getDTMCProperties().getProperty(0);
+	}
+
+	/**
+	 * Get the model checker for the DTMC property on the DTMC induced by strategy {@code strat} on {@code mdp}
+	 * (the rewards of the DTMC are those of the choices of the strategy). The rewards of {@code mdp}
+	 * are evaluated on the first call, so it must be the same model (the SUL) for all calls.
+	 */
+	public DTMCModelChecker getDTMCModelChecker(MDPExplicit<Double> mdp, MDStrategy strat) throws PrismException
+	{
+		if (dtmcChecker == null) {
+			dtmcChecker = new DTMCModelChecker(prism);
+			dtmcChecker.setErrorOnNonConverge(false);
+			dtmcChecker.setGenStrat(true);
+			sulRewards = new FlatRewards(getRewardGeneratorDTMC(), mdp);
+		}
+		dtmcChecker.setModelCheckingInfo(getModelInfo(true), getDTMCProperties(), sulRewards.forStrategy(strat));
+		return dtmcChecker;
+	}
+
+	/**
+	 * Get the DTMC induced by strategy {@code strat} on {@code mdp}, with the labels of {@code mdp}
+	 * (which the DTMC property may refer to, if the model has no model file).
+	 */
+	public DTMC<Double> getInducedDTMC(MDPExplicit<Double> mdp, MDStrategy strat)
+	{
+		DTMCFromMDPAndMDStrategy<Double> dtmc = new DTMCFromMDPAndMDStrategy<>(mdp, strat);
+		for (String label : mdp.getLabels()) {
+			dtmc.addLabel(label, mdp.getLabelStates(label));
+		}
+		return dtmc;
+	}
+
+	/**
+	 * Get the goal states ({@code ex.goal}) of IMDP {@code imdp}, which has the state space of the SUL.
+	 */
+	public BitSet getGoalStates(IMDP<Double> imdp) throws PrismException
+	{
+		if (goalStates == null) {
+			Expression exprTarget = parse(ex.goal).getProperty(0);
+			goalStates = getIMDPModelChecker(true).checkExpression(imdp, exprTarget, null).getBitSet();
+		}
+		return goalStates;
+	}
+
+	private PropertiesFile getIMDPProperties(boolean robust) throws PrismException
+	{
+		if (robust) {
+			if (robustProperties == null) {
+				robustProperties = parse(ex.robustSpec);
+			}
+			return robustProperties;
+		} else {
+			if (optimisticProperties == null) {
+				optimisticProperties = parse(ex.optimisticSpec);
+			}
+			return optimisticProperties;
+		}
+	}
+
+	private PropertiesFile getDTMCProperties() throws PrismException
+	{
+		if (dtmcProperties == null) {
+			dtmcProperties = parse(ex.dtmcSpec);
+		}
+		return dtmcProperties;
+	}
+
+	/**
+	 * Parse {@code spec}, for the model file or the synthetic model.
+	 */
+	private PropertiesFile parse(String spec) throws PrismException
+	{
+		return syntheticModel != null ? prism.parsePropertiesString(syntheticModel, spec) : prism.parsePropertiesString(spec);
+	}
+
+	/**
+	 * Get the model info of the model as an IMDP, or as a DTMC if {@code dtmc}.
+	 */
+	private ModelInfo getModelInfo(boolean dtmc) throws PrismException
+	{
+		if (syntheticModel != null) {
+			return syntheticModel;
+		}
+		return dtmc ? getModelGenDTMC() : getModelGenIMDP();
+	}
+
+	/**
+	 * Get the reward generator of the model as an IMDP (with interval rewards).
+	 */
+	private RewardGenerator<?> getRewardGeneratorIMDP() throws PrismException
+	{
+		return syntheticModel != null ? syntheticModel.getIntervalRewards() : getModelGenIMDP();
+	}
+
+	/**
+	 * Get the reward generator of the model as a DTMC.
+	 */
+	@SuppressWarnings("unchecked")
+	private RewardGenerator<Double> getRewardGeneratorDTMC() throws PrismException
+	{
+		return syntheticModel != null ? syntheticModel : (RewardGenerator<Double>) getModelGenDTMC();
+	}
+
+	private ModulesFileModelGenerator<?> getModelGenIMDP() throws PrismException
+	{
+		if (modelGenIMDP == null) {
+			modelGenIMDP = ModulesFileModelGenerator.create(modulesFileIMDP, prism);
+		}
+		return modelGenIMDP;
+	}
+
+	private ModulesFileModelGenerator<?> getModelGenDTMC() throws PrismException
+	{
+		if (modelGenDTMC == null) {
+			ModulesFile modulesFileDTMC = (ModulesFile) modulesFileIMDP.deepCopy();
+			modulesFileDTMC.setModelType(ModelType.DTMC);
+			modelGenDTMC = ModulesFileModelGenerator.create(modulesFileDTMC, prism);
+		}
+		return modelGenDTMC;
+	}
+}
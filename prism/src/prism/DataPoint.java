@@ -11,6 +11,8 @@ public class DataPoint {
     private double lower_bound;
     private double optimistic_estimated_value;
     private double optimistic_value;
+    private int strategy_version;
+    private int sampling_strategy_version = -1;
 
     public DataPoint(int position, double value) {
         this.accumulated_samples = position;
@@ -29,6 +31,17 @@ public class DataPoint {
         this.optimistic_value = results[6];
     }
 
+    /**
+     * A data point of a run, whose results are those of the sampling strategy with version {@code strategy_version},
+     * computed from the episodes sampled up to {@code episode}, the last of which was sampled with
+     * version {@code sampling_strategy_version} (-1 if none was sampled yet).
+     */
+    public DataPoint(int accumulated_samples, int episode, double[] results, int strategy_version, int sampling_strategy_version) {
+        this(accumulated_samples, episode, results);
+        this.strategy_version = strategy_version;
+        this.sampling_strategy_version = sampling_strategy_version;
+    }
+
     public int getAccumulatedSamples() {
         return accumulated_samples;
     }
@@ -57,6 +70,10 @@ public class DataPoint {
 
     public double getOptimisticEstimatedValue() { return optimistic_estimated_value; }
 
+    public int getStrategyVersion() { return strategy_version; }
+
+    public int getSamplingStrategyVersion() { return sampling_strategy_version; }
+
 
     @Override
     public boolean equals(Object o) {
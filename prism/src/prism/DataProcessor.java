@@ -1,6 +1,7 @@
 package prism;
 
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.lang.Math;
 import java.io.FileWriter;
@@ -349,33 +350,15 @@ public class DataProcessor {
     public void dumpRawData(String directoryPath, String name, ArrayList<DataPoint> dataPoints, Experiment experiment){
         try {
             //System.out.println("DEBUG \t\t (max r,max e) = (" + repetitions + ", " + iterations + ")");
-            DataPoint previous = null;
-
             String path = directoryPath + name +".csv";
             if (Files.exists(Paths.get(path)))
                 System.out.println("File" + path + "already exists");
 
-            FileWriter writer = new FileWriter(path, false);
-
-            writer.write("Accumulated Samples,Performance,Estimated Performance,Average Distance,Lower Bound,Upper Bound,Episode,Estimated Optimistic Performance,Optimistic Performance");
-            writer.write(System.getProperty( "line.separator" ));
-
+            ResultSink sink = new ResultSink(directoryPath, name, EnumSet.of(ResultSink.Format.CSV));
             for (DataPoint entry : dataPoints) {
-                if (!entry.equals(previous)) {
-                    String row = entry.getAccumulatedSamples() + ","
-                            + entry.getValue() + ","
-                            + entry.getEstimatedValue() + ","
-                            + entry.getDistance() + ","
-                            + entry.getLowerBound() + ","
-                            + entry.getUpperBound() + ","
-                            + entry.getEpisode() + ","
-                            + entry.getOptimisticEstimatedValue() + ","
-                            + entry.getOptimisticValue();
-                    writer.write(row + System.getProperty("line.separator"));
-                    previous = entry;
-                }
+                sink.add(entry);
             }
-            writer.close();
+            sink.close();
         } catch (IOException e) {
             System.out.println(e);
         }
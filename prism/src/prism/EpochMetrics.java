@@ -0,0 +1,141 @@
+package prism;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * Metrics of an epoch of a learning run, i.e. of the episodes up to a recomputation of the sampling strategy
+ * (see {@link LearnVerify#runSamplingStrategyDoublingEpoch}), to see where the time of a run goes:
+ * the sampling steps and the time taken to simulate them, the time taken to update the estimate from the
+ * observations (intervals or priors, and the IMDP), the IMDP solutions (number, time and value iterations),
+ * the evaluations of strategies on the SUL (induced DTMCs), and the number of state-action pairs observed.
+ * <br>
+ * The time and heap allocation of the epoch as a whole are measured for the current thread, from {@link #start()}
+ * to {@link #finish} (so the epoch should run on one thread).
+ * The metrics are written as JSON lines by {@link ResultSink#addMetrics}.
+ */
+public class EpochMetrics implements Cloneable
+{
+	private static final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	private long samplingSteps = 0;
+	private long samplingTime = 0;
+	private long updateTime = 0;
+	private int solves = 0;
+	private long solveTime = 0;
+	private long solveIterations = 0;
+	private int dtmcChecks = 0;
+	private long dtmcTime = 0;
+
+	private long episode = 0;
+	private int samples = 0;
+	private int touchedChoices = 0;
+
+	/** Time (ns) and allocation of the epoch, up to the start of the current measurement */
+	private long time = 0;
+	private long allocatedBytes = 0;
+	/** Start of the current measurement of time and allocation (-1 if not measuring) */
+	private long timeStart = -1;
+	private long bytesStart = 0;
+
+	/**
+	 * Start (or resume) measuring the time and allocation of the epoch.
+	 */
+	public void start()
+	{
+		timeStart = System.nanoTime();
+		bytesStart = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private void stop()
+	{
+		if (timeStart >= 0) {
+			time += System.nanoTime() - timeStart;
+			allocatedBytes += threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - bytesStart;
+			timeStart = -1;
+		}
+	}
+
+	/**
+	 * Add the simulation of {@code steps} sampling steps, which took {@code nanos} ns.
+	 */
+	public void addSampling(long steps, long nanos)
+	{
+		samplingSteps += steps;
+		samplingTime += nanos;
+	}
+
+	/**
+	 * Add an update of the estimate from the observations, which took {@code nanos} ns.
+	 */
+	public void addUpdate(long nanos)
+	{
+		updateTime += nanos;
+	}
+
+	/**
+	 * Add the solution of an IMDP, which took {@code nanos} ns and {@code iterations} value iterations.
+	 */
+	public void addSolve(long nanos, int iterations)
+	{
+		solves++;
+		solveTime += nanos;
+		solveIterations += iterations;
+	}
+
+	/**
+	 * Add the evaluation of a strategy on the SUL (an induced DTMC), which took {@code nanos} ns.
+	 */
+	public void addDTMCCheck(long nanos)
+	{
+		dtmcChecks++;
+		dtmcTime += nanos;
+	}
+
+	/**
+	 * End the epoch, after {@code episode} episodes and {@code samples} samples (of the run),
+	 * with {@code touchedChoices} state-action pairs observed in the epoch.
+	 */
+	public void finish(long episode, int samples, int touchedChoices)
+	{
+		stop();
+		this.episode = episode;
+		this.samples = samples;
+		this.touchedChoices = touchedChoices;
+	}
+
+	/**
+	 * Copy the metrics of the epoch so far. The copy is not measuring; call {@link #start()} to resume the epoch in it.
+	 */
+	public EpochMetrics copy()
+	{
+		boolean measuring = timeStart >= 0;
+		stop();
+		EpochMetrics copy;
+		try {
+			copy = (EpochMetrics) super.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new AssertionError(e);
+		}
+		if (measuring) {
+			start();
+		}
+		return copy;
+	}
+
+	/**
+	 * Get the metrics as a JSON object (on one line), as the {@code epoch}th epoch of the run.
+	 */
+	public String toJson(int epoch)
+	{
+		return String.format(Locale.ROOT,
+				"{\"epoch\":%d,\"episode\":%d,\"samples\":%d,\"touchedChoices\":%d,"
+						+ "\"samplingSteps\":%d,\"samplingSeconds\":%.6f,\"samplingStepsPerSecond\":%.1f,"
+						+ "\"updateSeconds\":%.6f,\"solves\":%d,\"solveSeconds\":%.6f,\"solveIterations\":%d,"
+						+ "\"dtmcChecks\":%d,\"dtmcSeconds\":%.6f,\"epochSeconds\":%.6f,\"allocatedBytes\":%d}",
+				epoch, episode, samples, touchedChoices,
+				samplingSteps, samplingTime / 1e9, samplingTime > 0 ? samplingSteps * 1e9 / samplingTime : 0.0,
+				updateTime / 1e9, solves, solveTime / 1e9, solveIterations,
+				dtmcChecks, dtmcTime / 1e9, time / 1e9, allocatedBytes);
+	}
+}
@@ -2,14 +2,16 @@ package prism;
 
 import common.Interval;
 import explicit.MDP;
+import explicit.SuccessorsIterator;
 import parser.ast.ModulesFile;
-import strat.MRStrategy;
+import strat.MRStrategyArray;
+import strat.MRStrategyWeighted;
 import strat.Strategy;
 import explicit.IMDP;
 import explicit.IMDPSimple;
+import explicit.IMDPFromMDP;
 import strat.MDStrategy;
 import strat.MDStrategyArray;
-import strat.MRStrategy;
 import strat.Strategy;
 import explicit.IMDPModelChecker;
 import parser.ast.ModulesFile;
@@ -27,7 +29,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 
-public class Estimator {
+public class Estimator implements Cloneable {
     protected String name = "Base";
     protected Prism prism;
 
@@ -40,13 +42,13 @@ public class Estimator {
    // protected String target;
    // protected String type;
 
-    protected HashMap<TransitionTriple, Integer> samplesMap;
-    protected HashMap<StateActionPair, Integer> sampleSizeMap;
+    protected ObservationCounts observationCounts;
     protected HashMap<TransitionTriple, Interval<Double>> intervalsMap;
 
     protected ModulesFile modulesFile;
     protected ModulesFile modulesFileIMDP;
     protected ModulesFile modulesFileMDP;
+    protected SyntheticModel syntheticModel; // the model, if it is generated rather than read from a file (see Experiment#isSynthetic)
 
     protected MDP<Double> mdp;
     protected String SULoptimum;
@@ -56,18 +58,28 @@ public class Estimator {
 
     protected IMDP<Double> estimate;
 
+    /** The properties of the experiment, parsed and set up for checking */
+    protected CompiledSpecs specs;
+
+    /** Metrics of the current epoch of the run, to which the estimator adds its updates and checks (null if not collected) */
+    protected EpochMetrics metrics;
+
+    /** Version of the current sampling strategy of the run, i.e. the number of times it was recomputed (see {@link LearnVerify}) */
+    private int strategyVersion = 0;
+
+    /** Results of the last check of each property on the estimate, used to warm-start the next one */
+    private HashMap<String, Result> previousResults = new HashMap<>();
+
     private HashSet<TransitionTriple> transitionsOfInterest;
     protected HashMap<TransitionTriple, Double> trueProbabilitiesMap;
     private int numLearnableTransitions = 0;
 
-    private MRStrategy uniformStrat;
+    private MRStrategyArray uniformStrat;
 
     Estimator(Prism prism, Experiment ex)  {
         this.prism = prism;
         this.ex = ex;
 
-        this.samplesMap = new HashMap<>();
-        this.sampleSizeMap = new HashMap<>();
         this.intervalsMap = new HashMap<>();
 
         this.prob01States = new HashSet<>();
@@ -80,6 +92,7 @@ public class Estimator {
         this.buildModulesFiles();
         this.tryBuildSUL();
         this.processTransitions();
+        this.observationCounts = new ObservationCounts(this.mdp);
     }
 
     public void set_experiment(Experiment ex)  {
@@ -87,13 +100,48 @@ public class Estimator {
         this.buildModulesFiles();
         this.tryBuildSUL();
         this.processTransitions();
+        this.observationCounts = new ObservationCounts(this.mdp);
+    }
+
+    /**
+     * Copy this estimator, e.g. to continue learning from its current state in another environment.
+     * The state that changes while learning (intervals, estimate, warm starts, observation counts) is copied,
+     * so the copy and this estimator can learn independently; the SUL and the properties are shared.
+     * The copy must be used in the same thread as this estimator (since they share the properties' model checkers).
+     */
+    public Estimator copy() {
+        try {
+            Estimator copy = (Estimator) super.clone();
+            copy.intervalsMap = new HashMap<>(this.intervalsMap);
+            copy.prob01States = new HashSet<>(this.prob01States);
+            copy.rew0InfStates = new HashSet<>(this.rew0InfStates);
+            if (this.estimate instanceof IMDPFromMDP) {
+                copy.estimate = new IMDPFromMDP((IMDPFromMDP) this.estimate);
+            }
+            copy.previousResults = new HashMap<>(this.previousResults);
+            copy.transitionsOfInterest = new HashSet<>(this.transitionsOfInterest);
+            copy.trueProbabilitiesMap = new HashMap<>(this.trueProbabilitiesMap);
+            copy.observationCounts = this.observationCounts.copy();
+            if (this.metrics != null) {
+                copy.metrics = this.metrics.copy();
+            }
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
     }
 
     private void buildModulesFiles()  {
+        if (ex.isSynthetic()) {
+            this.syntheticModel = ModelCache.getSyntheticModel(ex);
+            this.specs = new CompiledSpecs(this.prism, ex, this.syntheticModel);
+            return;
+        }
         try {
-            this.modulesFile = this.prism.parseModelFile(new File(ex.modelFile));
-            this.modulesFileIMDP = this.prism.parseModelFile(new File(ex.modelFile), ModelType.IMDP);
-            this.modulesFileMDP = this.prism.parseModelFile(new File(ex.modelFile), ModelType.MDP);
+            this.modulesFile = ModelCache.getModulesFile(this.prism, ex.modelFile, null);
+            this.modulesFileIMDP = ModelCache.getModulesFile(this.prism, ex.modelFile, ModelType.IMDP);
+            this.modulesFileMDP = ModelCache.getModulesFile(this.prism, ex.modelFile, ModelType.MDP);
+            this.specs = new CompiledSpecs(this.prism, ex, this.modulesFileIMDP);
         } catch (FileNotFoundException e) {
             System.out.println("Error file: " + e.getMessage());
             System.exit(1);
@@ -117,17 +165,52 @@ public class Estimator {
     }
 
 
-    public void setSamplesMap(HashMap<TransitionTriple, Integer> samplesMap) {
-        this.samplesMap = samplesMap;
+    /**
+     * Set the metrics of the current epoch, to which the updates of the estimate and the checks are added (null for none).
+     */
+    public void setMetrics(EpochMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public EpochMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    public int getStrategyVersion() {
+        return this.strategyVersion;
+    }
+
+    public void setStrategyVersion(int strategyVersion) {
+        this.strategyVersion = strategyVersion;
     }
 
-    public void setSampleSizeMap(HashMap<StateActionPair, Integer> sampleSizeMap) {
-        this.sampleSizeMap = sampleSizeMap;
+    /**
+     * Add the time since {@code start} (as given by {@link System#nanoTime()}) to the update time of the metrics, if any.
+     */
+    protected void addUpdateTime(long start) {
+        if (this.metrics != null) {
+            this.metrics.addUpdate(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Add the check of a DTMC that started at {@code start} (as given by {@link System#nanoTime()}) to the metrics, if any.
+     */
+    protected void addDTMCCheckTime(long start) {
+        if (this.metrics != null) {
+            this.metrics.addDTMCCheck(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Set the observations of the current sequence, indexed over the transitions of the SUL.
+     */
+    public void setObservationCounts(ObservationCounts observationCounts) {
+        this.observationCounts = observationCounts;
     }
 
     public void setObservationMaps(HashMap<TransitionTriple, Integer> samplesMap, HashMap<StateActionPair, Integer> sampleSizeMap) {
-        setSampleSizeMap(sampleSizeMap);
-        setSamplesMap(samplesMap);
+        setObservationCounts(ObservationCounts.fromMaps(this.mdp, samplesMap, sampleSizeMap));
     }
 
     public String getActionString(MDP<Double> mdp, int s, int i) {
@@ -153,14 +236,23 @@ public class Estimator {
     }
 
     /**
-     * Build the SUL from the prism model file
+     * Is the estimate an IMDP over the transitions of {@code mdp}, which can be updated in place?
+     */
+    protected boolean isEstimateOver(MDP<Double> mdp) {
+        return this.estimate instanceof IMDPFromMDP && ((IMDPFromMDP) this.estimate).getMDP() == mdp;
+    }
+
+    /**
+     * Build the SUL from the prism model file, or generate the synthetic model (or get it from the {@link ModelCache} if it was built before)
      */
     public void buildSUL() throws PrismException {
-        this.prism.loadPRISMModel(modulesFile);
         this.prism.setStoreVector(true);
-        Result result = this.prism.modelCheck(ex.spec);
+        ModelCache.SUL sul = syntheticModel != null
+                ? ModelCache.getSyntheticSUL(this.prism, syntheticModel, ex.spec)
+                : ModelCache.getSUL(this.prism, modulesFile, ex.modelFile, ex.spec);
+        Result result = sul.getResult();
         //System.out.println(result);
-        MDP<Double> mdp = (MDP<Double>) this.prism.getBuiltModelExplicit();
+        MDP<Double> mdp = sul.getMDP();
         //System.out.println("Model checking SUL:\n" + this.spec + " : " + result.getResultAndAccuracy());
         this.SULoptimum = result.getResultAndAccuracy();
         this.sulOpt = (Double) result.getResult();
@@ -304,15 +396,8 @@ public class Estimator {
 
     public Strategy buildUniformStrat() {
         if (this.uniformStrat == null) {
-            MRStrategy strat = new MRStrategy(this.mdp);
-            int numStates = this.mdp.getNumStates();
-            for (int s = 0; s < numStates; s++) {
-                int numChoices = this.mdp.getNumChoices(s);
-                for (int i = 0; i < numChoices; i++) {
-                    strat.setActionProbability(s, getActionString(this.mdp, s, i), 1.0 / numChoices);
-                }
-            }
-            this.uniformStrat = strat;
+            // (choices are uniform until probabilities are set)
+            this.uniformStrat = new MRStrategyArray(this.mdp);
         }
         return this.uniformStrat;
     }
@@ -327,49 +412,52 @@ public class Estimator {
 	}
 
 
+    /**
+     * Build a strategy that takes the choice of the optimistic strategy for the estimate with probability {@code weight},
+     * and any other choice uniformly otherwise (or, where the optimistic strategy has no choice, any choice uniformly).
+     */
     public Strategy buildWeightedOptimisticStrategy(IMDP<Double> estimate, double weight) throws PrismException {
         MDStrategy optStrat = computeOptimisticStrategyFromEstimate(estimate);
-        Strategy uniformStrat = buildUniformStrat();
-        MRStrategy strat = new MRStrategy(this.mdp);
-        int numStates = this.mdp.getNumStates();
-        for (int s = 0; s < numStates; s++) {
-            int numChoices = this.mdp.getNumChoices(s);
-            int optimisticChoice = optStrat.getChoiceIndex(s);
-            if (optimisticChoice >= 0 && numChoices > 1) {
-                for (int i = 0; i < numChoices; i++) {
-                    if (i == optimisticChoice)
-                        strat.setActionProbability(s, getActionString(this.mdp, s, i), weight);
-                    else
-                        strat.setActionProbability(s, getActionString(this.mdp, s, i), (1.0 - weight)/(numChoices - 1));
-                }
-            }
-            else {
-                for (int i = 0; i < numChoices; i++) {
-                    strat.setActionProbability(s, getActionString(this.mdp, s, i), 1.0 / numChoices);
-                }
-            }
-        }
-        return strat;
+        return new MRStrategyWeighted(this.mdp, optStrat, weight);
     }
 
 
 
 	public MDStrategy computeStrategyFromEstimate(IMDP<Double> estimate, boolean robust) throws PrismException {
-		IMDPModelChecker mc = new IMDPModelChecker(this.prism);
-		mc.setGenStrat(true);
-		mc.setErrorOnNonConverge(false);
-		PropertiesFile pf = robust
-			? prism.parsePropertiesString(ex.robustSpec)
-			: prism.parsePropertiesString(ex.optimisticSpec);
-		ModulesFileModelGenerator<?> modelGen = ModulesFileModelGenerator.create(modulesFileIMDP, this.prism);
-		mc.setModelCheckingInfo(modelGen, pf, modelGen);
-		Expression exprTarget = pf.getProperty(0);
-		Result result = mc.check(estimate, exprTarget);
+		IMDPModelChecker mc = specs.getIMDPModelChecker(robust);
+		Result result = checkIMDP(mc, estimate, specs.getIMDPExpression(robust), specs.getIMDPSpec(robust));
 		MDStrategy strat = (MDStrategy) result.getStrategy();
 		//System.out.println("Strategy = " + strat);    // strat is null
 		return strat;
 	}
 
+	/**
+	 * Model check property {@code expr} (given as string {@code spec}) on IMDP {@code imdp} with {@code mc},
+	 * starting value iteration from the solution of the last check of the same property (see
+	 * {@link IMDPModelChecker#setWarmStart}), since successive estimates differ only slightly.
+	 * The solution (vector and strategy) is kept for the next check.
+	 * The returned result carries the value (of the initial state), the vector and the (MD) strategy,
+	 * so there is no need to solve the IMDP again to get the strategy.
+	 */
+	protected Result checkIMDP(IMDPModelChecker mc, IMDP<Double> imdp, Expression expr, String spec) throws PrismException {
+		Result previous = previousResults.get(spec);
+		if (previous != null && previous.getVector() instanceof explicit.StateValues) {
+			mc.setWarmStart(((explicit.StateValues) previous.getVector()).getDoubleArray(), (MDStrategy) previous.getStrategy());
+		} else {
+			// The model checker may be shared (see CompiledSpecs), so don't start from another estimator's solution
+			mc.setWarmStart(null, null);
+		}
+		mc.setStoreVector(true);
+		mc.setGenStrat(true);
+		long start = System.nanoTime();
+		Result result = mc.check(imdp, expr);
+		if (this.metrics != null) {
+			this.metrics.addSolve(System.nanoTime() - start, mc.getLastNumIterations());
+		}
+		previousResults.put(spec, result);
+		return result;
+	}
+
     public double[] getCurrentResults() throws PrismException {
         throw new UnsupportedOperationException("can't get results from estimator");
     }
@@ -387,8 +475,9 @@ public class Estimator {
             int numChoices = this.mdp.getNumChoices(s);
             for (int i = 0; i < numChoices; i++) {
                 StateActionPair sa = new StateActionPair(s, getActionString(this.mdp, s, i));
-                for (int successor = 0; successor < this.mdp.getNumStates(); successor++) {
-                    TransitionTriple t = new TransitionTriple(sa.getState(), sa.getAction(), successor);
+                SuccessorsIterator successors = this.mdp.getSuccessors(s, i);
+                while (successors.hasNext()) {
+                    TransitionTriple t = new TransitionTriple(sa.getState(), sa.getAction(), successors.nextInt());
                     if (this.trueProbabilitiesMap.containsKey(t)) {
                         if (this.trueProbabilitiesMap.get(t) == 1.0) {
                             break;
@@ -408,8 +497,9 @@ public class Estimator {
             int numChoices = this.mdp.getNumChoices(s);
             for (int i = 0; i < numChoices; i++) {
                 StateActionPair sa = new StateActionPair(s, getActionString(this.mdp, s, i));
-                for (int successor = 0; successor < this.mdp.getNumStates(); successor++) {
-                    TransitionTriple t = new TransitionTriple(sa.getState(), sa.getAction(), successor);
+                SuccessorsIterator successors = this.mdp.getSuccessors(s, i);
+                while (successors.hasNext()) {
+                    TransitionTriple t = new TransitionTriple(sa.getState(), sa.getAction(), successors.nextInt());
                     if (this.trueProbabilitiesMap.containsKey(t)) {
                         if (this.trueProbabilitiesMap.get(t) == 1.0) {
                             break;
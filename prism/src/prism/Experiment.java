@@ -3,8 +3,10 @@ package prism;
 import java.io.FileWriter;
 import java.io.IOException;
 
+import explicit.ProbModelChecker.MDPSolnMethod;
 
-public class Experiment {
+
+public class Experiment implements Cloneable {
 
 
     public static enum Type {
@@ -28,6 +30,10 @@ public class Experiment {
         LOOP,
         AIRCRAFT,
         BANDIT,
+        SYNTHETIC_GRID,
+        SYNTHETIC_CHAIN,
+        SYNTHETIC_RANDOM,
+        SYNTHETIC_BETTING,
     }
 
 
@@ -49,6 +55,12 @@ public class Experiment {
 	public String modelFile;
 	public String dtmcSpec;
 
+    // Parameters of a synthetic model (generated in memory instead of read from modelFile), see SyntheticModel
+    public SyntheticModel.Family syntheticFamily;
+    public int syntheticSize = 1000;
+    public int syntheticBranching = 3;
+    public long syntheticSeed = 1;
+
     public String experimentInfo = "basic";
 
     public int seed = 1;
@@ -63,6 +75,12 @@ public class Experiment {
     public int alpha = 10;
     public double error_tolerance = 0.01; // 99% correctness guarantee
     public double strategyWeight = 1.0;
+    // Guaranteed error bound of the checks on the estimates, by interval iteration (0: value iteration, without a guarantee)
+    public double intervalIterationEpsilon = 0;
+    // Method to check the estimates with (null: the checker's default, value iteration)
+    public MDPSolnMethod imdpSolnMethod = null;
+    // Threads for the iterations of the checks on the estimates (1: Gauss-Seidel, sequential)
+    public int iterationThreads = 1;
 
     public InitialInterval initialInterval = InitialInterval.WIDE;
 
@@ -209,6 +227,42 @@ public class Experiment {
             this.dtmcSpec = "R=?  [F \"done\"]";
             this.modelFile = "models/bet_unfav.prism";
             this.type = Type.REWARD;
+            break;
+            case SYNTHETIC_GRID:
+            this.goal = "\"goal\"";
+            this.spec = "Pmax=? [!\"trap\" U \"goal\"]";
+            this.robustSpec = "Pmaxmin=? [!\"trap\" U \"goal\"]";
+            this.optimisticSpec = "Pmaxmax=? [!\"trap\" U \"goal\"]";
+            this.dtmcSpec = "P=?  [!\"trap\" U \"goal\"]";
+            this.syntheticFamily = SyntheticModel.Family.GRID;
+            this.type = Type.REACH;
+            break;
+            case SYNTHETIC_CHAIN:
+            this.goal = "\"goal\"";
+            this.spec = "Rmin=? [F \"goal\"]";
+            this.robustSpec = "Rminmax=? [F \"goal\"]";
+            this.optimisticSpec = "Rminmin=? [F \"goal\"]";
+            this.dtmcSpec = "R=?  [F \"goal\"]";
+            this.syntheticFamily = SyntheticModel.Family.CHAIN;
+            this.type = Type.REWARD;
+            break;
+            case SYNTHETIC_RANDOM:
+            this.goal = "\"goal\"";
+            this.spec = "Pmax=? [F \"goal\"]";
+            this.robustSpec = "Pmaxmin=? [F \"goal\"]";
+            this.optimisticSpec = "Pmaxmax=? [F \"goal\"]";
+            this.dtmcSpec = "P=?  [F \"goal\"]";
+            this.syntheticFamily = SyntheticModel.Family.RANDOM;
+            this.type = Type.REACH;
+            break;
+            case SYNTHETIC_BETTING:
+            this.goal = "\"done\"";
+            this.spec = "Rmax=? [F \"done\"]";
+            this.robustSpec = "Rmaxmin=? [F \"done\"]";
+            this.optimisticSpec = "Rmaxmax=? [F \"done\"]";
+            this.dtmcSpec = "R=?  [F \"done\"]";
+            this.syntheticFamily = SyntheticModel.Family.BETTING;
+            this.type = Type.REWARD;
             break;
 		}
     }
@@ -235,6 +289,31 @@ public class Experiment {
         return this;
     }
 
+    /**
+     * Set the size (about the number of states) of a synthetic model.
+     */
+    public Experiment synthetic(int size) {
+        this.syntheticSize = size;
+        return this;
+    }
+
+    /**
+     * Set the size, and the number of successors of each choice and the seed (of a random model), of a synthetic model.
+     */
+    public Experiment synthetic(int size, int branching, long seed) {
+        this.syntheticSize = size;
+        this.syntheticBranching = branching;
+        this.syntheticSeed = seed;
+        return this;
+    }
+
+    /**
+     * Whether the model is generated in memory (see SyntheticModel) rather than read from modelFile.
+     */
+    public boolean isSynthetic() {
+        return syntheticFamily != null;
+    }
+
     public void setModelInfo(String modelInfo) {
         this.modelInfo = modelInfo;
     }
@@ -261,10 +340,46 @@ public class Experiment {
         return this;
     }
 
+    /**
+     * Check the estimates with interval iteration, which stops once the values are guaranteed
+     * to be within {@code epsilon} (relative) of the actual ones.
+     */
+    public Experiment intervalIteration(double epsilon) {
+        this.intervalIterationEpsilon = epsilon;
+        return this;
+    }
+
+    /**
+     * Check the estimates with robust (modified) policy iteration, started from the strategy of the previous check.
+     */
+    public Experiment policyIteration(boolean modified) {
+        this.imdpSolnMethod = modified ? MDPSolnMethod.MODIFIED_POLICY_ITERATION : MDPSolnMethod.POLICY_ITERATION;
+        return this;
+    }
+
+    /**
+     * Check the estimates with value iteration (power method) on {@code threads} threads.
+     */
+    public Experiment parallelIteration(int threads) {
+        this.iterationThreads = threads;
+        return this;
+    }
+
     public void setTrueOpt(double opt) {
         this.trueOpt = opt;
     }
 
+    /**
+     * Get a copy of this experiment (all settings are values, so a shallow copy suffices).
+     */
+    public Experiment copy() {
+        try {
+            return (Experiment) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
     public void dumpConfiguration(String pathPrefix, String file_name, String algorithm){
 
         try {
@@ -276,6 +391,11 @@ public class Experiment {
             writer.write("spec: " + spec + "\n");
             writer.write("robustSpec: " + robustSpec + "\n");
             writer.write("modelFile: " + modelFile + "\n");
+            if (isSynthetic()) {
+                writer.write("syntheticSize: " + syntheticSize + "\n");
+                writer.write("syntheticBranching: " + syntheticBranching + "\n");
+                writer.write("syntheticSeed: " + syntheticSeed + "\n");
+            }
             writer.write("dtmcSpec: " + dtmcSpec + "\n");
             writer.write("experimentInfo: " + experimentInfo + "\n");
             writer.write("seed: " + seed + "\n");
@@ -289,6 +409,15 @@ public class Experiment {
             writer.write("max_episode_length: " + max_episode_length + "\n");
             writer.write("alpha: " + alpha + "\n");
             writer.write("error_tolerance: " + error_tolerance + "\n");
+            if (intervalIterationEpsilon > 0) {
+                writer.write("intervalIterationEpsilon: " + intervalIterationEpsilon + "\n");
+            }
+            if (imdpSolnMethod != null) {
+                writer.write("imdpSolnMethod: " + imdpSolnMethod + "\n");
+            }
+            if (iterationThreads > 1) {
+                writer.write("iterationThreads: " + iterationThreads + "\n");
+            }
             writer.write("trueOpt: " + trueOpt + "\n");
             writer.write("prefix: " + file_name + "\n");
             writer.write("algorithm: " + algorithm + "\n");
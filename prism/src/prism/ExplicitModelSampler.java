@@ -0,0 +1,296 @@
+package prism;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import explicit.MDP;
+import parser.State;
+import simulator.RandomNumberGenerator;
+import strat.MDStrategy;
+import strat.RandomisedStrategy;
+import strat.Strategy;
+
+/**
+ * Episode sampler for an explicit MDP (e.g. the SUL) that walks precomputed transition arrays
+ * with integer state indices, instead of evaluating the model's updates in the simulator.
+ * <br>
+ * The transitions of each state are taken once from the model generator, in the generator's order
+ * (including duplicate successors), and random numbers are drawn exactly as in
+ * {@link simulator.SimulatorEngine#automaticTransition}, so that, for the same random number generator,
+ * the sampled paths are identical to those of the simulator.
+ * A model without a model generator (see {@link SyntheticModel}) is compiled from the explicit MDP itself instead.
+ */
+public class ExplicitModelSampler
+{
+	/** First choice of each state; length numStates+1 */
+	private int[] rowStarts;
+	/** First transition of each choice; length numChoices+1 */
+	private int[] choiceStarts;
+	/** Cumulative probability of each transition within its choice */
+	private double[] cumProbs;
+	/** Successor of each transition */
+	private int[] targets;
+	/** Choice of the observation counters (i.e. of the explicit MDP) matching each choice */
+	private int[] countChoices;
+	/** Transition of the observation counters matching each transition */
+	private int[] countTransitions;
+
+	private int initialState;
+	private BitSet terminatingStates;
+	private RandomNumberGenerator rng;
+
+	// Current state and last step taken
+	private int currentState;
+	private int previousState;
+	private int previousChoice;
+	private int previousTransition;
+
+	/**
+	 * Compile the transitions of the states of {@code mdp} from model generator {@code modelGen}
+	 * (which {@code mdp} was built from), indexing choices and transitions by those of {@code counts}.
+	 */
+	public ExplicitModelSampler(ModelGenerator<Double> modelGen, MDP<Double> mdp, ObservationCounts counts) throws PrismException
+	{
+		List<State> states = mdp.getStatesList();
+		int numStates = states.size();
+		HashMap<State, Integer> stateIndices = new HashMap<>();
+		for (int s = 0; s < numStates; s++) {
+			stateIndices.put(states.get(s), s);
+		}
+
+		// First pass: sizes
+		rowStarts = new int[numStates + 1];
+		int numChoices = 0;
+		int numTransitions = 0;
+		for (int s = 0; s < numStates; s++) {
+			modelGen.exploreState(states.get(s));
+			int n = modelGen.getNumChoices();
+			rowStarts[s] = numChoices;
+			numChoices += n;
+			for (int i = 0; i < n; i++) {
+				numTransitions += modelGen.getNumTransitions(i);
+			}
+		}
+		rowStarts[numStates] = numChoices;
+
+		// Second pass: transitions, in generator order
+		choiceStarts = new int[numChoices + 1];
+		countChoices = new int[numChoices];
+		cumProbs = new double[numTransitions];
+		targets = new int[numTransitions];
+		countTransitions = new int[numTransitions];
+		int c = 0;
+		int t = 0;
+		for (int s = 0; s < numStates; s++) {
+			modelGen.exploreState(states.get(s));
+			int n = modelGen.getNumChoices();
+			for (int i = 0; i < n; i++, c++) {
+				choiceStarts[c] = t;
+				countChoices[c] = findChoice(mdp, counts, s, modelGen.getChoiceAction(i));
+				double tot = 0.0;
+				int numTrans = modelGen.getNumTransitions(i);
+				for (int j = 0; j < numTrans; j++, t++) {
+					tot += modelGen.getTransitionProbability(i, j);
+					cumProbs[t] = tot;
+					Integer target = stateIndices.get(modelGen.computeTransitionTarget(i, j));
+					if (target == null) {
+						throw new PrismException("Successor of state " + s + " is not a state of the model");
+					}
+					targets[t] = target;
+					countTransitions[t] = countChoices[c] < 0 ? -1 : counts.findTransition(countChoices[c], target);
+				}
+			}
+		}
+		choiceStarts[numChoices] = t;
+
+		Integer init = stateIndices.get(modelGen.getInitialState());
+		if (init == null) {
+			throw new PrismException("Initial state is not a state of the model");
+		}
+		initialState = init;
+		terminatingStates = new BitSet();
+	}
+
+	/**
+	 * Compile the transitions of the states of {@code mdp} itself, in its order (for a model without a model generator),
+	 * indexing choices and transitions by those of {@code counts}.
+	 */
+	public ExplicitModelSampler(MDP<Double> mdp, ObservationCounts counts)
+	{
+		int numStates = mdp.getNumStates();
+		rowStarts = new int[numStates + 1];
+		for (int s = 0; s < numStates; s++) {
+			rowStarts[s + 1] = rowStarts[s] + mdp.getNumChoices(s);
+		}
+		int numChoices = rowStarts[numStates];
+		int numTransitions = mdp.getNumTransitions();
+
+		choiceStarts = new int[numChoices + 1];
+		countChoices = new int[numChoices];
+		cumProbs = new double[numTransitions];
+		targets = new int[numTransitions];
+		countTransitions = new int[numTransitions];
+		int c = 0;
+		int t = 0;
+		for (int s = 0; s < numStates; s++) {
+			int n = mdp.getNumChoices(s);
+			for (int i = 0; i < n; i++, c++) {
+				choiceStarts[c] = t;
+				countChoices[c] = counts.getChoice(s, i);
+				double tot = 0.0;
+				for (Iterator<Map.Entry<Integer, Double>> it = mdp.getTransitionsIterator(s, i); it.hasNext(); t++) {
+					Map.Entry<Integer, Double> e = it.next();
+					tot += e.getValue();
+					cumProbs[t] = tot;
+					targets[t] = e.getKey();
+					countTransitions[t] = counts.findTransition(countChoices[c], targets[t]);
+				}
+			}
+		}
+		choiceStarts[numChoices] = t;
+
+		initialState = mdp.getFirstInitialState();
+		terminatingStates = new BitSet();
+	}
+
+	/**
+	 * Copy constructor: the copy shares the (unmodified) compiled transitions and terminating states of {@code sampler},
+	 * but samples its own episodes, so that it can be used on another thread.
+	 */
+	public ExplicitModelSampler(ExplicitModelSampler sampler)
+	{
+		rowStarts = sampler.rowStarts;
+		choiceStarts = sampler.choiceStarts;
+		cumProbs = sampler.cumProbs;
+		targets = sampler.targets;
+		countChoices = sampler.countChoices;
+		countTransitions = sampler.countTransitions;
+		initialState = sampler.initialState;
+		terminatingStates = sampler.terminatingStates;
+	}
+
+	/**
+	 * Find the choice of state {@code s} of the observation counters with action {@code action}
+	 * (the first one, as for {@link explicit.NondetModel#getChoiceByAction}), or -1 if there is none.
+	 */
+	private static int findChoice(MDP<Double> mdp, ObservationCounts counts, int s, Object action)
+	{
+		int n = mdp.getNumChoices(s);
+		for (int i = 0; i < n; i++) {
+			Object a = mdp.getAction(s, i);
+			if (a == null || "".equals(a)) {
+				if (action == null || "".equals(action)) {
+					return counts.getChoice(s, i);
+				}
+			} else if (a.equals(action)) {
+				return counts.getChoice(s, i);
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Set the states in which episodes terminate.
+	 */
+	public void setTerminatingStates(Set<Integer> states)
+	{
+		terminatingStates = new BitSet();
+		for (int s : states) {
+			terminatingStates.set(s);
+		}
+	}
+
+	/**
+	 * Start a new episode from the initial state, drawing random numbers from {@code rng}.
+	 */
+	public void initialise(RandomNumberGenerator rng)
+	{
+		this.rng = rng;
+		currentState = initialState;
+		previousState = -1;
+		previousChoice = -1;
+		previousTransition = -1;
+	}
+
+	/**
+	 * Take a random step from the current state, resolving nondeterminism with {@code strat}
+	 * (or uniformly at random if it is null). Returns false, and does not move,
+	 * if the current state is a deadlock or a terminating state.
+	 */
+	public boolean step(Strategy strat) throws PrismException
+	{
+		int s = currentState;
+		int first = rowStarts[s];
+		int numChoices = rowStarts[s + 1] - first;
+		if (numChoices == 0 || terminatingStates.get(s)) {
+			return false;
+		}
+		int i;
+		if (strat instanceof RandomisedStrategy) {
+			i = ((RandomisedStrategy) strat).getChoice(s, rng);
+		} else if (strat instanceof MDStrategy) {
+			i = ((MDStrategy) strat).getChoiceIndex(s);
+		} else {
+			i = rng.randomUnifInt(numChoices);
+		}
+		if (i < 0 || i >= numChoices) {
+			throw new PrismException("No valid choice for state " + s + " in strategy");
+		}
+		int c = first + i;
+		int j = pickTransition(c, rng.randomUnifDouble());
+		previousState = s;
+		previousChoice = c;
+		previousTransition = j;
+		currentState = targets[j];
+		return true;
+	}
+
+	/**
+	 * Get the transition of choice {@code c} picked by random number {@code x},
+	 * i.e. the first one whose cumulative probability exceeds {@code x} (or the last one).
+	 */
+	private int pickTransition(int c, double x)
+	{
+		int lo = choiceStarts[c];
+		int hi = choiceStarts[c + 1] - 1;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (x < cumProbs[mid]) {
+				hi = mid;
+			} else {
+				lo = mid + 1;
+			}
+		}
+		return lo;
+	}
+
+	public int getCurrentState()
+	{
+		return currentState;
+	}
+
+	public int getPreviousState()
+	{
+		return previousState;
+	}
+
+	/**
+	 * Get the choice of the observation counters for the last step, or -1 if it has none.
+	 */
+	public int getPreviousCountChoice()
+	{
+		return countChoices[previousChoice];
+	}
+
+	/**
+	 * Get the transition of the observation counters for the last step, or -1 if it has none.
+	 */
+	public int getPreviousCountTransition()
+	{
+		return countTransitions[previousTransition];
+	}
+}
@@ -0,0 +1,166 @@
+package prism;
+
+import java.util.List;
+
+import explicit.NondetModel;
+import parser.State;
+import strat.MDStrategy;
+
+/**
+ * The rewards of a nondeterministic model (e.g. the SUL), evaluated once into arrays:
+ * per reward structure, a state reward per state and a transition reward per choice
+ * (laid out like the choices of a sparse model: states, then choices).
+ * <br>
+ * {@link #forStrategy} gives the rewards of the DTMC induced by an MD strategy (like {@link RewardGeneratorMDStrat}),
+ * as a reward generator that looks up rewards by state index. So checking a reward property on an induced DTMC
+ * only reads these arrays, rather than evaluating the reward structures of the model file (and looking up each state)
+ * every time. Each reward structure is evaluated when it is first needed.
+ */
+public class FlatRewards
+{
+	private final RewardGenerator<Double> rewGen;
+	private final NondetModel<?> model;
+
+	/** First choice of each state; length numStates+1 */
+	private final int[] rowStarts;
+	/** State rewards, per reward structure (null if not evaluated yet) */
+	private final double[][] stateRewards;
+	/** Transition rewards of each choice, per reward structure (null if not evaluated yet) */
+	private final double[][] choiceRewards;
+	/** Transition rewards of each state without a choice (i.e., of unlabelled transitions), per reward structure */
+	private final double[][] noChoiceRewards;
+
+	/**
+	 * Create the rewards of {@code rewGen} (which must support reward lookup by state) for model {@code model}.
+	 */
+	public FlatRewards(RewardGenerator<Double> rewGen, NondetModel<?> model)
+	{
+		this.rewGen = rewGen;
+		this.model = model;
+		int numStates = model.getNumStates();
+		rowStarts = new int[numStates + 1];
+		for (int s = 0; s < numStates; s++) {
+			rowStarts[s + 1] = rowStarts[s] + model.getNumChoices(s);
+		}
+		stateRewards = new double[rewGen.getNumRewardStructs()][];
+		choiceRewards = new double[rewGen.getNumRewardStructs()][];
+		noChoiceRewards = new double[rewGen.getNumRewardStructs()][];
+	}
+
+	/**
+	 * Get the state reward of state s for reward structure r.
+	 */
+	public double getStateReward(int r, int s) throws PrismException
+	{
+		evaluate(r);
+		return stateRewards[r][s];
+	}
+
+	/**
+	 * Get the transition reward of choice i of state s for reward structure r.
+	 * If i is negative (no choice, e.g. for a strategy), this is the reward of unlabelled transitions
+	 * (as for action {@code null}).
+	 */
+	public double getChoiceReward(int r, int s, int i) throws PrismException
+	{
+		evaluate(r);
+		return i >= 0 ? choiceRewards[r][rowStarts[s] + i] : noChoiceRewards[r][s];
+	}
+
+	/**
+	 * Get the rewards of the DTMC induced by strategy {@code strat} on the model: the reward of each state is
+	 * its state reward plus the transition reward of the choice of the strategy.
+	 */
+	public RewardGenerator<Double> forStrategy(MDStrategy strat)
+	{
+		return new StrategyRewards(strat);
+	}
+
+	/**
+	 * Evaluate reward structure r, unless already done.
+	 */
+	private void evaluate(int r) throws PrismException
+	{
+		if (stateRewards[r] != null) {
+			return;
+		}
+		int numStates = model.getNumStates();
+		// Rewards are looked up by State object, or by state index if that is all the generator supports (e.g. a synthetic model)
+		List<State> statesList = rewGen.isRewardLookupSupported(RewardGenerator.RewardLookup.BY_STATE) ? model.getStatesList() : null;
+		double[] stateRew = new double[numStates];
+		double[] choiceRew = new double[rowStarts[numStates]];
+		double[] noChoiceRew = new double[numStates];
+		for (int s = 0; s < numStates; s++) {
+			State state = statesList == null ? null : statesList.get(s);
+			if (rewGen.rewardStructHasStateRewards(r)) {
+				stateRew[s] = state == null ? rewGen.getStateReward(r, s) : rewGen.getStateReward(r, state);
+			}
+			if (rewGen.rewardStructHasTransitionRewards(r)) {
+				for (int i = 0, numChoices = model.getNumChoices(s); i < numChoices; i++) {
+					Object action = model.getAction(s, i);
+					choiceRew[rowStarts[s] + i] = state == null ? rewGen.getStateActionReward(r, s, action) : rewGen.getStateActionReward(r, state, action);
+				}
+				noChoiceRew[s] = state == null ? rewGen.getStateActionReward(r, s, null) : rewGen.getStateActionReward(r, state, null);
+			}
+		}
+		choiceRewards[r] = choiceRew;
+		noChoiceRewards[r] = noChoiceRew;
+		stateRewards[r] = stateRew;
+	}
+
+	/**
+	 * Rewards of the DTMC induced by an MD strategy, looked up by state index.
+	 */
+	private class StrategyRewards implements RewardGenerator<Double>
+	{
+		private final MDStrategy strat;
+
+		private StrategyRewards(MDStrategy strat)
+		{
+			this.strat = strat;
+		}
+
+		@Override
+		public Evaluator<Double> getEvaluator()
+		{
+			return rewGen.getEvaluator();
+		}
+
+		@Override
+		public List<String> getRewardStructNames()
+		{
+			return rewGen.getRewardStructNames();
+		}
+
+		@Override
+		public int getNumRewardStructs()
+		{
+			return rewGen.getNumRewardStructs();
+		}
+
+		@Override
+		public boolean rewardStructHasStateRewards(int r)
+		{
+			return true;
+		}
+
+		@Override
+		public boolean rewardStructHasTransitionRewards(int r)
+		{
+			// Transition rewards are converted to state rewards
+			return false;
+		}
+
+		@Override
+		public boolean isRewardLookupSupported(RewardLookup lookup)
+		{
+			return lookup == RewardLookup.BY_STATE_INDEX;
+		}
+
+		@Override
+		public Double getStateReward(int r, int s) throws PrismException
+		{
+			return FlatRewards.this.getStateReward(r, s) + getChoiceReward(r, s, strat.getChoiceIndex(s));
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package prism;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.List;
+
+import explicit.IMDP;
+import explicit.IMDPModelChecker;
+import parser.ast.Expression;
+import parser.ast.ExpressionProb;
+import parser.ast.ExpressionReward;
+import parser.ast.ModulesFile;
+import parser.ast.PropertiesFile;
+import strat.MDStrategy;
+
+/**
+ * Regression check of warm-started IMDP solution ({@link IMDPModelChecker#setWarmStart}) against solution from scratch.
+ * Each P or R property of an IMDP is checked from scratch, and then warm-started from the solution (and strategy)
+ * of each property of the same kind, including itself. Warm starts from other properties (e.g. for the other
+ * direction of the uncertainty) are far from the solution, so they exercise the adjustments that keep warm starts sound.
+ * The values of all states must agree up to the termination epsilon (relative or absolute, as set).
+ * <br>
+ * Usage: {@code PRISM_MAINCLASS=prism.IMDPWarmStartTest bin/prism model props [-const c] [-epsilon e]},
+ * e.g. {@code tests/imdps/robot.prism tests/imdps/robot.prism.props -const delta=0.05:0.1:0.45}.
+ * Exits with status 1 if any values differ. This is run on the IMDPs in tests/imdps by {@code make testswarmstart}
+ * (and hence by {@code make tests}).
+ */
+public class IMDPWarmStartTest
+{
+	public static void main(String[] args)
+	{
+		try {
+			if (args.length < 2) {
+				throw new PrismException("Usage: IMDPWarmStartTest model props [-const c] [-epsilon e]");
+			}
+			String constSwitch = "";
+			double epsilon = 1e-6;
+			for (int a = 2; a < args.length; a++) {
+				if (args[a].equals("-const") && a + 1 < args.length) {
+					constSwitch = args[++a];
+				} else if (args[a].equals("-epsilon") && a + 1 < args.length) {
+					epsilon = Double.parseDouble(args[++a]);
+				} else {
+					throw new PrismException("Unknown argument " + args[a]);
+				}
+			}
+			PrismLog mainLog = new PrismDevNullLog();
+			Prism prism = new Prism(mainLog);
+			prism.initialise();
+			prism.setEngine(Prism.EXPLICIT);
+			prism.getSettings().set(PrismSettings.PRISM_TERM_CRIT_PARAM, epsilon);
+			ModulesFile modulesFile = prism.parseModelFile(new File(args[0]));
+			PropertiesFile propertiesFile = prism.parsePropertiesFile(modulesFile, new File(args[1]));
+			UndefinedConstants undefinedConstants = new UndefinedConstants(modulesFile, propertiesFile);
+			undefinedConstants.defineUsingConstSwitch(constSwitch);
+			int failures = 0;
+			for (int i = 0; i < undefinedConstants.getNumModelIterations(); i++) {
+				prism.loadPRISMModel(modulesFile);
+				prism.setPRISMModelConstants(undefinedConstants.getMFConstantValues());
+				propertiesFile.setSomeUndefinedConstants(undefinedConstants.getPFConstantValues());
+				prism.buildModelIfRequired();
+				failures += check(prism, modulesFile, propertiesFile, undefinedConstants.getMFConstantValues().toString());
+				undefinedConstants.iterateModel();
+			}
+			prism.closeDown();
+			System.out.println(failures == 0 ? "PASS" : "FAIL: " + failures + " warm-started result(s) differ");
+			System.exit(failures == 0 ? 0 : 1);
+		} catch (FileNotFoundException e) {
+			System.out.println("Error: " + e.getMessage());
+			System.exit(1);
+		} catch (PrismException | NumberFormatException e) {
+			System.out.println("Error: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Check the P/R properties of {@code propertiesFile} on the built IMDP, cold and warm-started,
+	 * and return the number of warm-started checks whose values differ from the cold ones.
+	 */
+	private static int check(Prism prism, ModulesFile modulesFile, PropertiesFile propertiesFile, String constants) throws PrismException
+	{
+		@SuppressWarnings("unchecked")
+		IMDP<Double> imdp = (IMDP<Double>) prism.getBuiltModelExplicit();
+		IMDPModelChecker mc = new IMDPModelChecker(prism);
+		mc.setModelCheckingInfo(modulesFile, propertiesFile, modulesFile);
+		mc.setStoreVector(true);
+		mc.setGenStrat(true);
+		boolean absolute = mc.getTermCrit() == explicit.ProbModelChecker.TermCrit.ABSOLUTE;
+		// Cold solutions of all the P and R properties
+		List<Expression> exprs = new ArrayList<>();
+		List<Result> results = new ArrayList<>();
+		for (int p = 0; p < propertiesFile.getNumProperties(); p++) {
+			Expression expr = propertiesFile.getProperty(p);
+			if (!(expr instanceof ExpressionProb || expr instanceof ExpressionReward)) {
+				continue;
+			}
+			mc.setWarmStart(null, null);
+			exprs.add(expr);
+			results.add(mc.check(imdp, expr));
+		}
+		// Warm-started from each solution of the same kind
+		int failures = 0;
+		for (int p = 0; p < exprs.size(); p++) {
+			double[] cold = ((explicit.StateValues) results.get(p).getVector()).getDoubleArray();
+			for (int q = 0; q < exprs.size(); q++) {
+				if (exprs.get(p).getClass() != exprs.get(q).getClass()) {
+					continue;
+				}
+				Result from = results.get(q);
+				mc.setWarmStart(((explicit.StateValues) from.getVector()).getDoubleArray(), (MDStrategy) from.getStrategy());
+				double[] warm = ((explicit.StateValues) mc.check(imdp, exprs.get(p)).getVector()).getDoubleArray();
+				int s = firstDifference(cold, warm, mc.getTermCritParam(), absolute);
+				if (s >= 0) {
+					System.out.println("FAIL (" + constants + "): " + exprs.get(p) + " warm-started from " + exprs.get(q) + ": "
+							+ warm[s] + " instead of " + cold[s] + " in state " + s);
+					failures++;
+				}
+			}
+		}
+		return failures;
+	}
+
+	/**
+	 * Return the first state where the values {@code v1} and {@code v2} differ by more than twice {@code epsilon}
+	 * (absolutely or relatively), since both are only accurate up to {@code epsilon}; -1 if there is none.
+	 */
+	private static int firstDifference(double[] v1, double[] v2, double epsilon, boolean absolute)
+	{
+		for (int s = 0; s < v1.length; s++) {
+			if (!PrismUtils.doublesAreClose(v1[s], v2[s], 2 * epsilon, absolute)) {
+				return s;
+			}
+		}
+		return -1;
+	}
+}
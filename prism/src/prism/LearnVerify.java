@@ -3,11 +3,22 @@ package prism;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import explicit.MDP;
+import simulator.RandomNumberGenerator;
 import strat.Strategy;
 
 import prism.Experiment.Model;
@@ -22,6 +33,23 @@ public class LearnVerify {
 
     private boolean verbose = false;
 
+    /** Scheduler to run the comparisons on in parallel (null if they are run one after another) */
+    private RunScheduler scheduler = null;
+    /** Runs scheduled by this object that may not have finished yet */
+    private List<Future<?>> scheduledRuns = new ArrayList<>();
+
+    /** Formats to write the results of runs in */
+    private EnumSet<ResultSink.Format> resultFormats = EnumSet.of(ResultSink.Format.CSV);
+
+    /** Maximum number of sampling strategies that may be being recomputed while sampling goes on (0 to not pipeline runs) */
+    private int maxStaleness = 0;
+
+    /** Number of threads sampling episodes in pipelined runs */
+    private int samplerThreads = 1;
+
+    /** Lock for initialising {@link Prism} objects, which also initialises the (global) native libraries */
+    private static final Object initialisationLock = new Object();
+
 
     public LearnVerify() {
     }
@@ -34,22 +62,108 @@ public class LearnVerify {
         this.seed = seed;
     }
 
+    /**
+     * Set a scheduler to run the comparisons of estimators in parallel on (null to run them one after another).
+     * Each comparison then runs with its own {@link Prism}; the experiment methods (e.g. {@link #basic()})
+     * return once all their comparisons have finished.
+     */
+    public void setScheduler(RunScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Set the formats to write the results of runs in (see {@link ResultSink}).
+     */
+    public void setResultFormats(EnumSet<ResultSink.Format> resultFormats) {
+        this.resultFormats = resultFormats;
+    }
+
+    /**
+     * Set the maximum staleness of the sampling strategy in runs: if positive, runs are pipelined, i.e. episodes are
+     * sampled with the current strategy while up to {@code maxStaleness} recomputations of it are pending
+     * (see {@link #runPipelined}). With 0 (the default), sampling waits for each recomputation.
+     */
+    public void setMaxStaleness(int maxStaleness) {
+        this.maxStaleness = maxStaleness;
+    }
+
+    /**
+     * Set the number of threads sampling episodes in pipelined runs (see {@link #runPipelined}); the default is 1.
+     */
+    public void setSamplerThreads(int samplerThreads) {
+        this.samplerThreads = samplerThreads;
+    }
+
+    /**
+     * Run the experiments for each seed given as argument. A seed range {@code first:last} (inclusive) can be given too.
+     * With option {@code -threads n}, the seeds are run in parallel on {@code n} threads (in this JVM).
+     * With option {@code -tasks n}, the estimators compared in each experiment are run in parallel on {@code n} threads
+     * (shared by all seeds), and option {@code -timeout s} limits each of these runs to {@code s} seconds
+     * (checked between episodes, see {@link RunScheduler}).
+     * Option {@code -format csv|binary|both} sets the format(s) the results are written in (default csv).
+     * Option {@code -staleness n} pipelines the runs, with a maximum staleness of {@code n} (see {@link #setMaxStaleness}),
+     * and option {@code -samplers n} then samples their episodes on {@code n} threads (see {@link #setSamplerThreads}).
+     * If a run fails, its error is reported and the program exits with status 1.
+     */
     @SuppressWarnings("unchecked")
     public static void main(String[] args) {
         if (args.length > 0) {
-            int seed;
-            for (String s: args) {
+            List<Integer> seeds = new ArrayList<>();
+            int threads = 1;
+            int tasks = 1;
+            long timeout = 0;
+            int staleness = 0;
+            int samplers = 1;
+            EnumSet<ResultSink.Format> formats = EnumSet.of(ResultSink.Format.CSV);
+            for (int a = 0; a < args.length; a++) {
+                String s = args[a];
                 try {
-                    seed = Integer.parseInt(s);
+                    if (s.equals("-threads") && a + 1 < args.length) {
+                        threads = Integer.parseInt(args[++a]);
+                    } else if (s.equals("-tasks") && a + 1 < args.length) {
+                        tasks = Integer.parseInt(args[++a]);
+                    } else if (s.equals("-timeout") && a + 1 < args.length) {
+                        timeout = Long.parseLong(args[++a]);
+                    } else if (s.equals("-staleness") && a + 1 < args.length) {
+                        staleness = Integer.parseInt(args[++a]);
+                    } else if (s.equals("-samplers") && a + 1 < args.length) {
+                        samplers = Integer.parseInt(args[++a]);
+                    } else if (s.equals("-format") && a + 1 < args.length) {
+                        String format = args[++a];
+                        formats = format.equals("both") ? EnumSet.allOf(ResultSink.Format.class) : EnumSet.of(ResultSink.Format.valueOf(format.toUpperCase()));
+                    } else if (s.contains(":")) {
+                        int first = Integer.parseInt(s.substring(0, s.indexOf(':')));
+                        int last = Integer.parseInt(s.substring(s.indexOf(':') + 1));
+                        for (int seed = first; seed <= last; seed++) {
+                            seeds.add(seed);
+                        }
+                    } else {
+                        seeds.add(Integer.parseInt(s));
+                    }
                 } catch (NumberFormatException e) {
                     System.out.println("skipping invalid seed " + s);
-                    continue;
                 }
-                System.out.println("running with seed " + s);
-                LearnVerify l = new LearnVerify(seed);
-                l.basic();
-                l.switching_environment();
-                l.gridStrengthEval();
+            }
+            RunScheduler scheduler = null;
+            if (tasks > 1 || timeout > 0) {
+                scheduler = new RunScheduler(tasks, tasks, timeout);
+            }
+            try {
+                if (threads > 1) {
+                    runSeeds(seeds, threads, scheduler, formats, staleness, samplers);
+                } else {
+                    for (int seed : seeds) {
+                        runSeed(seed, scheduler, formats, staleness, samplers);
+                    }
+                }
+            } catch (RuntimeException e) {
+                // Other runs may still be going on, so exit rather than wait for them
+                System.out.println("Error in LearnVerify.main()  :  " + e);
+                e.printStackTrace();
+                System.exit(1);
+            }
+            if (scheduler != null) {
+                scheduler.shutdown();
             }
         }
         else {
@@ -61,6 +175,50 @@ public class LearnVerify {
         }
     }
 
+    /**
+     * Run the experiments for a single seed, comparing the estimators on {@code scheduler} (if non-null),
+     * writing the results in the given formats, and with the given maximum staleness of the sampling strategy
+     * and number of sampler threads.
+     */
+    public static void runSeed(int seed, RunScheduler scheduler, EnumSet<ResultSink.Format> formats, int maxStaleness, int samplerThreads) {
+        System.out.println("running with seed " + seed);
+        LearnVerify l = new LearnVerify(seed);
+        l.setScheduler(scheduler);
+        l.setResultFormats(formats);
+        l.setMaxStaleness(maxStaleness);
+        l.setSamplerThreads(samplerThreads);
+        l.basic();
+        l.switching_environment();
+        l.gridStrengthEval();
+    }
+
+    /**
+     * Run the experiments for each of the seeds on a pool of {@code threads} threads.
+     * Each seed has its own {@link LearnVerify} (and so its own {@link Prism} and simulator),
+     * so the results are the same as when running each seed separately;
+     * the parsed models and SULs are shared through the {@link ModelCache}.
+     * If {@code scheduler} is non-null, the estimators are compared on it.
+     * If the run of a seed fails, its exception is rethrown (unchecked, see {@link #unchecked}).
+     */
+    public static void runSeeds(List<Integer> seeds, int threads, RunScheduler scheduler, EnumSet<ResultSink.Format> formats, int maxStaleness, int samplerThreads) {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> runs = new ArrayList<>();
+        for (int seed : seeds) {
+            runs.add(pool.submit(() -> runSeed(seed, scheduler, formats, maxStaleness, samplerThreads)));
+        }
+        pool.shutdown();
+        try {
+            for (Future<?> run : runs) {
+                run.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the seeds", e);
+        } catch (ExecutionException e) {
+            throw unchecked(e.getCause());
+        }
+    }
+
     public void basic() {
         String id = "basic";
         run_basic_algorithms(new Experiment(Model.AIRCRAFT).config(1000, 1000000, seed).info(id));
@@ -69,6 +227,7 @@ public class LearnVerify {
         run_basic_algorithms(new Experiment(Model.BETTING_GAME_UNFAVOURABLE).config(7, 1000000, seed).info(id));
         run_basic_algorithms(new Experiment(Model.CHAIN_LARGE).config(100, 1000000, seed).info(id));
         run_basic_algorithms(new Experiment(Model.GRID).config(200, 1000000, seed, 20, 30).info(id));
+        awaitRuns();
     }
 
     private void run_basic_algorithms(Experiment ex) {
@@ -79,6 +238,23 @@ public class LearnVerify {
         compareSamplingStrategies("LUI" + postfix, ex, BayesianEstimatorOptimistic::new);
     }
 
+    /**
+     * Run LUI and MAP on the synthetic models (see {@link SyntheticModel}) of increasing size,
+     * to see how the learning loop scales with the number of states.
+     */
+    public void scaling() {
+        String id = "scaling";
+        for (int size : new int[] {1000, 10000, 100000}) {
+            for (Model model : new Model[] {Model.SYNTHETIC_GRID, Model.SYNTHETIC_CHAIN, Model.SYNTHETIC_RANDOM, Model.SYNTHETIC_BETTING}) {
+                Experiment ex = new Experiment(model).synthetic(size).config(1000, 100000, seed).info(id);
+                String postfix = String.format("_seed_%d", ex.seed);
+                compareSamplingStrategies("MAP_uni" + postfix, ex, MAPEstimator::new);
+                compareSamplingStrategies("LUI" + postfix, ex, BayesianEstimatorOptimistic::new);
+            }
+        }
+        awaitRuns();
+    }
+
     public void gridStrengthEval() {
         String id = "grid-strength-eval";
         String postfix = String.format("_seed_%d", seed);
@@ -108,12 +284,14 @@ public class LearnVerify {
         Experiment ex6 = new Experiment(Model.GRID).config(200, iterations, seed, 40, 50).info(id);
         label = String.format(label_format, ex6.initLowerStrength, ex6.initUpperStrength);
         compareSamplingStrategies(label, ex6, BayesianEstimatorOptimistic::new);
+        awaitRuns();
     }
 
     public void evaluate_strength() {
         String id = "evaluate_strength";
         strength_evaluation(new Experiment(Model.TINY).config(2, 500, seed).info(id));
         strength_evaluation(new Experiment(Model.TINY2).config(2, 500, seed).info(id));
+        awaitRuns();
     }
 
     private void strength_evaluation(Experiment ex) {
@@ -141,54 +319,65 @@ public class LearnVerify {
 
     public void switching_environment() {
         List<Double> strategyWeights = new ArrayList<>(List.of(1.0, 0.9, 0.8));
+        List<Integer> switching_points = new ArrayList<>(List.of(100, 1000, 10000, 100000));
         for (Double x : strategyWeights) {
             String id = "switching-weight-"+x;
-            List<Integer> switching_points = new ArrayList<>(List.of(100, 1000, 10000, 100000)); 
+            List<Experiment> before = new ArrayList<>();
+            List<Experiment> after = new ArrayList<>();
             for (Integer j : switching_points) {
-                experiment_switching_environment(
-                        new Experiment(Model.CHAIN_LARGE).config(100, j, seed).stratWeight(x).info(id),
-                        new Experiment(Model.CHAIN_LARGE2).config(100, 1000000-j, seed).stratWeight(x).info(id),
-                        j
-                );
+                before.add(new Experiment(Model.CHAIN_LARGE).config(100, j, seed).stratWeight(x).info(id));
+                after.add(new Experiment(Model.CHAIN_LARGE2).config(100, 1000000-j, seed).stratWeight(x).info(id));
             }
+            experiment_switching_environment(before, after);
         }
         for (Double x : strategyWeights) {
             String id = "switching-weight-"+x;
-            List<Integer> switching_points = new ArrayList<>(List.of(100, 1000, 10000, 100000)); 
+            List<Experiment> before = new ArrayList<>();
+            List<Experiment> after = new ArrayList<>();
             for (Integer j : switching_points) {
-                experiment_switching_environment(
-                        new Experiment(Model.BETTING_GAME_FAVOURABLE).config(7, j, seed).stratWeight(x).info(id),
-                        new Experiment(Model.BETTING_GAME_UNFAVOURABLE).config(7, 1000000-j, seed).stratWeight(x).info(id),
-                        j
-                );
+                before.add(new Experiment(Model.BETTING_GAME_FAVOURABLE).config(7, j, seed).stratWeight(x).info(id));
+                after.add(new Experiment(Model.BETTING_GAME_UNFAVOURABLE).config(7, 1000000-j, seed).stratWeight(x).info(id));
             }
+            experiment_switching_environment(before, after);
         }
+        awaitRuns();
     }
 
-    private void experiment_switching_environment(Experiment ex1, Experiment ex2, int switching_point) {
-        String postfix = String.format("_switching_point_%d_seed_%d", switching_point, seed);
-        compareSamplingStrategies("UCRL2_unbounded" + postfix, ex1, UCRL2IntervalEstimatorOptimistic::new, ex2);
-        compareSamplingStrategies("MAP_unbounded" + postfix, ex1, MAPEstimator::new, ex2);
-        compareSamplingStrategies("LUI_unbounded" + postfix, ex1, BayesianEstimatorOptimistic::new, ex2);
-
-        ex1 = ex1.setStrengthBounds(200, 300, 300);
-        ex2 = ex2.setStrengthBounds(200, 300, 300);
-        compareSamplingStrategies("UCRL2_highbound" + postfix, ex1, UCRL2IntervalEstimatorOptimistic::new, ex2);
-        compareSamplingStrategies("MAP_highbound" + postfix, ex1, MAPEstimator::new, ex2);
-        compareSamplingStrategies("LUI_highbound" + postfix, ex1, BayesianEstimatorOptimistic::new, ex2);
+    /**
+     * Compare the estimators on switching from the experiments in {@code before} to those in {@code after}
+     * (the i-th experiment of {@code before} switching to the i-th of {@code after}, after its iterations).
+     */
+    private void experiment_switching_environment(List<Experiment> before, List<Experiment> after) {
+        compareSwitchingSamplingStrategies("UCRL2_unbounded", before, UCRL2IntervalEstimatorOptimistic::new, after);
+        compareSwitchingSamplingStrategies("MAP_unbounded", before, MAPEstimator::new, after);
+        compareSwitchingSamplingStrategies("LUI_unbounded", before, BayesianEstimatorOptimistic::new, after);
+
+        setStrengthBounds(before, 200, 300, 300);
+        setStrengthBounds(after, 200, 300, 300);
+        compareSwitchingSamplingStrategies("UCRL2_highbound", before, UCRL2IntervalEstimatorOptimistic::new, after);
+        compareSwitchingSamplingStrategies("MAP_highbound", before, MAPEstimator::new, after);
+        compareSwitchingSamplingStrategies("LUI_highbound", before, BayesianEstimatorOptimistic::new, after);
+
+        setStrengthBounds(before, 20, 30, 30);
+        setStrengthBounds(after, 20, 30, 30);
+        compareSwitchingSamplingStrategies("UCRL2_lowbound", before, UCRL2IntervalEstimatorOptimistic::new, after);
+        compareSwitchingSamplingStrategies("MAP_lowbound", before, MAPEstimator::new, after);
+        compareSwitchingSamplingStrategies("LUI_lowbound", before, BayesianEstimatorOptimistic::new, after);
 
-        ex1 = ex1.setStrengthBounds(20, 30, 30);
-        ex2 = ex2.setStrengthBounds(20, 30, 30);
-        compareSamplingStrategies("UCRL2_lowbound" + postfix, ex1, UCRL2IntervalEstimatorOptimistic::new, ex2);
-        compareSamplingStrategies("MAP_lowbound" + postfix, ex1, MAPEstimator::new, ex2);
-        compareSamplingStrategies("LUI_lowbound" + postfix, ex1, BayesianEstimatorOptimistic::new, ex2);
+    }
 
+    private static void setStrengthBounds(List<Experiment> experiments, int lowerStrengthBound, int upperStrengthBound, int maxMAPStrength) {
+        for (Experiment ex : experiments) {
+            ex.setStrengthBounds(lowerStrengthBound, upperStrengthBound, maxMAPStrength);
+        }
     }
 
     @SuppressWarnings("unchecked")
     public void initializePrism() throws PrismException {
         this.prism = new Prism(new PrismDevNullLog());
-        this.prism.initialise();
+        synchronized (initialisationLock) {
+            this.prism.initialise();
+        }
         this.prism.setEngine(Prism.EXPLICIT);
         this.prism.setGenStrat(true);
     }
@@ -205,7 +394,8 @@ public class LearnVerify {
     }
 
     public String makeOutputDirectory(Experiment ex) {
-        String outputPath = String.format("results/%s/%s/", ex.experimentInfo, ex.model.toString());
+        String model = ex.isSynthetic() ? ex.model + "_" + ex.syntheticSize : ex.model.toString();
+        String outputPath = String.format("results/%s/%s/", ex.experimentInfo, model);
         try {
             Files.createDirectories(Paths.get(outputPath));
         } catch (IOException e) {
@@ -220,34 +410,222 @@ public class LearnVerify {
     }
 
     public void compareSamplingStrategies(String label, Experiment ex, EstimatorConstructor estimatorConstructor, Experiment follow_up_ex) {
+        if (scheduler != null) {
+            scheduleSamplingStrategies(label, ex, estimatorConstructor, follow_up_ex);
+            return;
+        }
         resetAll();
+        printComparisonHeader(label, ex);
+
+        Estimator estimator = estimatorConstructor.get(this.prism, ex);
+        String directoryPath = makeOutputDirectory(ex);
+
+        if (resultsExist(directoryPath, label)) {
+            return;
+        }
+        ResultSink sink = openResults(directoryPath, label, ex, estimator);
+        ArrayList<DataPoint> results = runSamplingStrategyDoublingEpoch(ex, estimator, 0, sink);
+        finishSamplingStrategies(label, ex, estimator, results, follow_up_ex, directoryPath, sink);
+    }
+
+    /**
+     * Compare the estimator on switching environments: for each i, run experiment {@code before.get(i)} and then,
+     * with the same estimator, experiment {@code after.get(i)}. The results are written to {@code label}, followed by
+     * the switching point (the iterations of {@code before.get(i)}) and the seed.
+     * <br>
+     * The experiments in {@code before} should differ only in their iterations, given in increasing order.
+     * Rather than running each of them from the start, the longest one is run once, with a snapshot (see {@link SamplingSnapshot})
+     * taken at each shorter switching point; each snapshot is then continued in its experiment of {@code after}.
+     * This gives the same results as separate runs, since their first episodes are the same.
+     * Switching points for which there are results already are skipped, so an interrupted experiment can be resumed.
+     */
+    public void compareSwitchingSamplingStrategies(String label, List<Experiment> before, EstimatorConstructor estimatorConstructor, List<Experiment> after) {
+        if (scheduler != null) {
+            scheduleSwitchingSamplingStrategies(label, before, estimatorConstructor, after);
+            return;
+        }
+        String directoryPath = makeOutputDirectory(before.get(0));
+        List<String> labels = new ArrayList<>();
+        List<Integer> pending = new ArrayList<>();
+        for (int k = 0; k < before.size(); k++) {
+            labels.add(String.format("%s_switching_point_%d_seed_%d", label, before.get(k).iterations, seed));
+            if (!resultsExist(directoryPath, labels.get(k))) {
+                pending.add(k);
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        int longest = pending.get(pending.size() - 1);
+        Experiment ex = before.get(longest);
+        resetAll();
+        printComparisonHeader(labels.get(longest), ex);
+
+        Estimator estimator = estimatorConstructor.get(this.prism, ex);
+        HashMap<Integer, SamplingSnapshot> snapshots = new HashMap<>();
+        for (int k : pending) {
+            if (k != longest) {
+                snapshots.put(before.get(k).iterations, null);
+            }
+        }
+        ResultSink sink = openResults(directoryPath, labels.get(longest), ex, estimator);
+        ArrayList<DataPoint> results = runSamplingStrategyDoublingEpoch(ex, estimator, 0, sink, snapshots);
+        RandomNumberGenerator rng = prism.getSimulator().getRandomNumberGenerator();
+
+        for (int k : pending) {
+            if (k == longest) {
+                prism.getSimulator().setRandomNumberGenerator(rng);
+                finishSamplingStrategies(labels.get(k), ex, estimator, results, after.get(k), directoryPath, sink);
+                continue;
+            }
+            SamplingSnapshot snapshot = snapshots.get(before.get(k).iterations);
+            // The SUL was only built for the longest experiment
+            before.get(k).setTrueOpt(ex.trueOpt);
+            ResultSink snapshotSink = openResults(directoryPath, labels.get(k), before.get(k), estimator);
+            ArrayList<DataPoint> snapshotResults = results == null ? null : endRunAt(snapshot, snapshotSink);
+            finishSamplingStrategies(labels.get(k), before.get(k), snapshot == null ? null : snapshot.estimator, snapshotResults, after.get(k), directoryPath, snapshotSink);
+        }
+    }
+
+    private void printComparisonHeader(String label, Experiment ex) {
         System.out.println("\n\n\n\n%------\n%Compare sampling strategies on\n%  Model: " + ex.model + "\n%  max_episode_length: "
                 + ex.max_episode_length + "\n%  iterations: " + ex.iterations + "\n%  Prior strength: ["
                 + ex.initLowerStrength + ", " + ex.initUpperStrength + "]\n%------");
 
         if (verbose)
             System.out.printf("%s, seed %d\n", label, ex.seed);
+    }
 
-        Estimator estimator = estimatorConstructor.get(this.prism, ex);
-        String directoryPath = makeOutputDirectory(ex);
-
-        String path = directoryPath + label +".csv";
-        if (Files.exists(Paths.get(path))) {
-            System.out.printf("File %s already exists.%n", path);
-            return;
+    /**
+     * Are there results for {@code label} already (in any of the result formats)?
+     */
+    private boolean resultsExist(String directoryPath, String label) {
+        for (ResultSink.Format format : resultFormats) {
+            String path = directoryPath + label + format.extension();
+            if (Files.exists(Paths.get(path))) {
+                System.out.printf("File %s already exists.%n", path);
+                return true;
+            }
         }
+        return false;
+    }
 
+    /**
+     * Write the configuration of a run of {@code estimator} on {@code ex}, and open the files for its results.
+     */
+    private ResultSink openResults(String directoryPath, String label, Experiment ex, Estimator estimator) {
         ex.dumpConfiguration(directoryPath, label, estimator.getName());
 
-        ArrayList<DataPoint> results = runSamplingStrategyDoublingEpoch(ex, estimator);
-        if (follow_up_ex != null) {
+        ResultSink sink = null;
+        try {
+            sink = new ResultSink(directoryPath, label, resultFormats);
+        } catch (IOException e) {
+            System.out.println("Error opening results file in LearnVerify.compareSamplingStrategies()  :  " + e.getMessage());
+            System.exit(1);
+        }
+        return sink;
+    }
+
+    /**
+     * Finish a run on {@code ex} that gave {@code results} (null if it timed out): continue it in {@code follow_up_ex}
+     * (if non-null), and then keep its results in {@code sink}, or discard them if it timed out.
+     */
+    private void finishSamplingStrategies(String label, Experiment ex, Estimator estimator, ArrayList<DataPoint> results, Experiment follow_up_ex, String directoryPath, ResultSink sink) {
+        if (results != null && follow_up_ex != null) {
             estimator.set_experiment(follow_up_ex);
-            results.addAll( runSamplingStrategyDoublingEpoch(follow_up_ex, estimator, ex.iterations));
-            follow_up_ex.dumpConfiguration(directoryPath, label + "_part_2", estimator.getName());
+            ArrayList<DataPoint> follow_up_results = runSamplingStrategyDoublingEpoch(follow_up_ex, estimator, ex.iterations, sink);
+            if (follow_up_results == null) {
+                results = null;
+            } else {
+                results.addAll(follow_up_results);
+                follow_up_ex.dumpConfiguration(directoryPath, label + "_part_2", estimator.getName());
+            }
         }
+        try {
+            if (results == null) {
+                sink.discard();
+                System.out.printf("%s, seed %d timed out; no results written.%n", label, ex.seed);
+                return;
+            }
+            sink.close();
+        } catch (IOException e) {
+            System.out.println("Error writing results in LearnVerify.compareSamplingStrategies()  :  " + e.getMessage());
+            System.exit(1);
+        }
+    }
 
-        DataProcessor dp = new DataProcessor();
-        dp.dumpRawData(directoryPath, label, results, ex);
+    /**
+     * Schedule {@code compareSamplingStrategies} on the scheduler, in a LearnVerify of its own (and so with its own {@link Prism}).
+     * The experiments are copied, since the caller may change them for the next comparison.
+     */
+    private void scheduleSamplingStrategies(String label, Experiment ex, EstimatorConstructor estimatorConstructor, Experiment follow_up_ex) {
+        LearnVerify run = new LearnVerify(seed);
+        run.verbose = this.verbose;
+        run.resultFormats = this.resultFormats;
+        run.maxStaleness = this.maxStaleness;
+        run.samplerThreads = this.samplerThreads;
+        Experiment runEx = ex.copy();
+        Experiment runFollowUpEx = follow_up_ex == null ? null : follow_up_ex.copy();
+        try {
+            scheduledRuns.add(scheduler.submit(() -> run.compareSamplingStrategies(label, runEx, estimatorConstructor, runFollowUpEx)));
+        } catch (InterruptedException e) {
+            System.out.println("Interrupted in LearnVerify.scheduleSamplingStrategies()  :  " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Schedule {@code compareSwitchingSamplingStrategies} on the scheduler, as a single run (since the switching points
+     * share the first part of the run), in a LearnVerify of its own.
+     */
+    private void scheduleSwitchingSamplingStrategies(String label, List<Experiment> before, EstimatorConstructor estimatorConstructor, List<Experiment> after) {
+        LearnVerify run = new LearnVerify(seed);
+        run.verbose = this.verbose;
+        run.resultFormats = this.resultFormats;
+        run.maxStaleness = this.maxStaleness;
+        run.samplerThreads = this.samplerThreads;
+        List<Experiment> runBefore = new ArrayList<>();
+        List<Experiment> runAfter = new ArrayList<>();
+        for (int k = 0; k < before.size(); k++) {
+            runBefore.add(before.get(k).copy());
+            runAfter.add(after.get(k).copy());
+        }
+        try {
+            scheduledRuns.add(scheduler.submit(() -> run.compareSwitchingSamplingStrategies(label, runBefore, estimatorConstructor, runAfter)));
+        } catch (InterruptedException e) {
+            System.out.println("Interrupted in LearnVerify.scheduleSwitchingSamplingStrategies()  :  " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Wait until all comparisons scheduled by this LearnVerify have finished.
+     * If one of them failed, its exception is rethrown (unchecked, see {@link #unchecked}).
+     */
+    public void awaitRuns() {
+        try {
+            for (Future<?> run : scheduledRuns) {
+                run.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the scheduled runs", e);
+        } catch (ExecutionException e) {
+            throw unchecked(e.getCause());
+        } finally {
+            scheduledRuns.clear();
+        }
+    }
+
+    /**
+     * Get the failure {@code cause} of a run (from an {@link ExecutionException}) as an unchecked exception to rethrow:
+     * itself if it is unchecked, wrapped in a {@link RuntimeException} otherwise. Errors are rethrown directly.
+     */
+    private static RuntimeException unchecked(Throwable cause) {
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
     }
 
     public ArrayList<DataPoint> runSamplingStrategyDoublingEpoch(Experiment ex, Estimator estimator) {
@@ -255,6 +633,26 @@ public class LearnVerify {
     }
 
     public ArrayList<DataPoint> runSamplingStrategyDoublingEpoch(Experiment ex, Estimator estimator, int past_iterations) {
+        return runSamplingStrategyDoublingEpoch(ex, estimator, past_iterations, null);
+    }
+
+    /**
+     * Run the estimator on the experiment, recomputing the sampling strategy whenever enough samples were collected.
+     * The data points are returned, and (if {@code sink} is non-null) also written to {@code sink} as they are produced.
+     */
+    public ArrayList<DataPoint> runSamplingStrategyDoublingEpoch(Experiment ex, Estimator estimator, int past_iterations, ResultSink sink) {
+        return runSamplingStrategyDoublingEpoch(ex, estimator, past_iterations, sink, null);
+    }
+
+    /**
+     * Run the estimator on the experiment, as {@link #runSamplingStrategyDoublingEpoch(Experiment, Estimator, int, ResultSink)},
+     * taking a snapshot of the run (see {@link SamplingSnapshot}) after each number of episodes that is a key of {@code snapshots}
+     * (if non-null), which is stored as its value. Snapshots are only taken before the last episode.
+     * <br>
+     * Each sampling strategy gets the next version (see {@link Estimator#getStrategyVersion()}), which the data points record.
+     * Runs without snapshots are pipelined if the maximum staleness is positive (see {@link #runPipelined}).
+     */
+    private ArrayList<DataPoint> runSamplingStrategyDoublingEpoch(Experiment ex, Estimator estimator, int past_iterations, ResultSink sink, Map<Integer, SamplingSnapshot> snapshots) {
         try {
             MDP<Double> SUL = estimator.getSUL();
             if (this.modelStats == null) {
@@ -262,6 +660,10 @@ public class LearnVerify {
                 System.out.println(this.modelStats);
             }
 
+            EpochMetrics initialMetrics = new EpochMetrics();
+            initialMetrics.start();
+            estimator.setMetrics(initialMetrics);
+
             ObservationSampler observationSampler = new ObservationSampler(this.prism, SUL, estimator.getTerminatingStates());
             observationSampler.setTransitionsOfInterest(estimator.getTransitionsOfInterest());
 
@@ -271,22 +673,35 @@ public class LearnVerify {
 
             ArrayList<DataPoint> results = new ArrayList<>();
             if (past_iterations == 0) {
-                results.add(new DataPoint(0, past_iterations, currentResults));
+                results.add(new DataPoint(0, past_iterations, currentResults, estimator.getStrategyVersion(), -1));
+                if (sink != null) sink.add(results.get(results.size() - 1));
             }
+            // The first epoch is the setup of the run, up to the initial results
+            ArrayList<EpochMetrics> epochs = new ArrayList<>();
+            endEpoch(estimator, past_iterations, 0, 0, epochs, sink);
             int samples = 0;
             Strategy samplingStrategy = estimator.buildStrategy();
+            if (past_iterations > 0) {
+                // The strategy of the previous run was rebuilt for this experiment
+                estimator.setStrategyVersion(estimator.getStrategyVersion() + 1);
+            }
+            if (maxStaleness > 0 && snapshots == null) {
+                return runPipelined(ex, estimator, past_iterations, sink, observationSampler, samplingStrategy, results, epochs);
+            }
             for (int i = past_iterations; i < ex.iterations + past_iterations; i++) {
+                if (RunScheduler.isCurrentRunExpired()) {
+                    return null;
+                }
+                long start = System.nanoTime();
                 int sampled = observationSampler.simulateEpisode(ex.max_episode_length, samplingStrategy);
+                estimator.getMetrics().addSampling(sampled, System.nanoTime() - start);
                 samples += sampled;
                 boolean last_iteration = i == ex.iterations + past_iterations - 1;
+                if (snapshots != null && snapshots.containsKey(i + 1) && !last_iteration) {
+                    snapshots.put(i + 1, new SamplingSnapshot(estimator, observationSampler.getObservationCounts(), prism.getSimulator().getRandomNumberGenerator(), i + 1, samples, results, epochs));
+                }
                 if (observationSampler.collectedEnoughSamples() || last_iteration) {
-                    if (this.verbose) System.out.println("Episode " + i + ". Recomputing sampling strategy.");
-                    estimator.setObservationMaps(observationSampler.getSamplesMap(), observationSampler.getSampleSizeMap());
-                    samplingStrategy = estimator.buildStrategy();
-                    currentResults = estimator.getCurrentResults();
-                    observationSampler.resetObservationSequence();
-                    if (this.verbose) System.out.println("New performance " + currentResults[1]);
-                    results.add(new DataPoint(samples, i+1, currentResults));
+                    samplingStrategy = recomputeSamplingStrategy(estimator, observationSampler.getObservationCounts(), i + 1, samples, estimator.getStrategyVersion(), results, epochs, sink);
                 }
             }
             if (this.verbose) {
@@ -299,10 +714,251 @@ public class LearnVerify {
         } catch (PrismException e) {
             System.out.println("Error: " + e.getMessage());
             System.exit(1);
+        } catch (IOException e) {
+            System.out.println("Error writing results: " + e.getMessage());
+            System.exit(1);
         }
         prism.closeDown();
         return null;
     }
 
+    /**
+     * Pipelined version of the loop of {@link #runSamplingStrategyDoublingEpoch}, from the initial sampling strategy on:
+     * the episodes are sampled on the current thread, while the sampling strategy is recomputed on a learner thread.
+     * When enough samples were collected, the observations are handed to the learner (as a copy of the counts),
+     * and sampling goes on with the current strategy, which the learner replaces as soon as it has recomputed it.
+     * Sampling only waits for the learner when more than {@link #maxStaleness} recomputations are pending
+     * (or for the last one, at the end of the run).
+     * <br>
+     * The learner recomputes the strategies in the order the observations were handed to it, so the estimator is
+     * updated with all of them, as in the sequential loop; but the episodes are sampled with older strategies, and
+     * which ones depends on the timing of the threads. The data points record the version of the strategy they
+     * report on and of the strategy the last of their episodes was sampled with. The time and allocation in the
+     * epoch metrics are those of the learner, from the start of the recomputation.
+     * <br>
+     * With more than one sampler thread (see {@link #setSamplerThreads}), the episodes are sampled in rounds of one
+     * episode per thread, each thread with observation counts and a random number generator of its own (seeded from
+     * that of the run). After each round, their observations are added to those of the run, in thread order,
+     * and it is checked whether enough samples were collected.
+     */
+    private ArrayList<DataPoint> runPipelined(Experiment ex, Estimator estimator, int past_iterations, ResultSink sink, ObservationSampler observationSampler,
+            Strategy initialStrategy, ArrayList<DataPoint> results, ArrayList<EpochMetrics> epochs) throws PrismException, IOException {
+        AtomicReference<VersionedStrategy> current = new AtomicReference<>(new VersionedStrategy(initialStrategy, estimator.getStrategyVersion()));
+        ExecutorService learner = Executors.newSingleThreadExecutor();
+        ArrayDeque<Future<?>> pending = new ArrayDeque<>();
+        int samples = 0;
+        long samplingSteps = 0;
+        long samplingTime = 0;
+        int end = ex.iterations + past_iterations;
+        // Samplers for the sampler threads (if more than one), each with counts and a random number generator of its own
+        List<ObservationSampler> forks = new ArrayList<>();
+        ExecutorService samplerPool = null;
+        if (samplerThreads > 1) {
+            RandomNumberGenerator rng = prism.getSimulator().getRandomNumberGenerator();
+            for (int k = 0; k < samplerThreads; k++) {
+                forks.add(observationSampler.fork(new RandomNumberGenerator(rng.randomUnifInt(Integer.MAX_VALUE))));
+            }
+            samplerPool = Executors.newFixedThreadPool(samplerThreads);
+        }
+        try {
+            for (int i = past_iterations; i < end;) {
+                if (RunScheduler.isCurrentRunExpired()) {
+                    return null;
+                }
+                VersionedStrategy samplingStrategy = current.get();
+                long start = System.nanoTime();
+                int sampled;
+                if (forks.isEmpty()) {
+                    sampled = observationSampler.simulateEpisode(ex.max_episode_length, samplingStrategy.strategy);
+                    i++;
+                } else {
+                    int round = Math.min(forks.size(), end - i);
+                    sampled = sampleRound(samplerPool, forks.subList(0, round), observationSampler, ex.max_episode_length, samplingStrategy.strategy);
+                    i += round;
+                }
+                samplingTime += System.nanoTime() - start;
+                samplingSteps += sampled;
+                samples += sampled;
+                boolean last_iteration = i == end;
+                if (observationSampler.collectedEnoughSamples() || last_iteration) {
+                    ObservationCounts counts = observationSampler.getObservationCounts().copy();
+                    observationSampler.resetObservationSequence();
+                    int episodes = i;
+                    int epochSamples = samples;
+                    long epochSamplingSteps = samplingSteps;
+                    long epochSamplingTime = samplingTime;
+                    pending.add(learner.submit(() -> {
+                        // The metrics of the epoch are measured from here (see EpochMetrics.start())
+                        estimator.getMetrics().start();
+                        estimator.getMetrics().addSampling(epochSamplingSteps, epochSamplingTime);
+                        Strategy strategy = recomputeSamplingStrategy(estimator, counts, episodes, epochSamples, samplingStrategy.version, results, epochs, sink);
+                        current.set(new VersionedStrategy(strategy, estimator.getStrategyVersion()));
+                        return null;
+                    }));
+                    samplingSteps = 0;
+                    samplingTime = 0;
+                }
+                while (!pending.isEmpty() && (pending.peek().isDone() || pending.size() > maxStaleness || last_iteration)) {
+                    pending.remove().get();
+                }
+            }
+        } catch (InterruptedException e) {
+            System.out.println("Interrupted in LearnVerify.runPipelined()  :  " + e.getMessage());
+            System.exit(1);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof PrismException) {
+                throw (PrismException) e.getCause();
+            }
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        } finally {
+            if (samplerPool != null) {
+                samplerPool.shutdown();
+            }
+            // Let the pending recomputations (e.g. of a run that timed out) finish, since they write to the results
+            learner.shutdown();
+            try {
+                learner.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (this.verbose) {
+            System.out.println("DONE");
+        }
+        return results;
+    }
+
+    /**
+     * Sample one episode with each of the {@code samplers} (forks of {@code observationSampler}) in parallel on {@code pool},
+     * resolving nondeterminism with {@code strategy}, and add their observations to those of {@code observationSampler},
+     * in the order of {@code samplers}. Returns the number of steps sampled.
+     */
+    private static int sampleRound(ExecutorService pool, List<ObservationSampler> samplers, ObservationSampler observationSampler, int horizon, Strategy strategy)
+            throws InterruptedException, ExecutionException {
+        List<Future<Integer>> episodes = new ArrayList<>();
+        for (ObservationSampler sampler : samplers) {
+            episodes.add(pool.submit(() -> sampler.simulateEpisode(horizon, strategy)));
+        }
+        int sampled = 0;
+        for (Future<Integer> episode : episodes) {
+            sampled += episode.get();
+        }
+        for (ObservationSampler sampler : samplers) {
+            observationSampler.mergeObservations(sampler);
+        }
+        return sampled;
+    }
+
+    /**
+     * Recompute the sampling strategy of the estimator from {@code counts} (whose observation sequence is then reset),
+     * giving it the next version, and add the data point after {@code episodes} episodes, the last of which was sampled
+     * with version {@code samplingVersion}, to {@code results} (and to {@code sink}, if non-null).
+     * This ends the epoch (see {@link #endEpoch}).
+     */
+    private Strategy recomputeSamplingStrategy(Estimator estimator, ObservationCounts counts, int episodes, int samples, int samplingVersion, ArrayList<DataPoint> results, ArrayList<EpochMetrics> epochs, ResultSink sink) throws PrismException, IOException {
+        if (this.verbose) System.out.println("Episode " + (episodes - 1) + ". Recomputing sampling strategy.");
+        estimator.setObservationCounts(counts);
+        Strategy samplingStrategy = estimator.buildStrategy();
+        estimator.setStrategyVersion(estimator.getStrategyVersion() + 1);
+        double[] currentResults = estimator.getCurrentResults();
+        int touchedChoices = counts.getNumTouchedChoices();
+        counts.reset();
+        if (this.verbose) System.out.println("New performance " + currentResults[1]);
+        results.add(new DataPoint(samples, episodes, currentResults, estimator.getStrategyVersion(), samplingVersion));
+        if (sink != null) sink.add(results.get(results.size() - 1));
+        endEpoch(estimator, episodes, samples, touchedChoices, epochs, sink);
+        return samplingStrategy;
+    }
+
+    /**
+     * End the current epoch of the estimator's run: add its metrics (see {@link EpochMetrics}) to {@code epochs}
+     * (and to {@code sink}, if non-null), and start the metrics of the next epoch.
+     */
+    private void endEpoch(Estimator estimator, long episodes, int samples, int touchedChoices, ArrayList<EpochMetrics> epochs, ResultSink sink) throws IOException {
+        EpochMetrics metrics = estimator.getMetrics();
+        metrics.finish(episodes, samples, touchedChoices);
+        epochs.add(metrics);
+        if (sink != null) sink.addMetrics(metrics);
+        EpochMetrics next = new EpochMetrics();
+        next.start();
+        estimator.setMetrics(next);
+    }
+
+    /**
+     * End the run at a snapshot, as if its last episode was the one the snapshot was taken after:
+     * the data points so far are written to {@code sink}, and the sampling strategy is recomputed (giving the last data point).
+     * The snapshot's random number generator is loaded into the simulator, so that the run can be continued (e.g. in
+     * another experiment) as it would have been without the snapshot. Returns null if the run timed out.
+     */
+    private ArrayList<DataPoint> endRunAt(SamplingSnapshot snapshot, ResultSink sink) {
+        if (RunScheduler.isCurrentRunExpired()) {
+            return null;
+        }
+        try {
+            ArrayList<DataPoint> results = new ArrayList<>(snapshot.results);
+            for (DataPoint point : results) {
+                sink.add(point);
+            }
+            ArrayList<EpochMetrics> epochs = new ArrayList<>(snapshot.epochs);
+            for (EpochMetrics metrics : epochs) {
+                sink.addMetrics(metrics);
+            }
+            prism.getSimulator().setRandomNumberGenerator(snapshot.rng);
+            snapshot.estimator.getMetrics().start();
+            recomputeSamplingStrategy(snapshot.estimator, snapshot.counts, snapshot.episodes, snapshot.samples, snapshot.estimator.getStrategyVersion(), results, epochs, sink);
+            return results;
+        } catch (PrismException e) {
+            System.out.println("Error: " + e.getMessage());
+            System.exit(1);
+        } catch (IOException e) {
+            System.out.println("Error writing results: " + e.getMessage());
+            System.exit(1);
+        }
+        return null;
+    }
+
+    /**
+     * A sampling strategy with its version, as handed from the learner to the sampler in {@link #runPipelined}.
+     */
+    private static class VersionedStrategy {
+        private final Strategy strategy;
+        private final int version;
+
+        private VersionedStrategy(Strategy strategy, int version) {
+            this.strategy = strategy;
+            this.version = version;
+        }
+    }
+
+    /**
+     * The state of a run of {@link #runSamplingStrategyDoublingEpoch} after some episode, from which the run can be
+     * continued independently of the run it was taken from: copies of the estimator (with its intervals, strengths
+     * or priors), of the observation counts (of the current epoch, and accumulated over the previous ones) and
+     * of the simulator's random number generator, and the number of samples, the data points and the metrics of the epochs so far.
+     */
+    private static class SamplingSnapshot {
+        private final Estimator estimator;
+        private final ObservationCounts counts;
+        private final RandomNumberGenerator rng;
+        private final int episodes;
+        private final int samples;
+        private final ArrayList<DataPoint> results;
+        private final ArrayList<EpochMetrics> epochs;
+
+        private SamplingSnapshot(Estimator estimator, ObservationCounts counts, RandomNumberGenerator rng, int episodes, int samples, ArrayList<DataPoint> results, ArrayList<EpochMetrics> epochs) {
+            this.estimator = estimator.copy();
+            this.counts = counts.copy();
+            this.estimator.setObservationCounts(this.counts);
+            this.rng = new RandomNumberGenerator(rng);
+            this.episodes = episodes;
+            this.samples = samples;
+            this.results = new ArrayList<>(results);
+            this.epochs = new ArrayList<>(epochs);
+        }
+    }
+
 
 }
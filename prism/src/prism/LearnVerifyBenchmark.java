@@ -0,0 +1,238 @@
+package prism;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import explicit.IMDPModelChecker;
+import parser.ast.Expression;
+import prism.Experiment.Model;
+import strat.MDStrategy;
+import strat.Strategy;
+
+/**
+ * Micro-benchmark of the stages of the learn-and-verify loop of {@link LearnVerify} (with the LUI estimator),
+ * to measure their cost and spot regressions:
+ * <ul>
+ * <li>simulating an episode ({@link ObservationSampler#simulateEpisode}),</li>
+ * <li>updating the intervals from the observations ({@link BayesianEstimator#updateIntervalsSAConflict}),</li>
+ * <li>updating the estimate with them ({@link BayesianEstimator#updateIMDP}),</li>
+ * <li>solving the robust IMDP problem (by {@code IMDPModelChecker.computeReachProbs} or {@code computeReachRewards}),
+ *     from scratch and, after an (unmeasured) update of the estimate, warm-started from the previous solution as in the loop,</li>
+ * <li>checking the induced DTMC on the SUL ({@link BayesianEstimator#checkDTMC}).</li>
+ * </ul>
+ * Before measuring, each model is learnt for some episodes (as in the loop), so that the estimate is realistic.
+ * Each stage is then repeated for a warm-up period and for a number of measurement periods, each giving the
+ * throughput (operations per second); the allocation rate is measured with the JVM's per-thread allocation counter.
+ * <br>
+ * Usage: {@code PRISM_MAINCLASS=prism.LearnVerifyBenchmark bin/prism [-episodes n] [-warmup ms] [-iterations n] [-time ms] [-size n] [model ...]},
+ * where the models are those of {@link Experiment.Model} (by default those of {@link LearnVerify#basic()});
+ * the synthetic ones (see {@link SyntheticModel}) have about {@code -size} states (default 1000), to see how the stages scale.
+ * Results are only comparable between runs on the same machine (and JVM).
+ */
+public class LearnVerifyBenchmark
+{
+	/** A stage of the loop, as benchmarked */
+	private interface Stage
+	{
+		void run() throws PrismException;
+	}
+
+	/** Number of episodes learnt before measuring */
+	private int episodes = 1000;
+	/** Warm-up time per stage (ms) */
+	private long warmupTime = 1000;
+	/** Number of measurement periods per stage */
+	private int iterations = 5;
+	/** Time of each measurement period (ms) */
+	private long iterationTime = 1000;
+	private int seed = 1;
+	/** Size of the synthetic models */
+	private int syntheticSize = 1000;
+
+	/** Written by the stages, so that their results are not optimised away */
+	private static volatile Object sink;
+
+	private static final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	public static void main(String[] args)
+	{
+		LearnVerifyBenchmark benchmark = new LearnVerifyBenchmark();
+		List<Model> models = new ArrayList<>();
+		for (int a = 0; a < args.length; a++) {
+			String s = args[a];
+			try {
+				if (s.equals("-episodes") && a + 1 < args.length) {
+					benchmark.episodes = Integer.parseInt(args[++a]);
+				} else if (s.equals("-warmup") && a + 1 < args.length) {
+					benchmark.warmupTime = Long.parseLong(args[++a]);
+				} else if (s.equals("-iterations") && a + 1 < args.length) {
+					benchmark.iterations = Integer.parseInt(args[++a]);
+				} else if (s.equals("-time") && a + 1 < args.length) {
+					benchmark.iterationTime = Long.parseLong(args[++a]);
+				} else if (s.equals("-size") && a + 1 < args.length) {
+					benchmark.syntheticSize = Integer.parseInt(args[++a]);
+				} else {
+					models.add(Model.valueOf(s.toUpperCase()));
+				}
+			} catch (IllegalArgumentException e) {
+				System.out.println("skipping invalid argument " + s);
+			}
+		}
+		if (models.isEmpty()) {
+			models = List.of(Model.GRID, Model.CHAIN_LARGE, Model.AIRCRAFT, Model.BANDIT, Model.BETTING_GAME_FAVOURABLE);
+		}
+		System.out.printf("%-24s %-28s %14s %14s %14s %12s%n", "model", "stage", "ops/s", "min ops/s", "bytes/op", "MB/s");
+		try {
+			for (Model model : models) {
+				benchmark.run(model);
+			}
+		} catch (PrismException e) {
+			System.out.println("Error: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Get the experiment for a model, as in {@link LearnVerify#basic()} (or {@link LearnVerify#scaling()}).
+	 */
+	private Experiment getExperiment(Model model)
+	{
+		switch (model) {
+		case AIRCRAFT:
+			return new Experiment(model).config(1000, episodes, seed);
+		case BANDIT:
+		case BETTING_GAME_FAVOURABLE:
+			return new Experiment(model).config(model == Model.BANDIT ? 100 : 7, episodes, seed).stratWeight(0.9);
+		case BETTING_GAME_UNFAVOURABLE:
+			return new Experiment(model).config(7, episodes, seed);
+		case GRID:
+			return new Experiment(model).config(200, episodes, seed, 20, 30);
+		case SYNTHETIC_GRID:
+		case SYNTHETIC_CHAIN:
+		case SYNTHETIC_RANDOM:
+		case SYNTHETIC_BETTING:
+			return new Experiment(model).synthetic(syntheticSize).config(1000, episodes, seed);
+		default:
+			return new Experiment(model).config(100, episodes, seed);
+		}
+	}
+
+	private void run(Model model) throws PrismException
+	{
+		Prism prism = new Prism(new PrismDevNullLog());
+		prism.initialise();
+		prism.setEngine(Prism.EXPLICIT);
+		prism.setGenStrat(true);
+		prism.setSimulatorSeed(seed);
+
+		Experiment ex = getExperiment(model);
+		BayesianEstimator estimator = new BayesianEstimatorOptimistic(prism, ex);
+		ObservationSampler sampler = new ObservationSampler(prism, estimator.getSUL(), estimator.getTerminatingStates());
+		sampler.setTransitionsOfInterest(estimator.getTransitionsOfInterest());
+
+		// Learn for a while, as in LearnVerify.runSamplingStrategyDoublingEpoch
+		estimator.getInitialResults();
+		Strategy samplingStrategy = estimator.buildStrategy();
+		for (int i = 0; i < ex.iterations; i++) {
+			sampler.simulateEpisode(ex.max_episode_length, samplingStrategy);
+			if (sampler.collectedEnoughSamples()) {
+				estimator.setObservationCounts(sampler.getObservationCounts());
+				samplingStrategy = estimator.buildStrategy();
+				estimator.getCurrentResults();
+				sampler.resetObservationSequence();
+			}
+		}
+		// Observations of the current sequence, for the updates
+		sampler.simulateEpisode(ex.max_episode_length, samplingStrategy);
+		estimator.setObservationCounts(sampler.getObservationCounts());
+
+		String reach = ex.type == Experiment.Type.REACH ? "computeReachProbs" : "computeReachRewards";
+		IMDPModelChecker mc = estimator.specs.getIMDPModelChecker(true);
+		Expression expr = estimator.specs.getIMDPExpression(true);
+		MDStrategy strat = (MDStrategy) estimator.modelCheckIMDP(true).getStrategy();
+		final Strategy episodeStrategy = samplingStrategy;
+
+		// Each update is of the observations of a new episode (as in the loop, the observation sequence is reset after the
+		// update), so that the estimate evolves as when learning; the stages that change the estimate come last
+		Stage newEpisode = () -> {
+			sampler.resetObservationSequence();
+			sampler.simulateEpisode(ex.max_episode_length, episodeStrategy);
+		};
+		Stage update = () -> {
+			newEpisode.run();
+			estimator.updateIntervalsSAConflict();
+			estimator.updateIMDP();
+		};
+		measure(model, "simulateEpisode", null, () -> sink = sampler.simulateEpisode(ex.max_episode_length, episodeStrategy));
+		measure(model, reach + " (cold)", null, () -> {
+			mc.setWarmStart(null, null);
+			sink = mc.check(estimator.getEstimate(), expr);
+		});
+		measure(model, "checkDTMC", null, () -> sink = estimator.checkDTMC(strat));
+		// As in the loop, the warm start is from the solution for the estimate before an update
+		measure(model, reach + " (warm)", update, () -> sink = estimator.modelCheckIMDP(true));
+		measure(model, "updateIntervalsSAConflict", newEpisode, () -> estimator.updateIntervalsSAConflict());
+		measure(model, "updateIMDP", () -> {
+			newEpisode.run();
+			estimator.updateIntervalsSAConflict();
+		}, () -> sink = estimator.updateIMDP());
+		prism.closeDown();
+	}
+
+	/**
+	 * Benchmark a stage, and print its throughput (mean and minimum over the measurement periods) and allocation rate.
+	 * If {@code setup} is non-null, it is run before each run of the stage (but not measured).
+	 */
+	private void measure(Model model, String name, Stage setup, Stage stage) throws PrismException
+	{
+		repeat(setup, stage, warmupTime);
+		long totalOps = 0;
+		long totalTime = 0;
+		long totalBytes = 0;
+		double minThroughput = Double.POSITIVE_INFINITY;
+		for (int i = 0; i < iterations; i++) {
+			long[] run = repeat(setup, stage, iterationTime);
+			totalOps += run[0];
+			totalTime += run[1];
+			totalBytes += run[2];
+			minThroughput = Math.min(minThroughput, run[0] * 1e9 / run[1]);
+		}
+		System.out.printf("%-24s %-28s %14.1f %14.1f %14.0f %12.1f%n", model, name, totalOps * 1e9 / totalTime, minThroughput,
+				(double) totalBytes / totalOps, totalBytes * 1e3 / totalTime);
+	}
+
+	/**
+	 * Run a stage repeatedly (each time after {@code setup}, if non-null) until it has taken {@code time} ms.
+	 * Returns the number of runs, the time they took (in ns) and the number of bytes they allocated.
+	 */
+	private static long[] repeat(Stage setup, Stage stage, long time) throws PrismException
+	{
+		long thread = Thread.currentThread().getId();
+		long limit = time * 1000000;
+		long ops = 0;
+		long elapsed = 0;
+		long bytes = 0;
+		if (setup == null) {
+			long bytesBefore = threads.getThreadAllocatedBytes(thread);
+			long start = System.nanoTime();
+			do {
+				stage.run();
+				ops++;
+				elapsed = System.nanoTime() - start;
+			} while (elapsed < limit);
+			bytes = threads.getThreadAllocatedBytes(thread) - bytesBefore;
+		} else {
+			do {
+				setup.run();
+				long bytesBefore = threads.getThreadAllocatedBytes(thread);
+				long start = System.nanoTime();
+				stage.run();
+				elapsed += System.nanoTime() - start;
+				bytes += threads.getThreadAllocatedBytes(thread) - bytesBefore;
+				ops++;
+			} while (elapsed < limit);
+		}
+		return new long[] { ops, elapsed, bytes };
+	}
+}
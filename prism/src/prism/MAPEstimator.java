@@ -4,6 +4,7 @@ import java.util.*;
 import java.util.Map.Entry;
 import explicit.IMDP;
 import explicit.IMDPSimple;
+import explicit.IMDPFromMDP;
 import explicit.MDP;
 import common.Interval;
 import explicit.Distribution;
@@ -24,8 +25,20 @@ public class MAPEstimator extends Estimator
     protected HashMap<TransitionTriple, Integer> dirichletPriorsMap;
 	protected HashMap<StateActionPair, HashSet<Integer>> successorStatesMap;
 
+	/** Sum of the priors of the transitions of each state-action pair, kept up to date with dirichletPriorsMap */
+	protected HashMap<StateActionPair, Integer> stateActionCountsMap = new HashMap<>();
+	/** Sum of the priors of all transitions */
+	protected int totalTransitionCount = 0;
+	/** Largest prior of any transition */
+	protected int maxTransitionCount = 0;
+
 	private int distance;
 
+	/** Choices (of the observation counters) whose priors changed since the estimate was last built */
+	protected BitSet changedChoices = new BitSet();
+	/** Whether all priors may have changed since the estimate was last built */
+	protected boolean allPriorsChanged = true;
+
 
     public MAPEstimator(Prism prism, Experiment ex) {
 		super(prism, ex);
@@ -35,6 +48,16 @@ public class MAPEstimator extends Estimator
 		this.name = "MAP";
 	}
 
+	@Override
+	public MAPEstimator copy() {
+		MAPEstimator copy = (MAPEstimator) super.copy();
+		copy.dirichletPriorsMap = new HashMap<>(this.dirichletPriorsMap);
+		copy.successorStatesMap = new HashMap<>(this.successorStatesMap);
+		copy.stateActionCountsMap = new HashMap<>(this.stateActionCountsMap);
+		copy.changedChoices = (BitSet) this.changedChoices.clone();
+		return copy;
+	}
+
     public void setIntervalsMap(HashMap<TransitionTriple, Interval<Double>> im) {
         this.intervalsMap = im;
     }
@@ -59,22 +82,29 @@ public class MAPEstimator extends Estimator
 				this.successorStatesMap.put(sa, successors);
 			}
 		}
+		this.recomputeCounts();
+		this.allPriorsChanged = true;
     }
 
+	/**
+	 * Recompute the sums of the priors (per state-action pair and in total) and the largest prior from dirichletPriorsMap.
+	 */
+	protected void recomputeCounts() {
+		this.stateActionCountsMap.clear();
+		this.totalTransitionCount = 0;
+		this.maxTransitionCount = 0;
+		for (Entry<TransitionTriple, Integer> entry : this.dirichletPriorsMap.entrySet()) {
+			int count = entry.getValue();
+			this.stateActionCountsMap.merge(entry.getKey().getStateAction(), count, Integer::sum);
+			this.totalTransitionCount += count;
+			this.maxTransitionCount = Integer.max(this.maxTransitionCount, count);
+		}
+	}
+
 	public Double mode(TransitionTriple t) {
 		int num = dirichletPriorsMap.get(t)-1;
-		int denum = 0;
-		int count = 0;
 		StateActionPair sa = t.getStateAction();
-		HashSet<Integer> successors = successorStatesMap.get(sa);
-		for (int successor : successors) {
-			TransitionTriple sas = new TransitionTriple(sa.getState(), sa.getAction(), successor);
-			int alpha = dirichletPriorsMap.get(sas);
-			//System.out.println(alpha);
-			denum += alpha;
-			count += 1;
-		}
-		denum -= count;
+		int denum = getStateActionCount(sa) - successorStatesMap.get(sa).size();
 
 
 		//System.out.println("num = " + num);
@@ -87,55 +117,63 @@ public class MAPEstimator extends Estimator
 	}
 
 	public int getTotalTransitionCount() {
-		int count = 0;
-		for (TransitionTriple t : dirichletPriorsMap.keySet()) {
-			count += getTransitionCount(t);
-		}
-		return count;
+		return totalTransitionCount;
 	}
 
 	public int getStateActionCount(StateActionPair sa) {
-		int count = 0;
-		HashSet<Integer> successors = successorStatesMap.get(sa);
-		for (int successor : successors) { 
-			TransitionTriple sas = new TransitionTriple(sa.getState(), sa.getAction(), successor);
-			count += dirichletPriorsMap.get(sas);
-		}
-		return count;
+		return stateActionCountsMap.get(sa);
 	}
 
 
 
 
 	public void updatePriors() {
+		long start = System.nanoTime();
 		boolean needsNormalization = false;
-		for (TransitionTriple t : this.dirichletPriorsMap.keySet()) {
-			if (this.samplesMap.containsKey(t)) {
-				this.dirichletPriorsMap.put(t, this.dirichletPriorsMap.get(t) + this.samplesMap.get(t));
-				if (this.dirichletPriorsMap.get(t) + this.samplesMap.get(t) > ex.maxMAPStrength) {
-					needsNormalization = true;
+		ObservationCounts counts = this.observationCounts;
+		for (int k = 0; k < counts.getNumTouchedChoices(); k++) {
+			int c = counts.getTouchedChoice(k);
+			StateActionPair sa = null;
+			for (int j = counts.getTransitionsStart(c); j < counts.getTransitionsEnd(c); j++) {
+				int samples = counts.getCount(j);
+				if (samples == 0) {
+					continue;
+				}
+				TransitionTriple t = counts.getTransitionTriple(j);
+				Integer prior = this.dirichletPriorsMap.get(t);
+				if (prior != null) {
+					int count = prior + samples;
+					this.dirichletPriorsMap.put(t, count);
+					if (sa == null) {
+						sa = t.getStateAction();
+					}
+					this.stateActionCountsMap.merge(sa, samples, Integer::sum);
+					this.totalTransitionCount += samples;
+					this.maxTransitionCount = Integer.max(this.maxTransitionCount, count);
+					this.changedChoices.set(c);
+					if (count + samples > ex.maxMAPStrength) {
+						needsNormalization = true;
+					}
 				}
 			}
 		}
 		if (needsNormalization)
 			normalizePriors();
+		addUpdateTime(start);
 	}
 
 	public void normalizePriors() {
 		//System.out.println(this.dirichletPriorsMap);
-		int maximum = 0;
-		double scale = 1.0;
-		for (TransitionTriple t : this.dirichletPriorsMap.keySet()) {
-			maximum = Integer.max(maximum, this.dirichletPriorsMap.get(t));
-			scale = (double) ex.maxMAPStrength / (double) maximum; 
-		}
-		for (TransitionTriple t : this.dirichletPriorsMap.keySet()) {
-			double scaledValue = scale * (double) this.dirichletPriorsMap.get(t);
+		double scale = (double) ex.maxMAPStrength / (double) this.maxTransitionCount;
+		for (Entry<TransitionTriple, Integer> entry : this.dirichletPriorsMap.entrySet()) {
+			double scaledValue = scale * (double) entry.getValue();
 			int intValue = (int) Math.ceil(scaledValue);
 			if (intValue < 2)
 				intValue = 2;
-			this.dirichletPriorsMap.put(t, intValue);
+			entry.setValue(intValue);
 		}
+		this.recomputeCounts();
+		this.allPriorsChanged = true;
 		//System.out.println(this.dirichletPriorsMap);
 	}
 
@@ -165,10 +203,13 @@ public class MAPEstimator extends Estimator
 	public double[] getCurrentResults() throws PrismException {
 		updatePriors();
 		buildPointIMDP(mdp);
-		double resultRobustMDP = round((Double) modelCheckPointEstimate(true, false).getResult());
-		double resultOptimisticMDP = round((Double) modelCheckPointEstimate(false, false).getResult());
-		MDStrategy robustStrat = computeStrategyFromEstimate(this.estimate, true);
-		MDStrategy optimisticStrat = computeStrategyFromEstimate(this.estimate, false);
+		// Each solution carries both the value and the strategy, so the IMDP is solved only once per problem
+		Result robustMDP = modelCheckPointEstimate(true, false);
+		Result optimisticMDP = modelCheckPointEstimate(false, false);
+		double resultRobustMDP = round((Double) robustMDP.getResult());
+		double resultOptimisticMDP = round((Double) optimisticMDP.getResult());
+		MDStrategy robustStrat = (MDStrategy) robustMDP.getStrategy();
+		MDStrategy optimisticStrat = (MDStrategy) optimisticMDP.getStrategy();
 		double resultRobustDTMC = round((Double) checkDTMC(robustStrat).getResult());
 		double resultOptimisticDTMC = round((Double) checkDTMC(optimisticStrat).getResult());
 		double dist = round(this.averageDistanceToSUL());
@@ -178,14 +219,8 @@ public class MAPEstimator extends Estimator
 	}
 
 	public MDStrategy computeStrategyFromEstimate(IMDP<Double> estimate) throws PrismException {
-		IMDPModelChecker mc = new IMDPModelChecker(this.prism);
-		mc.setGenStrat(true);
-		mc.setErrorOnNonConverge(false);
-		PropertiesFile pf = prism.parsePropertiesString(ex.robustSpec);
-		ModulesFileModelGenerator<?> modelGen = ModulesFileModelGenerator.create(modulesFileIMDP, this.prism);
-		mc.setModelCheckingInfo(modelGen, pf, modelGen);
-		Expression exprTarget = this.prism.parsePropertiesString(ex.robustSpec).getProperty(0);
-		Result result = mc.check(estimate, exprTarget);
+		IMDPModelChecker mc = specs.getIMDPModelChecker(true);
+		Result result = checkIMDP(mc, estimate, specs.getIMDPExpression(true), specs.getIMDPSpec(true));
 		MDStrategy strat = (MDStrategy) result.getStrategy();
 		//System.out.println("Strategy = " + strat);    // strat is null
 		return strat;
@@ -208,18 +243,12 @@ public class MAPEstimator extends Estimator
 
 
 	public Result checkDTMC(MDStrategy strat) throws PrismException {
-		MDPExplicit<Double> mdp = (MDPExplicit<Double>) this.prism.getBuiltModelExplicit();
-		DTMC<Double> dtmc = (DTMC<Double>) mdp.constructInducedModel(strat);
-		DTMCModelChecker mc = new DTMCModelChecker(this.prism);
-		mc.setErrorOnNonConverge(false);
-		mc.setGenStrat(true);
-		PropertiesFile pf = prism.parsePropertiesString(ex.dtmcSpec);
-		ModulesFile modulesFileDTMC = (ModulesFile) modulesFileIMDP.deepCopy();
-		modulesFileDTMC.setModelType(ModelType.DTMC);
-		ModulesFileModelGenerator<?> modelGen = ModulesFileModelGenerator.create(modulesFileDTMC, this.prism);
-		RewardGeneratorMDStrat<?> rewGen = new RewardGeneratorMDStrat(modelGen, mdp, strat);
-		mc.setModelCheckingInfo(modelGen, pf, rewGen);
-		Result result = mc.check(dtmc, pf.getProperty(0));
+		long start = System.nanoTime();
+		MDPExplicit<Double> mdp = (MDPExplicit<Double>) this.mdp;
+		DTMC<Double> dtmc = specs.getInducedDTMC(mdp, strat);
+		DTMCModelChecker mc = specs.getDTMCModelChecker(mdp, strat);
+		Result result = mc.check(dtmc, specs.getDTMCExpression());
+		addDTMCCheckTime(start);
 		return result;
 	}
 
@@ -233,10 +262,13 @@ public class MAPEstimator extends Estimator
 
 	public double[] getInitialResults() throws PrismException {
 		buildPointIMDP(mdp);
-		double resultRobustMDP = round((Double) modelCheckPointEstimate(true, false).getResult());
-		double resultOptimisticMDP = round((Double) modelCheckPointEstimate(false, false).getResult());
-		MDStrategy robustStrat = computeStrategyFromEstimate(this.estimate, true);
-		MDStrategy optimisticStrat = computeStrategyFromEstimate(this.estimate, false);
+		// Each solution carries both the value and the strategy, so the IMDP is solved only once per problem
+		Result robustMDP = modelCheckPointEstimate(true, false);
+		Result optimisticMDP = modelCheckPointEstimate(false, false);
+		double resultRobustMDP = round((Double) robustMDP.getResult());
+		double resultOptimisticMDP = round((Double) optimisticMDP.getResult());
+		MDStrategy robustStrat = (MDStrategy) robustMDP.getStrategy();
+		MDStrategy optimisticStrat = (MDStrategy) optimisticMDP.getStrategy();
 		double resultRobustDTMC = round((Double) checkDTMC(robustStrat).getResult());
 		double resultOptimisticDTMC = round((Double) checkDTMC(optimisticStrat).getResult());
 		double dist = round(this.averageDistanceToSUL());
@@ -248,52 +280,72 @@ public class MAPEstimator extends Estimator
 
 
 	/**
-	 * Builds a point estimate IMDP of point intervals with laplace smoothing for the parameter epsilon
+	 * Builds a point estimate IMDP of point intervals with laplace smoothing for the parameter epsilon.
+	 * The estimate is updated in place: only the intervals of the state-action pairs whose priors changed
+	 * since the last call are recomputed, unless the intervals depend on all priors (see {@link #intervalsDependOnAllPriors()}).
 	 * @param mdp MDP for the underlying state space
 	 * @return IMDP of point intervals
 	 */
 	public IMDP<Double> buildPointIMDP(MDP<Double> mdp) {
-		int numStates = mdp.getNumStates();
-		IMDPSimple<Double> imdp = new IMDPSimple<>(numStates);
-		imdp.addInitialState(mdp.getFirstInitialState());
-		imdp.setStatesList(mdp.getStatesList());
-		imdp.setEvaluator(Evaluator.createForDoubleIntervals());
-
-		for (int s = 0; s < numStates; s++) {
-			int numChoices = mdp.getNumChoices(s);
-			final int state = s;
-			for (int i = 0 ; i < numChoices; i++) {
-				final String action = getActionString(mdp, s, i);
-				
-				Distribution<Interval<Double>> distrNew = new Distribution<>(Evaluator.createForDoubleIntervals());
-				mdp.forEachDoubleTransition(s, i, (int sFrom, int sTo, double p)->{
-					TransitionTriple t = new TransitionTriple(state, action, sTo);
-					Interval<Double> interval;
-					if (0 < p && p < 1.0) {
-						interval = getTransitionInterval(t);
-						distrNew.add(sTo, interval);
-						this.intervalsMap.put(t, interval);
-					}
-					else if (p == 1.0){
-						interval = new Interval<Double>(p, p);
-						distrNew.add(sTo, interval);
-						this.intervalsMap.put(t, interval);
-					}
-				});
-				imdp.addActionLabelledChoice(s, distrNew, getActionString(mdp, s, i));
-			}
+		long start = System.nanoTime();
+		boolean all = allPriorsChanged || intervalsDependOnAllPriors() || !isEstimateOver(mdp);
+		if (!isEstimateOver(mdp)) {
+			this.estimate = new IMDPFromMDP(mdp);
 		}
-		Map<String,BitSet> labels = mdp.getLabelToStatesMap();
-		Iterator<Entry<String, BitSet>> it = labels.entrySet().iterator();
-		while (it.hasNext()) {
-   			Map.Entry<String, BitSet> entry = it.next();
-    		imdp.addLabel(entry.getKey(), entry.getValue());
+		IMDPFromMDP imdp = (IMDPFromMDP) this.estimate;
+		if (all) {
+			int numStates = mdp.getNumStates();
+			for (int s = 0; s < numStates; s++) {
+				int numChoices = mdp.getNumChoices(s);
+				for (int i = 0 ; i < numChoices; i++) {
+					updatePointIntervals(imdp, mdp, this.observationCounts.getChoice(s, i));
+				}
+			}
+		} else {
+			for (int c = changedChoices.nextSetBit(0); c >= 0; c = changedChoices.nextSetBit(c + 1)) {
+				updatePointIntervals(imdp, mdp, c);
+			}
 		}
-		this.estimate = imdp;
+		allPriorsChanged = false;
+		changedChoices.clear();
 
+		addUpdateTime(start);
 		return imdp;
 	}
 
+	/**
+	 * Recompute the intervals of the transitions of (global) choice {@code c} of {@code mdp} (see {@link ObservationCounts},
+	 * whose transitions are in the order of {@code forEachDoubleTransition}), storing them in intervalsMap and in {@code imdp}.
+	 */
+	private void updatePointIntervals(IMDPFromMDP imdp, MDP<Double> mdp, int c) {
+		final ObservationCounts counts = this.observationCounts;
+		final int s = counts.getChoiceState(c);
+		final int i = counts.getChoiceOffset(c);
+		final int[] j = { counts.getTransitionsStart(c) };
+		mdp.forEachDoubleTransition(s, i, (int sFrom, int sTo, double p)->{
+			TransitionTriple t = counts.getTransitionTriple(j[0]++);
+			Interval<Double> interval;
+			if (0 < p && p < 1.0) {
+				interval = getTransitionInterval(t);
+				imdp.setInterval(s, i, sTo, interval);
+				this.intervalsMap.put(t, interval);
+			}
+			else if (p == 1.0){
+				interval = new Interval<Double>(p, p);
+				imdp.setInterval(s, i, sTo, interval);
+				this.intervalsMap.put(t, interval);
+			}
+		});
+	}
+
+	/**
+	 * Does the interval of a transition depend on the priors of all transitions,
+	 * rather than just those of its own state-action pair?
+	 */
+	protected boolean intervalsDependOnAllPriors() {
+		return false;
+	}
+
 	protected Interval<Double> getTransitionInterval(TransitionTriple t) {
 		double point = mode(t);
 		return new Interval<>(point, point);
@@ -305,17 +357,8 @@ public class MAPEstimator extends Estimator
 	 * @throws PrismException
 	 */
 	public Result modelCheckPointEstimate(boolean robust, boolean verbose) throws PrismException {
-		IMDPModelChecker mc = new IMDPModelChecker(this.prism);
-		mc.setErrorOnNonConverge(false);
-		PropertiesFile pf = prism.parsePropertiesString(ex.robustSpec);
-		if (robust)
-			pf = prism.parsePropertiesString(ex.robustSpec);
-		else 
-			pf = prism.parsePropertiesString(ex.optimisticSpec);
-
-		ModulesFileModelGenerator<?> modelGen = ModulesFileModelGenerator.create(modulesFileIMDP, this.prism);
-		mc.setModelCheckingInfo(modelGen, pf, modelGen);
-		Result result = mc.check(this.estimate, pf.getProperty(0));
+		IMDPModelChecker mc = specs.getIMDPModelChecker(robust);
+		Result result = checkIMDP(mc, this.estimate, specs.getIMDPExpression(robust), specs.getIMDPSpec(robust));
 		if (verbose) {
 			System.out.println("\nModel checking point estimate MDP:");
 			System.out.println(ex.robustSpec + " : " + result.getResultAndAccuracy());
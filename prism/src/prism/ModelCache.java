@@ -0,0 +1,121 @@
+package prism;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import explicit.MDP;
+import parser.ast.ModulesFile;
+
+/**
+ * Models shared by all estimators in a JVM: parsed model files, and SULs built and checked from them.
+ * <br>
+ * Both only depend on the model file (and the property the SUL is checked against), not on the seed,
+ * so when several experiments run in the same JVM (possibly on different threads, each with its own {@link Prism}),
+ * a model is parsed and built only once. Parsed model files are handed out as deep copies, since a
+ * {@link Prism} object modifies the model it loads; built SULs are shared and must not be modified.
+ * The same goes for synthetic models (see {@link SyntheticModel}), which only depend on their parameters.
+ */
+public class ModelCache
+{
+	/** A SUL built from a model file, together with the result of checking a property on it */
+	public static class SUL
+	{
+		private final MDP<Double> mdp;
+		private final Result result;
+
+		private SUL(MDP<Double> mdp, Result result)
+		{
+			this.mdp = mdp;
+			this.result = result;
+		}
+
+		public MDP<Double> getMDP()
+		{
+			return mdp;
+		}
+
+		public Result getResult()
+		{
+			return result;
+		}
+	}
+
+	/** Parsed model files, keyed by file name and model type */
+	private static final ConcurrentHashMap<String, ModulesFile> modulesFiles = new ConcurrentHashMap<>();
+
+	/** SULs, keyed by file name and property; each entry is built while holding its own lock */
+	private static final ConcurrentHashMap<String, SUL[]> suls = new ConcurrentHashMap<>();
+
+	/** Synthetic models, keyed by their parameters; each entry is generated while holding its own lock */
+	private static final ConcurrentHashMap<String, SyntheticModel[]> syntheticModels = new ConcurrentHashMap<>();
+
+	/**
+	 * Get a (deep) copy of the model in file {@code modelFile}, parsed with {@code prism}.
+	 * If {@code typeOverride} is non-null, it is used as the model type instead of the one in the file.
+	 */
+	public static ModulesFile getModulesFile(Prism prism, String modelFile, ModelType typeOverride) throws FileNotFoundException, PrismLangException
+	{
+		String key = modelFile + "|" + typeOverride;
+		ModulesFile modulesFile = modulesFiles.get(key);
+		if (modulesFile == null) {
+			modulesFile = prism.parseModelFile(new File(modelFile), typeOverride);
+			ModulesFile previous = modulesFiles.putIfAbsent(key, modulesFile);
+			if (previous != null) {
+				modulesFile = previous;
+			}
+		}
+		return (ModulesFile) modulesFile.deepCopy();
+	}
+
+	/**
+	 * Get the SUL built from {@code modulesFile} (which was parsed from {@code modelFile}),
+	 * and the result of checking {@code spec} on it. If it is not in the cache yet, {@code prism}
+	 * is used to build and check it; other threads asking for the same SUL meanwhile wait for it.
+	 * In all cases, {@code modulesFile} is loaded into {@code prism}.
+	 */
+	@SuppressWarnings("unchecked")
+	public static SUL getSUL(Prism prism, ModulesFile modulesFile, String modelFile, String spec) throws PrismException
+	{
+		prism.loadPRISMModel(modulesFile);
+		SUL[] entry = suls.computeIfAbsent(modelFile + "|" + spec, key -> new SUL[1]);
+		synchronized (entry) {
+			if (entry[0] == null) {
+				Result result = prism.modelCheck(spec);
+				entry[0] = new SUL((MDP<Double>) prism.getBuiltModelExplicit(), result);
+			}
+			return entry[0];
+		}
+	}
+
+	/**
+	 * Get the synthetic model of experiment {@code ex} (see {@link Experiment#isSynthetic()}), generating it
+	 * if it is not in the cache yet; other threads asking for the same model meanwhile wait for it.
+	 */
+	public static SyntheticModel getSyntheticModel(Experiment ex)
+	{
+		String key = ex.syntheticFamily + "|" + ex.syntheticSize + "|" + ex.syntheticBranching + "|" + ex.syntheticSeed;
+		SyntheticModel[] entry = syntheticModels.computeIfAbsent(key, k -> new SyntheticModel[1]);
+		synchronized (entry) {
+			if (entry[0] == null) {
+				entry[0] = new SyntheticModel(ex.syntheticFamily, ex.syntheticSize, ex.syntheticBranching, ex.syntheticSeed);
+			}
+			return entry[0];
+		}
+	}
+
+	/**
+	 * Get the SUL of synthetic model {@code model}, and the result of checking {@code spec} on it
+	 * (with {@code prism}, if it is not in the cache yet), as {@link #getSUL} for a model file.
+	 */
+	public static SUL getSyntheticSUL(Prism prism, SyntheticModel model, String spec) throws PrismException
+	{
+		SUL[] entry = suls.computeIfAbsent(model.getName() + "|" + spec, key -> new SUL[1]);
+		synchronized (entry) {
+			if (entry[0] == null) {
+				entry[0] = new SUL(model.getMDP(), model.check(prism, spec));
+			}
+			return entry[0];
+		}
+	}
+}
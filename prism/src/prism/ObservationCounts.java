@@ -0,0 +1,534 @@
+package prism;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Set;
+
+import explicit.MDP;
+
+/**
+ * Counters for observed transitions (s,a,s') of an explicit MDP.
+ * <br>
+ * Transitions are indexed in the CSR layout of the MDP (states, then choices, then successors,
+ * in the order given by {@code forEachDoubleTransition}), so recording an observation is a single
+ * array increment. Per-choice sample sizes are kept for the current observation sequence, and
+ * accumulated over all previous sequences.
+ * <br>
+ * Whether the sequence is long enough (see {@link #reachedRatio}) is tracked as observations are recorded:
+ * each choice has a threshold (given by its accumulated sample size), and reaching it raises a flag,
+ * so checking it after each episode takes constant time. Ending a sequence ({@link #reset()}) only
+ * updates the choices observed in it.
+ */
+public class ObservationCounts
+{
+	private MDP<Double> mdp;
+
+	/** First choice of each state; length numStates+1 */
+	private int[] rowStarts;
+	/** First transition of each choice; length numChoices+1 */
+	private int[] choiceStarts;
+	/** State of each choice */
+	private int[] choiceStates;
+	/** Successor of each transition */
+	private int[] cols;
+	/** Whether a transition is learnable (i.e. 0 < p < 1) and hence counted */
+	private boolean[] learnable;
+	/** Transition triple (s,a,s') of each transition, built when first needed (see {@link #getTransitionTriple}) */
+	private TransitionTriple[] triples;
+
+	/** Number of times each transition was observed in the current sequence */
+	private int[] transitionCounts;
+	/** Number of times each choice was observed in the current sequence */
+	private int[] choiceCounts;
+	/** Number of times each choice was observed in all previous sequences */
+	private long[] accumulatedCounts;
+
+	/** Sum of the accumulated counts of all choices */
+	private long totalAccumulatedCount;
+
+	/** Choices observed in the current sequence */
+	private int[] touched;
+	private int numTouched;
+
+	/** Ratio for which the thresholds are computed (see {@link #reachedRatio}) */
+	private float thresholdRatio = 1;
+	/** Number of observations of each choice in the current sequence from which it reaches the ratio */
+	private long[] thresholds;
+	/** Whether some choice reached its threshold in the current sequence */
+	private boolean reached;
+
+	/**
+	 * Build (empty) counters for the transitions of {@code mdp}.
+	 * Transitions with 0 < p < 1 are marked as learnable.
+	 */
+	public ObservationCounts(MDP<Double> mdp)
+	{
+		this.mdp = mdp;
+		int numStates = mdp.getNumStates();
+		int numChoices = 0;
+		int numTransitions = 0;
+		for (int s = 0; s < numStates; s++) {
+			int n = mdp.getNumChoices(s);
+			numChoices += n;
+			for (int i = 0; i < n; i++) {
+				numTransitions += mdp.getNumTransitions(s, i);
+			}
+		}
+		rowStarts = new int[numStates + 1];
+		choiceStarts = new int[numChoices + 1];
+		choiceStates = new int[numChoices];
+		cols = new int[numTransitions];
+		learnable = new boolean[numTransitions];
+		int[] next = new int[] { 0 };
+		int c = 0;
+		for (int s = 0; s < numStates; s++) {
+			rowStarts[s] = c;
+			int n = mdp.getNumChoices(s);
+			for (int i = 0; i < n; i++, c++) {
+				choiceStarts[c] = next[0];
+				choiceStates[c] = s;
+				mdp.forEachDoubleTransition(s, i, (sFrom, sTo, p) -> {
+					cols[next[0]] = sTo;
+					learnable[next[0]] = 0 < p && p < 1.0;
+					next[0]++;
+				});
+			}
+		}
+		rowStarts[numStates] = c;
+		choiceStarts[c] = next[0];
+
+		transitionCounts = new int[next[0]];
+		choiceCounts = new int[c];
+		accumulatedCounts = new long[c];
+		totalAccumulatedCount = 0;
+		touched = new int[c];
+		numTouched = 0;
+		thresholds = new long[c];
+		Arrays.fill(thresholds, threshold(0));
+		reached = false;
+	}
+
+	/**
+	 * Copy constructor: the counts are copied, the (unmodified) indexing is shared.
+	 */
+	private ObservationCounts(ObservationCounts counts)
+	{
+		mdp = counts.mdp;
+		rowStarts = counts.rowStarts;
+		choiceStarts = counts.choiceStarts;
+		choiceStates = counts.choiceStates;
+		cols = counts.cols;
+		triples = counts.triples;
+		learnable = counts.learnable.clone();
+		transitionCounts = counts.transitionCounts.clone();
+		choiceCounts = counts.choiceCounts.clone();
+		accumulatedCounts = counts.accumulatedCounts.clone();
+		totalAccumulatedCount = counts.totalAccumulatedCount;
+		touched = counts.touched.clone();
+		numTouched = counts.numTouched;
+		thresholdRatio = counts.thresholdRatio;
+		thresholds = counts.thresholds.clone();
+		reached = counts.reached;
+	}
+
+	/**
+	 * Get a copy of these counters, which can be updated independently of them.
+	 */
+	public ObservationCounts copy()
+	{
+		return new ObservationCounts(this);
+	}
+
+	/**
+	 * Get empty counters for the same (learnable) transitions as these, which can be updated independently of them,
+	 * e.g. to count observations on another thread and then {@link #add} them to these.
+	 */
+	public ObservationCounts emptyCopy()
+	{
+		ObservationCounts counts = new ObservationCounts(this);
+		Arrays.fill(counts.transitionCounts, 0);
+		Arrays.fill(counts.choiceCounts, 0);
+		Arrays.fill(counts.accumulatedCounts, 0);
+		counts.totalAccumulatedCount = 0;
+		counts.numTouched = 0;
+		Arrays.fill(counts.thresholds, counts.threshold(0));
+		counts.reached = false;
+		return counts;
+	}
+
+	/**
+	 * Build counters for {@code mdp} from maps of transition counts and sample sizes,
+	 * as used by {@link Estimator#setObservationMaps}.
+	 */
+	public static ObservationCounts fromMaps(MDP<Double> mdp, HashMap<TransitionTriple, Integer> samplesMap, HashMap<StateActionPair, Integer> sampleSizeMap)
+	{
+		ObservationCounts counts = new ObservationCounts(mdp);
+		int numStates = mdp.getNumStates();
+		for (int s = 0; s < numStates; s++) {
+			int n = mdp.getNumChoices(s);
+			for (int i = 0; i < n; i++) {
+				int c = counts.rowStarts[s] + i;
+				String action = counts.getActionString(s, i);
+				Integer size = sampleSizeMap.get(new StateActionPair(s, action));
+				if (size == null || size == 0) {
+					continue;
+				}
+				counts.choiceCounts[c] = size;
+				counts.touched[counts.numTouched++] = c;
+				for (int t = counts.choiceStarts[c]; t < counts.choiceStarts[c + 1]; t++) {
+					Integer samples = samplesMap.get(new TransitionTriple(s, action, counts.cols[t]));
+					if (samples != null) {
+						counts.transitionCounts[t] = samples;
+					}
+				}
+			}
+		}
+		counts.updateReached();
+		return counts;
+	}
+
+	/**
+	 * Restrict the learnable transitions to those in {@code transitions}.
+	 */
+	public void setLearnableTransitions(Set<TransitionTriple> transitions)
+	{
+		int numStates = mdp.getNumStates();
+		for (int s = 0; s < numStates; s++) {
+			int n = getNumChoices(s);
+			for (int i = 0; i < n; i++) {
+				int c = rowStarts[s] + i;
+				String action = getActionString(s, i);
+				for (int t = choiceStarts[c]; t < choiceStarts[c + 1]; t++) {
+					learnable[t] = transitions.contains(new TransitionTriple(s, action, cols[t]));
+				}
+			}
+		}
+	}
+
+	public MDP<Double> getModel()
+	{
+		return mdp;
+	}
+
+	public String getActionString(int s, int i)
+	{
+		Object action = mdp.getAction(s, i);
+		return action == null ? "_empty" : (String) action;
+	}
+
+	// Indexing
+
+	public int getNumStates()
+	{
+		return rowStarts.length - 1;
+	}
+
+	public int getNumChoices(int s)
+	{
+		return rowStarts[s + 1] - rowStarts[s];
+	}
+
+	/**
+	 * Get the (global) index of the {@code i}th choice of state {@code s}.
+	 */
+	public int getChoice(int s, int i)
+	{
+		return rowStarts[s] + i;
+	}
+
+	/**
+	 * Get the state of (global) choice {@code c}.
+	 */
+	public int getChoiceState(int c)
+	{
+		return choiceStates[c];
+	}
+
+	/**
+	 * Get the local index (within its state) of (global) choice {@code c}.
+	 */
+	public int getChoiceOffset(int c)
+	{
+		return c - rowStarts[choiceStates[c]];
+	}
+
+	public int getTransitionsStart(int c)
+	{
+		return choiceStarts[c];
+	}
+
+	public int getTransitionsEnd(int c)
+	{
+		return choiceStarts[c + 1];
+	}
+
+	public int getSuccessor(int t)
+	{
+		return cols[t];
+	}
+
+	public boolean isLearnable(int t)
+	{
+		return learnable[t];
+	}
+
+	/**
+	 * Get the transition triple (s,a,s') of transition {@code t}, as used as a key in the estimators' maps.
+	 * The triples are built once (for all transitions), so that looking up a transition does not allocate.
+	 */
+	public TransitionTriple getTransitionTriple(int t)
+	{
+		if (triples == null) {
+			triples = new TransitionTriple[cols.length];
+			for (int c = 0; c < choiceStates.length; c++) {
+				int s = choiceStates[c];
+				String action = getActionString(s, c - rowStarts[s]);
+				for (int j = choiceStarts[c]; j < choiceStarts[c + 1]; j++) {
+					triples[j] = new TransitionTriple(s, action, cols[j]);
+				}
+			}
+		}
+		return triples[t];
+	}
+
+	/**
+	 * Find the (global) index of the choice of state {@code s} labelled with {@code action},
+	 * where unlabelled choices match either "" or "_empty". Returns -1 if there is none.
+	 */
+	public int findChoice(int s, String action)
+	{
+		int n = getNumChoices(s);
+		for (int i = 0; i < n; i++) {
+			Object a = mdp.getAction(s, i);
+			if (a == null ? (action.isEmpty() || action.equals("_empty")) : a.equals(action)) {
+				return rowStarts[s] + i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Find the index of the transition of (global) choice {@code c} to {@code successor}.
+	 * Returns -1 if there is none.
+	 */
+	public int findTransition(int c, int successor)
+	{
+		for (int t = choiceStarts[c]; t < choiceStarts[c + 1]; t++) {
+			if (cols[t] == successor) {
+				return t;
+			}
+		}
+		return -1;
+	}
+
+	// Counting
+
+	/**
+	 * Record an observation of transition {@code t} of (global) choice {@code c},
+	 * if it is learnable. Returns true if it was counted.
+	 */
+	public boolean observe(int c, int t)
+	{
+		if (!learnable[t]) {
+			return false;
+		}
+		transitionCounts[t]++;
+		if (choiceCounts[c]++ == 0) {
+			touched[numTouched++] = c;
+		}
+		if (choiceCounts[c] >= thresholds[c]) {
+			reached = true;
+		}
+		return true;
+	}
+
+	/**
+	 * Add the observations of the current sequence of {@code counts}, counters for the same transitions
+	 * (see {@link #emptyCopy}), to the current sequence, as if they had been recorded here.
+	 */
+	public void add(ObservationCounts counts)
+	{
+		for (int k = 0; k < counts.numTouched; k++) {
+			int c = counts.touched[k];
+			for (int t = choiceStarts[c]; t < choiceStarts[c + 1]; t++) {
+				transitionCounts[t] += counts.transitionCounts[t];
+			}
+			if (choiceCounts[c] == 0) {
+				touched[numTouched++] = c;
+			}
+			choiceCounts[c] += counts.choiceCounts[c];
+			if (choiceCounts[c] >= thresholds[c]) {
+				reached = true;
+			}
+		}
+	}
+
+	/**
+	 * Record an observation of (s,i,s'), if it is learnable. Returns true if it was counted.
+	 */
+	public boolean observe(int s, int i, int successor)
+	{
+		int c = rowStarts[s] + i;
+		int t = findTransition(c, successor);
+		return t >= 0 && observe(c, t);
+	}
+
+	/**
+	 * Get the number of observations of transition {@code t} in the current sequence.
+	 */
+	public int getCount(int t)
+	{
+		return transitionCounts[t];
+	}
+
+	/**
+	 * Get the number of observations of (s,i,s') in the current sequence.
+	 */
+	public int getCount(int s, int i, int successor)
+	{
+		int t = findTransition(rowStarts[s] + i, successor);
+		return t < 0 ? 0 : transitionCounts[t];
+	}
+
+	/**
+	 * Get the number of observations of (global) choice {@code c} in the current sequence.
+	 */
+	public int getSampleSize(int c)
+	{
+		return choiceCounts[c];
+	}
+
+	/**
+	 * Get the number of observations of (s,i) in the current sequence.
+	 */
+	public int getSampleSize(int s, int i)
+	{
+		return choiceCounts[rowStarts[s] + i];
+	}
+
+	/**
+	 * Get the number of observations of (global) choice {@code c} in all previous sequences.
+	 */
+	public long getAccumulatedSampleSize(int c)
+	{
+		return accumulatedCounts[c];
+	}
+
+	/**
+	 * Get the number of distinct choices observed in the current sequence.
+	 */
+	public int getNumTouchedChoices()
+	{
+		return numTouched;
+	}
+
+	/**
+	 * Get the {@code k}th distinct (global) choice observed in the current sequence.
+	 */
+	public int getTouchedChoice(int k)
+	{
+		return touched[k];
+	}
+
+	/**
+	 * Check whether some choice has been observed in the current sequence at least
+	 * {@code ratio} times as often as in all previous sequences (or at least {@code ratio} times,
+	 * if it was not observed before). This takes constant time, unless {@code ratio} differs
+	 * from that of the previous check (in which case the thresholds of all choices are recomputed).
+	 */
+	public boolean reachedRatio(float ratio)
+	{
+		if (ratio != thresholdRatio) {
+			thresholdRatio = ratio;
+			for (int c = 0; c < thresholds.length; c++) {
+				thresholds[c] = threshold(accumulatedCounts[c]);
+			}
+			updateReached();
+		}
+		return reached;
+	}
+
+	/**
+	 * Get the number of observations in a sequence from which a choice with accumulated sample size {@code acc}
+	 * reaches the current ratio (at least 1, since only observed choices can reach it).
+	 */
+	private long threshold(long acc)
+	{
+		return Math.max(1, (long) Math.ceil(thresholdRatio * (acc == 0 ? 1 : acc)));
+	}
+
+	/**
+	 * Recompute whether some choice reached its threshold in the current sequence.
+	 */
+	private void updateReached()
+	{
+		reached = false;
+		for (int k = 0; k < numTouched; k++) {
+			int c = touched[k];
+			if (choiceCounts[c] >= thresholds[c]) {
+				reached = true;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Get the total number of counted observations in all previous sequences.
+	 */
+	public long getTotalAccumulatedSampleSize()
+	{
+		return totalAccumulatedCount;
+	}
+
+	/**
+	 * Add the counts of the current sequence to the accumulated counts, and start a new sequence.
+	 */
+	public void reset()
+	{
+		for (int k = 0; k < numTouched; k++) {
+			int c = touched[k];
+			accumulatedCounts[c] += choiceCounts[c];
+			totalAccumulatedCount += choiceCounts[c];
+			thresholds[c] = threshold(accumulatedCounts[c]);
+			choiceCounts[c] = 0;
+			Arrays.fill(transitionCounts, choiceStarts[c], choiceStarts[c + 1], 0);
+		}
+		numTouched = 0;
+		reached = false;
+	}
+
+	// Conversion
+
+	/**
+	 * Get the transition counts of the current sequence as a map.
+	 */
+	public HashMap<TransitionTriple, Integer> toSamplesMap()
+	{
+		HashMap<TransitionTriple, Integer> map = new HashMap<>();
+		for (int k = 0; k < numTouched; k++) {
+			int c = touched[k];
+			int s = choiceStates[c];
+			String action = getActionString(s, c - rowStarts[s]);
+			for (int t = choiceStarts[c]; t < choiceStarts[c + 1]; t++) {
+				if (transitionCounts[t] > 0) {
+					map.put(new TransitionTriple(s, action, cols[t]), transitionCounts[t]);
+				}
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * Get the sample sizes of the current sequence as a map.
+	 */
+	public HashMap<StateActionPair, Integer> toSampleSizeMap()
+	{
+		HashMap<StateActionPair, Integer> map = new HashMap<>();
+		for (int k = 0; k < numTouched; k++) {
+			int c = touched[k];
+			int s = choiceStates[c];
+			map.put(new StateActionPair(s, getActionString(s, c - rowStarts[s])), choiceCounts[c]);
+		}
+		return map;
+	}
+}
@@ -39,7 +39,7 @@ import simulator.method.CIwidth;
 import simulator.method.SimulationMethod;
 import strat.MDStrategy;
 import strat.MDStrategyArray;
-import strat.MRStrategy;
+import strat.MRStrategyArray;
 import strat.Strategy;
 import explicit.MDPModelChecker;
 import prism.Result;
@@ -49,14 +49,14 @@ public class ObservationSampler {
     private Prism prism;
 	private MDP<Double> sul;
 
-	private HashMap<TransitionTriple, Integer> samplesMap;
-	private HashMap<StateActionPair, Integer> sampleSizeMap;
-	private HashMap<StateActionPair, Integer> accumulatedSamples;
+	private ObservationCounts observationCounts;
 
 	private HashSet<Integer> terminatingStates;
 	private SimulatorEngine sim;
-
-	private HashSet<TransitionTriple> transitionsOfInterest;
+	private ExplicitModelSampler explicitSampler;
+	private boolean useExplicitSampler = true;
+	/** Random number generator for explicitly sampled episodes (if null, that of the simulator) */
+	private RandomNumberGenerator rng;
 
 	private boolean DEBUG = false;
 
@@ -65,21 +65,56 @@ public class ObservationSampler {
 
 
     public ObservationSampler(Prism prism, MDP<Double> sul, HashSet<Integer> terminatingStates) throws PrismException{
-		this.sampleSizeMap = new HashMap<>();
-		this.samplesMap = new HashMap<>();
-		this.accumulatedSamples = new HashMap<>();
-		this.transitionsOfInterest = new HashSet<>();
 		this.terminatingStates = terminatingStates;
 
 		this.prism = prism;
 		this.sul = sul;
+		this.observationCounts = new ObservationCounts(sul);
 
+		if (this.sul.getStatesList() == null) {
+			// a synthetic model, which can only be sampled explicitly (the simulator is only used for its random number generator)
+			this.sim = this.prism.getSimulator();
+			return;
+		}
 		//load model into simulator
 		this.prism.loadModelIntoSimulator();
 		this.sim = this.prism.getSimulator();
 		sim.loadReachableStates(this.sul.getStatesList());
     }
 
+	/**
+	 * Constructor for {@link #fork}.
+	 */
+	private ObservationSampler(ObservationSampler sampler, RandomNumberGenerator rng) throws PrismException {
+		this.prism = sampler.prism;
+		this.sul = sampler.sul;
+		this.terminatingStates = sampler.terminatingStates;
+		this.observationCounts = sampler.observationCounts.emptyCopy();
+		this.explicitSampler = new ExplicitModelSampler(sampler.getExplicitSampler());
+		this.rng = rng;
+	}
+
+	/**
+	 * Create a sampler of episodes of the same SUL that can be used on another thread: it samples explicitly
+	 * (see {@link #setUseExplicitSampler}), with random numbers from {@code rng}, into observation counts of its own,
+	 * which can then be added to those of this sampler with {@link #mergeObservations}.
+	 */
+	public ObservationSampler fork(RandomNumberGenerator rng) throws PrismException {
+		if (!this.useExplicitSampler) {
+			throw new PrismException("Only explicitly sampled episodes can be sampled on several threads");
+		}
+		return new ObservationSampler(this, rng);
+	}
+
+	/**
+	 * Add the observations of the current sequence of {@code sampler} (a fork of this sampler, see {@link #fork})
+	 * to the current sequence of this one, and start a new sequence in {@code sampler}.
+	 */
+	public void mergeObservations(ObservationSampler sampler) {
+		this.observationCounts.add(sampler.observationCounts);
+		sampler.observationCounts.reset();
+	}
+
 	public void setModulesFiles( ModulesFile modulesFileMDP, ModulesFile modulesFileIMDP) {
 		this.modulesFileIMDP = modulesFileIMDP;
 		this.modulesFileMDP = modulesFileMDP;
@@ -87,10 +122,21 @@ public class ObservationSampler {
 
 	public void setTerminatingStates(HashSet<Integer> set) {
 		this.terminatingStates = set;
+		if (this.explicitSampler != null) {
+			this.explicitSampler.setTerminatingStates(set);
+		}
+	}
+
+	/**
+	 * Whether to sample episodes directly on the explicit SUL, rather than with the simulator
+	 * (a SUL without a states list, i.e. a synthetic model, is always sampled directly).
+	 */
+	public void setUseExplicitSampler(boolean useExplicitSampler) {
+		this.useExplicitSampler = useExplicitSampler || this.sul.getStatesList() == null;
 	}
 
 	public void setTransitionsOfInterest(HashSet<TransitionTriple> set) {
-		this.transitionsOfInterest = set;
+		this.observationCounts.setLearnableTransitions(set);
 	}
 	
 	public int getIndexFromState(State s) {
@@ -105,12 +151,16 @@ public class ObservationSampler {
 		return action;
 	}
 
+	public ObservationCounts getObservationCounts() {
+		return this.observationCounts;
+	}
+
 	public HashMap<TransitionTriple, Integer> getSamplesMap() {
-		return this.samplesMap;
+		return this.observationCounts.toSamplesMap();
 	}
 
 	public HashMap<StateActionPair, Integer> getSampleSizeMap() {
-		return this.sampleSizeMap;
+		return this.observationCounts.toSampleSizeMap();
 	}
 
 
@@ -163,6 +213,9 @@ public class ObservationSampler {
 
 
 	public int simulateEpisode(int horizon, Strategy strat) throws PrismException {
+		if (this.useExplicitSampler) {
+			return simulateEpisodeExplicit(horizon, strat);
+		}
 		int number_of_samples = 0;
 		sim.createNewOnTheFlyPath();
 		sim.loadStrategy(strat);
@@ -180,6 +233,38 @@ public class ObservationSampler {
 		return number_of_samples;
 	}
 
+	/**
+	 * Simulate an episode on the explicit SUL, which gives the same
+	 * observations as the simulator, using the simulator's random number generator.
+	 */
+	private int simulateEpisodeExplicit(int horizon, Strategy strat) throws PrismException {
+		ExplicitModelSampler sampler = getExplicitSampler();
+		sampler.initialise(this.rng != null ? this.rng : sim.getRandomNumberGenerator());
+		int number_of_samples = 0;
+		while (number_of_samples <= horizon) {
+			if (!sampler.step(strat)) {
+				// could not execute a new action
+				break;
+			}
+			int t = sampler.getPreviousCountTransition();
+			if (t >= 0) {
+				this.observationCounts.observe(sampler.getPreviousCountChoice(), t);
+			}
+			number_of_samples += 1;
+		}
+		return number_of_samples;
+	}
+
+	private ExplicitModelSampler getExplicitSampler() throws PrismException {
+		if (this.explicitSampler == null) {
+			this.explicitSampler = this.sul.getStatesList() == null
+				? new ExplicitModelSampler(this.sul, this.observationCounts)
+				: new ExplicitModelSampler(sim.getModel(), this.sul, this.observationCounts);
+			this.explicitSampler.setTerminatingStates(this.terminatingStates);
+		}
+		return this.explicitSampler;
+	}
+
 	private void parseLastStep(PathOnTheFly path) {
 		State s = path.getPreviousState();
 		String a = path.getPreviousActionString();
@@ -192,20 +277,11 @@ public class ObservationSampler {
 	}
 
 	public boolean collectedEnoughSamples(float ratio) {
-		for (Map.Entry<StateActionPair, Integer> entry: this.sampleSizeMap.entrySet()){
-//			if (this.accumulatedSamples.containsKey(entry.getKey())) {
-			if (entry.getValue() >=  ratio * this.accumulatedSamples.getOrDefault(entry.getKey(), 1) ) {
-				return true;
-			}
-		}
-		return false;
+		return this.observationCounts.reachedRatio(ratio);
 	}
+
 	public int getTotalSamples() {
-		int total = 0;
-		for (Map.Entry<StateActionPair, Integer> entry: this.accumulatedSamples.entrySet()){
-			total += entry.getValue();
-		}
-		return total;
+		return (int) this.observationCounts.getTotalAccumulatedSampleSize();
 	}
 
 	// TODO: sample with maxmax or minmin strategy (i.e. let adversary help)
@@ -295,26 +371,15 @@ public class ObservationSampler {
 
 		//System.out.println("("+currentState+", " + action + ", " + successorState + ")");
 
-		StateActionPair sa = new StateActionPair(currentState, action);
-		TransitionTriple t = new TransitionTriple(currentState, action, successorState);
-		
+		int choice = this.observationCounts.findChoice(currentState, action);
+		if (choice < 0) {
+			return;
+		}
+		int t = this.observationCounts.findTransition(choice, successorState);
 		//only process t if it is a transition of 0 < p < 1
-		if (transitionsOfInterest.contains(t)) {
-			if (this.samplesMap.containsKey(t)) {
-				this.samplesMap.put(t, this.samplesMap.get(t)+1);
-			}
-			else {
-				this.samplesMap.put(t, 1);
-			}
-
-			if (this.sampleSizeMap.containsKey(sa)) {
-				this.sampleSizeMap.put(sa, this.sampleSizeMap.get(sa)+1);
-			}
-			else {
-				this.sampleSizeMap.put(sa, 1);
-			}
+		if (t >= 0) {
+			this.observationCounts.observe(choice, t);
 		}
-
 	}
 
 	
@@ -324,17 +389,9 @@ public class ObservationSampler {
 	 * Reset observation sequence
 	 */
     public void resetObservationSequence() {
-		incrementAccumulatedSamples();
-		this.sampleSizeMap.clear();
-		this.samplesMap.clear();
+		this.observationCounts.reset();
     }
 
-	private void incrementAccumulatedSamples() {
-		this.sampleSizeMap.forEach((sa, counter) -> {
-			this.accumulatedSamples.put(sa, this.accumulatedSamples.getOrDefault(sa, 0) + counter);
-		});
-	}
-
 
 	public int simulateWithRewardStrategy(long size, String propertyString, HashMap<TransitionTriple, Interval<Double>> intervalsMap, IMDP<Double> estimate) throws PrismException
 	{
@@ -434,14 +491,8 @@ public class ObservationSampler {
 		// Create a uniform strategy
 		if (this.uniformStrat == null) {
 			long startTime = System.currentTimeMillis();
-			MRStrategy strat = new MRStrategy(this.sul);
-			for (int s = 0; s < numStates; s++) {
-				int numChoices = this.sul.getNumChoices(s);
-				for (int i = 0; i < numChoices; i++) {
-					strat.setActionProbability(s, getActionString(this.sul, s, i), 1.0 / numChoices);
-				}
-			}
-			this.uniformStrat = strat;
+			// (choices are uniform until probabilities are set)
+			this.uniformStrat = new MRStrategyArray(this.sul);
 			long stopTime = System.currentTimeMillis();
 			//System.out.println("Uniform strategy computation time = " + (stopTime - startTime)/1000);
 		}
@@ -486,8 +537,9 @@ public class ObservationSampler {
 
 		// Create a uniform strategy
 		long startTime = System.currentTimeMillis();
-		MRStrategy strat = new MRStrategy(this.sul);
+		MRStrategyArray strat = new MRStrategyArray(this.sul);
 		int numStates = this.sul.getNumStates();
+		double[] ranks = new double[this.sul.getMaxNumChoices()];
 		for (int s = 0; s < numStates; s++) {
 			int numChoices = this.sul.getNumChoices(s);
 			for (int i = 0; i < numChoices; i++) {
@@ -502,9 +554,9 @@ public class ObservationSampler {
 						sum += width;
 					}
 				} 
-				double rank = sum / count;
-				strat.setActionProbability(s, getActionString(this.sul, s, i), rank);
+				ranks[i] = sum / count;
 			}
+			strat.setChoiceProbabilities(s, ranks);
 		}
 		long stopTime = System.currentTimeMillis();
 		if (DEBUG) {System.out.println("Ranked strategy computation time = " + (stopTime - startTime)/1000);}
@@ -434,6 +434,21 @@ public class PrismUtils
 		}
 	}
 
+	/**
+	 * Check monotonicity of a single value, from {@code oldValue} to {@code newValue},
+	 * throwing an exception if it is violated (see {@link #checkMonotonicity(double[], double[], boolean)}).
+	 * @param fromAbove Should the value decrease (rather than increase)?
+	 */
+	public static void checkMonotonicity(double oldValue, double newValue, boolean fromAbove) throws PrismException
+	{
+		if (fromAbove && oldValue < newValue) {
+			throw new PrismException("Monotonicity violated (from above): old value " + oldValue + " < new value " + newValue);
+		}
+		if (!fromAbove && oldValue > newValue) {
+			throw new PrismException("Monotonicity violated (from below): old value " + oldValue + " > new value " + newValue);
+		}
+	}
+
 	/**
 	 * Select midpoint from two interval iteration solution vectors.
 	 * Stores the result in soln_below.
@@ -0,0 +1,239 @@
+package prism;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.EnumSet;
+
+/**
+ * Writes the data points of a run to file(s) as they are produced.
+ * <br>
+ * Data points are appended to {@code <name>.csv.part} (and/or {@code <name>.bin.part}), which are
+ * buffered and regularly flushed to disk, so that the data of a run that is killed is not lost.
+ * When the sink is closed, the files are renamed to {@code <name>.csv} (and/or {@code <name>.bin}),
+ * so the final files only exist for completed runs.
+ * <br>
+ * The binary format is a header, the 8 bytes {@code LUIRES02}, followed by one 72-byte record per data point,
+ * with the columns of the CSV file: accumulated samples (int32), performance, estimated performance,
+ * average distance, lower bound, upper bound (float64), episode (int32), estimated optimistic performance
+ * and optimistic performance (float64), strategy version and sampling strategy version (int32), all little-endian
+ * (see {@code read_results} in {@code notebooks/util.py}, which also reads the 64-byte records of {@code LUIRES01}
+ * files, which lack the versions).
+ * <br>
+ * The metrics of the epochs of the run (see {@link EpochMetrics}), if any, are written likewise
+ * to {@code <name>.metrics.jsonl}, one JSON object per line.
+ */
+public class ResultSink implements Closeable
+{
+	public enum Format
+	{
+		CSV, BINARY;
+
+		public String extension()
+		{
+			return this == CSV ? ".csv" : ".bin";
+		}
+	}
+
+	public static final String CSV_HEADER = "Accumulated Samples,Performance,Estimated Performance,Average Distance,Lower Bound,Upper Bound,Episode,Estimated Optimistic Performance,Optimistic Performance,Strategy Version,Sampling Strategy Version";
+	public static final byte[] BINARY_MAGIC = "LUIRES02".getBytes(StandardCharsets.US_ASCII);
+	public static final int BINARY_RECORD_SIZE = 72;
+	public static final String METRICS_EXTENSION = ".metrics.jsonl";
+
+	/** Default time between forcing the files to disk (ms) */
+	public static final long DEFAULT_SYNC_INTERVAL = 60000;
+
+	private final String basePath;
+	private final EnumSet<Format> formats;
+	private long syncInterval = DEFAULT_SYNC_INTERVAL;
+	private long lastSync;
+
+	private FileOutputStream csvFile;
+	private BufferedWriter csvWriter;
+	private FileOutputStream binaryFile;
+	private BufferedOutputStream binaryStream;
+	private final ByteBuffer record = ByteBuffer.allocate(BINARY_RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+	/** File for the metrics of the epochs (opened for the first ones) */
+	private FileOutputStream metricsFile;
+	private BufferedWriter metricsWriter;
+	private int numEpochs = 0;
+
+	private DataPoint previous = null;
+
+	/**
+	 * Open a sink writing the data points to {@code directoryPath + name} plus the extension of each format.
+	 */
+	public ResultSink(String directoryPath, String name, EnumSet<Format> formats) throws IOException
+	{
+		this.basePath = directoryPath + name;
+		this.formats = formats;
+		if (formats.contains(Format.CSV)) {
+			csvFile = new FileOutputStream(partPath(Format.CSV), false);
+			csvWriter = new BufferedWriter(new OutputStreamWriter(csvFile));
+			csvWriter.write(CSV_HEADER);
+			csvWriter.write(System.getProperty("line.separator"));
+		}
+		if (formats.contains(Format.BINARY)) {
+			binaryFile = new FileOutputStream(partPath(Format.BINARY), false);
+			binaryStream = new BufferedOutputStream(binaryFile);
+			binaryStream.write(BINARY_MAGIC);
+		}
+		lastSync = System.currentTimeMillis();
+	}
+
+	/**
+	 * Set the time between forcing the files to disk (ms).
+	 */
+	public void setSyncInterval(long syncInterval)
+	{
+		this.syncInterval = syncInterval;
+	}
+
+	/**
+	 * Get the path of the (final) file for the given format.
+	 */
+	public String getPath(Format format)
+	{
+		return basePath + format.extension();
+	}
+
+	private String partPath(Format format)
+	{
+		return getPath(format) + ".part";
+	}
+
+	/**
+	 * Append a data point (unless it equals the previous one).
+	 */
+	public void add(DataPoint entry) throws IOException
+	{
+		if (entry.equals(previous)) {
+			return;
+		}
+		previous = entry;
+		if (csvWriter != null) {
+			String row = entry.getAccumulatedSamples() + ","
+					+ entry.getValue() + ","
+					+ entry.getEstimatedValue() + ","
+					+ entry.getDistance() + ","
+					+ entry.getLowerBound() + ","
+					+ entry.getUpperBound() + ","
+					+ entry.getEpisode() + ","
+					+ entry.getOptimisticEstimatedValue() + ","
+					+ entry.getOptimisticValue() + ","
+					+ entry.getStrategyVersion() + ","
+					+ entry.getSamplingStrategyVersion();
+			csvWriter.write(row + System.getProperty("line.separator"));
+		}
+		if (binaryStream != null) {
+			record.clear();
+			record.putInt(entry.getAccumulatedSamples());
+			record.putDouble(entry.getValue());
+			record.putDouble(entry.getEstimatedValue());
+			record.putDouble(entry.getDistance());
+			record.putDouble(entry.getLowerBound());
+			record.putDouble(entry.getUpperBound());
+			record.putInt((int) entry.getEpisode());
+			record.putDouble(entry.getOptimisticEstimatedValue());
+			record.putDouble(entry.getOptimisticValue());
+			record.putInt(entry.getStrategyVersion());
+			record.putInt(entry.getSamplingStrategyVersion());
+			binaryStream.write(record.array(), 0, BINARY_RECORD_SIZE);
+		}
+		if (System.currentTimeMillis() - lastSync >= syncInterval) {
+			sync();
+		}
+	}
+
+	/**
+	 * Append the metrics of the next epoch of the run.
+	 */
+	public void addMetrics(EpochMetrics metrics) throws IOException
+	{
+		if (metricsWriter == null) {
+			metricsFile = new FileOutputStream(metricsPartPath(), false);
+			metricsWriter = new BufferedWriter(new OutputStreamWriter(metricsFile, StandardCharsets.UTF_8));
+		}
+		metricsWriter.write(metrics.toJson(numEpochs++));
+		metricsWriter.write('\n');
+	}
+
+	private String metricsPartPath()
+	{
+		return basePath + METRICS_EXTENSION + ".part";
+	}
+
+	/**
+	 * Flush the buffered data points and force them to disk.
+	 */
+	public void sync() throws IOException
+	{
+		if (csvWriter != null) {
+			csvWriter.flush();
+			csvFile.getFD().sync();
+		}
+		if (binaryStream != null) {
+			binaryStream.flush();
+			binaryFile.getFD().sync();
+		}
+		if (metricsWriter != null) {
+			metricsWriter.flush();
+			metricsFile.getFD().sync();
+		}
+		lastSync = System.currentTimeMillis();
+	}
+
+	/**
+	 * Write all data points to disk, and give the files their final names.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		sync();
+		boolean metrics = metricsWriter != null;
+		closeFiles();
+		for (Format format : formats) {
+			Files.move(Paths.get(partPath(format)), Paths.get(getPath(format)), StandardCopyOption.REPLACE_EXISTING);
+		}
+		if (metrics) {
+			Files.move(Paths.get(metricsPartPath()), Paths.get(basePath + METRICS_EXTENSION), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Close the sink without giving the files their final names, and delete them (e.g. for a run that was stopped).
+	 */
+	public void discard() throws IOException
+	{
+		closeFiles();
+		for (Format format : formats) {
+			Files.deleteIfExists(Paths.get(partPath(format)));
+		}
+		Files.deleteIfExists(Paths.get(metricsPartPath()));
+	}
+
+	private void closeFiles() throws IOException
+	{
+		if (csvWriter != null) {
+			csvWriter.close();
+			csvWriter = null;
+		}
+		if (binaryStream != null) {
+			binaryStream.close();
+			binaryStream = null;
+		}
+		if (metricsWriter != null) {
+			metricsWriter.close();
+			metricsWriter = null;
+		}
+	}
+}
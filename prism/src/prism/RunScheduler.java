@@ -0,0 +1,106 @@
+package prism;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Thread pool for running independent experiment runs (e.g. the estimators compared on an {@link Experiment}).
+ * <br>
+ * The number of runs that are waiting or running is bounded: submitting a run blocks while the pool is full.
+ * Optionally, each run gets a time limit, after which it is marked as expired; runs are expected to check
+ * {@link #isCurrentRunExpired()} regularly (see {@link LearnVerify#runSamplingStrategyDoublingEpoch}) and stop.
+ * (Interrupting the thread is not an option, since e.g. the PRISM parser fails when interrupted.)
+ * Since {@link LearnVerify} only checks between episodes, a run can exceed its time limit
+ * by the rest of the episode, and of any recomputation of the sampling strategy, going on when it expires.
+ */
+public class RunScheduler
+{
+	private final ExecutorService executor;
+	private final ScheduledExecutorService watchdog;
+	/** Free places for runs that are waiting or running */
+	private final Semaphore places;
+	/** Time limit per run in seconds (0 if none) */
+	private final long timeout;
+
+	/** Whether the time limit of the run executed by the current thread has been reached */
+	private static final ThreadLocal<AtomicBoolean> currentRunExpired = new ThreadLocal<>();
+
+	/**
+	 * Create a scheduler running at most {@code threads} runs at the same time,
+	 * with at most {@code queueSize} further runs waiting. A {@code timeout} (in seconds)
+	 * of 0 means that runs are not limited in time.
+	 */
+	public RunScheduler(int threads, int queueSize, long timeout)
+	{
+		this.executor = Executors.newFixedThreadPool(threads);
+		this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "RunScheduler watchdog");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.places = new Semaphore(threads + queueSize);
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Submit a run, waiting for a free place in the queue if needed.
+	 */
+	public Future<?> submit(Runnable run) throws InterruptedException
+	{
+		places.acquire();
+		try {
+			return executor.submit(() -> {
+				try {
+					runWithTimeout(run);
+				} finally {
+					places.release();
+				}
+			});
+		} catch (RuntimeException e) {
+			places.release();
+			throw e;
+		}
+	}
+
+	private void runWithTimeout(Runnable run)
+	{
+		if (timeout <= 0) {
+			run.run();
+			return;
+		}
+		AtomicBoolean expired = new AtomicBoolean(false);
+		ScheduledFuture<?> alarm = watchdog.schedule(() -> expired.set(true), timeout, TimeUnit.SECONDS);
+		currentRunExpired.set(expired);
+		try {
+			run.run();
+		} finally {
+			currentRunExpired.remove();
+			alarm.cancel(false);
+		}
+	}
+
+	/**
+	 * Has the run executed by the current thread reached its time limit?
+	 * (Always false if the thread is not executing a run of a scheduler with a time limit.)
+	 */
+	public static boolean isCurrentRunExpired()
+	{
+		AtomicBoolean expired = currentRunExpired.get();
+		return expired != null && expired.get();
+	}
+
+	/**
+	 * Stop accepting runs; the runs already submitted are still executed.
+	 */
+	public void shutdown()
+	{
+		// The watchdog thread is a daemon, and may still be needed for the submitted runs
+		executor.shutdown();
+	}
+}
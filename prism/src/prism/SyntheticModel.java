@@ -0,0 +1,482 @@
+package prism;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import common.Interval;
+import explicit.MDPModelChecker;
+import explicit.MDPSparse;
+import parser.ast.PropertiesFile;
+import parser.type.Type;
+
+/**
+ * An MDP of a parametrised family, generated directly in memory as an {@link MDPSparse}, to test how learning scales
+ * with the size of the SUL (see {@link Experiment#synthetic}). Unlike the models in {@code models/}, it is not parsed
+ * or built by PRISM (and there is no reachability analysis: all generated states are states of the MDP).
+ * The families resemble those models:
+ * <ul>
+ * <li>{@link Family#GRID}: a square grid as {@code grid.prism}, moving up, down, left or right with probability
+ *     1-3p (and to each of the other directions with p), with walls of traps across the middle (with gaps),
+ *     from which one is reset to the start or freed; the goal is the north-east corner, to be reached without
+ *     getting trapped.</li>
+ * <li>{@link Family#CHAIN}: a chain as {@code chain_large.prism}, in which actions a, b and c move one step forward
+ *     with probability 0.5, 0.05 and 0.95 (and one step back otherwise); the goal is the end of the chain,
+ *     to be reached in as few steps as possible.</li>
+ * <li>{@link Family#RANDOM}: a random sparse MDP with two actions per state, each with {@code branching} successors
+ *     drawn uniformly (with random probabilities), plus a sink reached with probability 0.02; the goal (the last 1%
+ *     of the states) is to be reached with maximal probability. So the value does not depend much on the size.</li>
+ * <li>{@link Family#BETTING}: the betting game of {@code bet_fav.prism}, for a number of rounds such that the game
+ *     has about {@code size} states; the expected money at the end is to be maximised.</li>
+ * </ul>
+ * The model is its own {@link ModelInfo}, which has labels (attached to the MDP too) but no variables, and its own
+ * {@link RewardGenerator}, with one reward structure of state rewards (looked up by state index), so that the
+ * properties of an experiment (which can only refer to the labels) can be parsed and checked without a model file.
+ * For checks on an IMDP, the same rewards are given as (singleton) intervals by {@link #getIntervalRewards()}.
+ * The states of the MDP are only indices (there is no states list), so it is sampled directly (see {@link ExplicitModelSampler}).
+ * The sparse matrix takes about 12 bytes per transition.
+ */
+public class SyntheticModel implements ModelInfo, RewardGenerator<Double>
+{
+	public enum Family
+	{
+		GRID, CHAIN, RANDOM, BETTING
+	}
+
+	private final Family family;
+	private final int size;
+	private final int branching;
+	private final long seed;
+
+	private MDPSparse mdp;
+	private final List<String> labelNames = new ArrayList<>();
+	/** Reward of each state (null if there are no rewards) */
+	private double[] stateRewards;
+
+	// Sparse matrix under construction
+	private int[] rowStarts;
+	private int[] choiceStarts;
+	private int[] cols;
+	private double[] nonZeros;
+	private Object[] actions;
+	private int numChoices;
+	private int numTransitions;
+	private int currentState;
+
+	/**
+	 * Generate the MDP of {@code family} with about {@code size} states. For {@link Family#RANDOM}, each choice has
+	 * {@code branching} successors (apart from the sink), drawn with a random number generator seeded with {@code seed};
+	 * the other families are not random, and ignore {@code branching} and {@code seed}.
+	 */
+	public SyntheticModel(Family family, int size, int branching, long seed)
+	{
+		this.family = family;
+		this.size = size;
+		this.branching = branching;
+		this.seed = seed;
+		switch (family) {
+		case GRID:
+			buildGrid();
+			break;
+		case CHAIN:
+			buildChain();
+			break;
+		case RANDOM:
+			buildRandom();
+			break;
+		case BETTING:
+			buildBetting();
+			break;
+		}
+	}
+
+	/**
+	 * Get a name of the model, with its parameters (e.g. for keying it).
+	 */
+	public String getName()
+	{
+		return family == Family.RANDOM ? String.format("%s(%d,%d,%d)", family, size, branching, seed) : String.format("%s(%d)", family, size);
+	}
+
+	public MDPSparse getMDP()
+	{
+		return mdp;
+	}
+
+	/**
+	 * Check property {@code spec} (which may only refer to the labels of the model) on the MDP, with {@code prism}'s settings.
+	 * The result includes the vector of values of all states.
+	 */
+	public Result check(Prism prism, String spec) throws PrismException
+	{
+		PropertiesFile propertiesFile = prism.parsePropertiesString(this, spec);
+		MDPModelChecker mc = new MDPModelChecker(prism);
+		mc.setStoreVector(true);
+		mc.setModelCheckingInfo(this, propertiesFile, this);
+		return mc.check(mdp, propertiesFile.getProperty(0));
+	}
+
+	// Families
+
+	private void buildGrid()
+	{
+		double p = 0.15;
+		double q = 0.1;
+		int n = Math.max(3, (int) Math.ceil(Math.sqrt(size)));
+		int numStates = n * n;
+		BitSet trap = new BitSet(numStates);
+		int middle = n / 2;
+		for (int k = 0; k < n; k++) {
+			if (k != n / 4 && k != 3 * n / 4) {
+				trap.set(middle * n + k);
+				trap.set(k * n + middle);
+			}
+		}
+		start(numStates, 4 * numStates, 16 * numStates);
+		// Neighbour of each state in each direction (up, down, left, right)
+		int[] neighbour = new int[4];
+		for (int s = 0; s < numStates; s++) {
+			int x = s % n;
+			int y = s / n;
+			neighbour[0] = Math.max(y - 1, 0) * n + x;
+			neighbour[1] = Math.min(y + 1, n - 1) * n + x;
+			neighbour[2] = y * n + Math.max(x - 1, 0);
+			neighbour[3] = y * n + Math.min(x + 1, n - 1);
+			if (trap.get(s)) {
+				addChoice("reset");
+				addTransition(0, 1.0);
+				addChoice("free");
+				addTransition(s, 1 - 4 * q);
+				for (int d = 0; d < 4; d++) {
+					addTransition(neighbour[d], q);
+				}
+			} else {
+				String[] directions = { "up", "down", "left", "right" };
+				for (int d = 0; d < 4; d++) {
+					addChoice(directions[d]);
+					addTransition(neighbour[d], 1 - 3 * p);
+					for (int e = 0; e < 4; e++) {
+						if (e != d) {
+							addTransition(neighbour[e], p);
+						}
+					}
+				}
+			}
+			endState();
+		}
+		BitSet goal = new BitSet(numStates);
+		goal.set(n - 1);
+		finish();
+		addLabel("goal", goal);
+		addLabel("trap", trap);
+	}
+
+	private void buildChain()
+	{
+		int numStates = Math.max(2, size);
+		int h = numStates - 1;
+		String[] names = { "a", "b", "c" };
+		double[] forward = { 0.5, 0.05, 0.95 };
+		start(numStates, 3 * numStates, 6 * numStates);
+		stateRewards = new double[numStates];
+		for (int s = 0; s < numStates; s++) {
+			for (int a = 0; a < 3; a++) {
+				addChoice(names[a]);
+				addTransition(Math.min(s + 1, h), forward[a]);
+				addTransition(Math.max(s - 1, 0), 1 - forward[a]);
+			}
+			endState();
+			stateRewards[s] = s < h ? 1.0 : 0.0;
+		}
+		BitSet goal = new BitSet(numStates);
+		goal.set(h);
+		finish();
+		addLabel("goal", goal);
+	}
+
+	private void buildRandom()
+	{
+		double sinkProbability = 0.02;
+		int numStates = Math.max(4, size);
+		int numGoals = Math.max(1, numStates / 100);
+		int sink = numStates - numGoals - 1;
+		int succs = Math.max(1, Math.min(branching, sink));
+		Random random = new Random(seed);
+		start(numStates, 2 * numStates, 2 * (succs + 1) * numStates);
+		int[] targets = new int[succs];
+		double[] weights = new double[succs];
+		for (int s = 0; s < numStates; s++) {
+			if (s >= sink) {
+				addChoice("stay");
+				addTransition(s, 1.0);
+				endState();
+				continue;
+			}
+			for (String action : new String[] { "a", "b" }) {
+				addChoice(action);
+				double total = 0;
+				for (int k = 0; k < succs; k++) {
+					int t;
+					do {
+						t = random.nextInt(numStates);
+					} while (t == sink || contains(targets, k, t));
+					targets[k] = t;
+					weights[k] = 0.1 + 0.9 * random.nextDouble();
+					total += weights[k];
+				}
+				for (int k = 0; k < succs; k++) {
+					addTransition(targets[k], (1 - sinkProbability) * weights[k] / total);
+				}
+				addTransition(sink, sinkProbability);
+			}
+			endState();
+		}
+		BitSet goal = new BitSet(numStates);
+		goal.set(numStates - numGoals, numStates);
+		BitSet sinkStates = new BitSet(numStates);
+		sinkStates.set(sink);
+		finish();
+		addLabel("goal", goal);
+		addLabel("sink", sinkStates);
+	}
+
+	private static boolean contains(int[] array, int length, int value)
+	{
+		for (int k = 0; k < length; k++) {
+			if (array[k] == value) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void buildBetting()
+	{
+		double win = 0.8;
+		int[] bets = { 1, 2, 5, 10 };
+		int n = Math.max(1, (int) Math.round(Math.sqrt(size / 10.0)));
+		int maxMoney = (n + 1) * 10;
+		int numMoney = maxMoney + 1;
+		int numStates = numMoney * (n + 2);
+		start(numStates, 5 * numStates, 9 * numStates);
+		stateRewards = new double[numStates];
+		// State (money, steps) has index steps * numMoney + money, so the initial state (10, 0) is not state 0
+		for (int s = 0; s < numStates; s++) {
+			int money = s % numMoney;
+			int steps = s / numMoney;
+			if (steps < n) {
+				addChoice("bet0");
+				addTransition(s + numMoney, 1.0);
+				for (int bet : bets) {
+					if (money >= bet && money <= n * 10) {
+						addChoice("bet" + bet);
+						addTransition(s + numMoney + bet, win);
+						addTransition(s + numMoney - bet, 1 - win);
+					}
+				}
+			} else {
+				addChoice("end");
+				addTransition(steps == n ? s + numMoney : s, 1.0);
+			}
+			endState();
+			stateRewards[s] = steps == n ? money : 0.0;
+		}
+		BitSet done = new BitSet(numStates);
+		done.set((n + 1) * numMoney, numStates);
+		finish(10);
+		addLabel("done", done);
+	}
+
+	// Construction of the sparse matrix
+
+	/**
+	 * Start the sparse matrix of an MDP with {@code numStates} states, and (initially) room for
+	 * {@code expectedChoices} choices and {@code expectedTransitions} transitions.
+	 */
+	private void start(int numStates, int expectedChoices, int expectedTransitions)
+	{
+		rowStarts = new int[numStates + 1];
+		choiceStarts = new int[expectedChoices + 1];
+		actions = new Object[expectedChoices];
+		cols = new int[expectedTransitions];
+		nonZeros = new double[expectedTransitions];
+		numChoices = 0;
+		numTransitions = 0;
+		currentState = 0;
+	}
+
+	/**
+	 * Start a new choice of the current state, with action {@code action}.
+	 */
+	private void addChoice(String action)
+	{
+		if (numChoices + 1 >= choiceStarts.length) {
+			choiceStarts = Arrays.copyOf(choiceStarts, 2 * choiceStarts.length);
+			actions = Arrays.copyOf(actions, 2 * actions.length);
+		}
+		choiceStarts[numChoices] = numTransitions;
+		actions[numChoices] = action;
+		numChoices++;
+	}
+
+	/**
+	 * Add a transition to state {@code target} with probability {@code prob} to the current choice
+	 * (which is added to the probability of the transition to {@code target}, if there is one already).
+	 */
+	private void addTransition(int target, double prob)
+	{
+		for (int t = choiceStarts[numChoices - 1]; t < numTransitions; t++) {
+			if (cols[t] == target) {
+				nonZeros[t] += prob;
+				return;
+			}
+		}
+		if (numTransitions >= cols.length) {
+			cols = Arrays.copyOf(cols, 2 * cols.length);
+			nonZeros = Arrays.copyOf(nonZeros, 2 * nonZeros.length);
+		}
+		cols[numTransitions] = target;
+		nonZeros[numTransitions] = prob;
+		numTransitions++;
+	}
+
+	/**
+	 * End the choices of the current state, and start those of the next one.
+	 */
+	private void endState()
+	{
+		rowStarts[++currentState] = numChoices;
+	}
+
+	private void finish()
+	{
+		finish(0);
+	}
+
+	/**
+	 * Build the MDP from the sparse matrix, with initial state {@code initialState}.
+	 */
+	private void finish(int initialState)
+	{
+		choiceStarts[numChoices] = numTransitions;
+		mdp = new MDPSparse(rowStarts, Arrays.copyOf(choiceStarts, numChoices + 1), Arrays.copyOf(cols, numTransitions),
+				Arrays.copyOf(nonZeros, numTransitions), Arrays.copyOf(actions, numChoices));
+		mdp.addInitialState(initialState);
+		rowStarts = choiceStarts = cols = null;
+		nonZeros = null;
+		actions = null;
+	}
+
+	private void addLabel(String name, BitSet states)
+	{
+		mdp.addLabel(name, states);
+		labelNames.add(name);
+	}
+
+	/**
+	 * Get the rewards of the model as (singleton) intervals, for checking properties on an IMDP.
+	 */
+	public RewardGenerator<Interval<Double>> getIntervalRewards()
+	{
+		SyntheticModel model = this;
+		return new RewardGenerator<Interval<Double>>()
+		{
+			@Override
+			public Evaluator<Interval<Double>> getEvaluator()
+			{
+				return Evaluator.createForDoubleIntervals();
+			}
+
+			@Override
+			public List<String> getRewardStructNames()
+			{
+				return model.getRewardStructNames();
+			}
+
+			@Override
+			public boolean rewardStructHasTransitionRewards(int r)
+			{
+				return false;
+			}
+
+			@Override
+			public boolean isRewardLookupSupported(RewardLookup lookup)
+			{
+				return lookup == RewardLookup.BY_STATE_INDEX;
+			}
+
+			@Override
+			public Interval<Double> getStateReward(int r, int s)
+			{
+				return new Interval<>(stateRewards[s], stateRewards[s]);
+			}
+
+			@Override
+			public Interval<Double> getStateActionReward(int r, int s, Object action)
+			{
+				return new Interval<>(0.0, 0.0);
+			}
+		};
+	}
+
+	// ModelInfo
+
+	@Override
+	public ModelType getModelType()
+	{
+		return ModelType.MDP;
+	}
+
+	@Override
+	public List<String> getVarNames()
+	{
+		return Collections.emptyList();
+	}
+
+	@Override
+	public List<Type> getVarTypes()
+	{
+		return Collections.emptyList();
+	}
+
+	@Override
+	public List<String> getLabelNames()
+	{
+		return labelNames;
+	}
+
+	// RewardGenerator
+
+	@Override
+	public List<String> getRewardStructNames()
+	{
+		return stateRewards == null ? Collections.emptyList() : Collections.singletonList("");
+	}
+
+	@Override
+	public boolean rewardStructHasTransitionRewards(int r)
+	{
+		return false;
+	}
+
+	@Override
+	public boolean isRewardLookupSupported(RewardLookup lookup)
+	{
+		return lookup == RewardLookup.BY_STATE_INDEX;
+	}
+
+	@Override
+	public Double getStateReward(int r, int s)
+	{
+		return stateRewards[s];
+	}
+
+	@Override
+	public Double getStateActionReward(int r, int s, Object action)
+	{
+		return 0.0;
+	}
+}
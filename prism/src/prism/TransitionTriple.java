@@ -7,6 +7,8 @@ public class TransitionTriple {
     private int s;
     private String action;
     private int successor;
+    /** Hash code, computed when first needed (0 until then) */
+    private int hash;
 
     public TransitionTriple(int s, String action, int successor) {
         this.s = s;
@@ -33,7 +35,10 @@ public class TransitionTriple {
     @Override
     public int hashCode() {
         //return Objects.hash(this.s, this.action, this.successor);
-        return this.toString().hashCode();
+        if (this.hash == 0) {
+            this.hash = this.toString().hashCode();
+        }
+        return this.hash;
     }
 
     @Override
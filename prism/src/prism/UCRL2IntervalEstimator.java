@@ -9,6 +9,12 @@ public class UCRL2IntervalEstimator extends PACIntervalEstimator
     }
 
 
+	@Override
+	protected boolean intervalsDependOnAllPriors() {
+		// the bound depends on the total number of samples
+		return true;
+	}
+
 	@Override
 	protected Double confidenceInterval(TransitionTriple t) {
 		return computeUCRL2Bound(t);
@@ -65,6 +65,18 @@ public class RandomNumberGenerator
 		exponential = new Exponential(1.0, random);
 	}
 
+	/**
+	 * Create a copy of random number generator {@code rng}, which continues from the same state
+	 * (but independently of it).
+	 */
+	public RandomNumberGenerator(RandomNumberGenerator rng)
+	{
+		random = (MersenneTwister) rng.random.clone();
+		uniform = new Uniform(random);
+		// Create exponential generator (rate 1.0 but this is ignored from now on)
+		exponential = new Exponential(1.0, random);
+	}
+
 	/**
 	 * Pick a (uniformly distributed) random integer in the range [0,...,n-1].
 	 */
@@ -59,8 +59,8 @@ import prism.RewardGenerator;
 import prism.UndefinedConstants;
 import simulator.method.SimulationMethod;
 import simulator.sampler.Sampler;
-import strat.MRStrategy;
 import strat.MDStrategy;
+import strat.RandomisedStrategy;
 import strat.Strategy;
 import userinterface.graph.Graph;
 
@@ -223,6 +223,14 @@ public class SimulatorEngine extends PrismComponent
 		rng = new RandomNumberGenerator(seed);
 	}
 
+	/**
+	 * Set the random number generator used for simulation (e.g. to continue from a saved state).
+	 */
+	public void setRandomNumberGenerator(RandomNumberGenerator rng)
+	{
+		this.rng = rng;
+	}
+
 
 	/**
 	 * Loads a new model (and its rewards) into the simulator.
@@ -296,7 +304,15 @@ public class SimulatorEngine extends PrismComponent
 	{
 		return rewardGen;
 	}
-	
+
+	/**
+	 * Get access to the random number generator used for simulation
+	 */
+	public RandomNumberGenerator getRandomNumberGenerator()
+	{
+		return rng;
+	}
+
 	// ------------------------------------------------------------------------------
 	// Path creation and modification
 	// ------------------------------------------------------------------------------
@@ -430,9 +446,9 @@ public class SimulatorEngine extends PrismComponent
 			executeTransition(ref.i, ref.offset, -1);
 			break;
 		case MDP:
-			if (strategy != null && strategy instanceof MRStrategy) {
+			if (strategy != null && strategy instanceof RandomisedStrategy) {
 				int s = getReachableStateIndex(currentState);
-				i = ((MRStrategy) strategy).getChoice(s, rng);
+				i = ((RandomisedStrategy) strategy).getChoice(s, rng);
 			} else if (strategy != null && strategy instanceof MDStrategy) {
 				int s = getReachableStateIndex(currentState);
 				i = ((MDStrategy) strategy).getChoiceIndex(s);
@@ -503,9 +519,9 @@ public class SimulatorEngine extends PrismComponent
 			executeTransition(ref.i, ref.offset, -1);
 			break;
 		case MDP:
-			if (strategy != null && strategy instanceof MRStrategy) {
+			if (strategy != null && strategy instanceof RandomisedStrategy) {
 				int s = getReachableStateIndex(currentState);
-				i = ((MRStrategy) strategy).getChoice(s, rng);
+				i = ((RandomisedStrategy) strategy).getChoice(s, rng);
 			} else {
 				i = choice;
 			}
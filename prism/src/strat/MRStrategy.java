@@ -9,7 +9,11 @@ import explicit.NondetModel;
 import prism.PrismLog;
 import simulator.RandomNumberGenerator;
 
-public class MRStrategy implements Strategy
+/**
+ * Memoryless randomised (MR) strategy, storing the probability of each action in each state in a map.
+ * See {@link MRStrategyArray} for an index-based version with constant-time sampling.
+ */
+public class MRStrategy implements RandomisedStrategy
 {
 	// Model that strategy is for
 	protected NondetModel<?> model;
@@ -36,9 +40,7 @@ public class MRStrategy implements Strategy
 		dist.put(a, p);
 	}
 	
-	/**
-	 * Sample the (index of the) choice to take in state s
-	 */
+	@Override
 	public int getChoice(int s, RandomNumberGenerator rng)
 	{
 		HashMap<Object, Double> dist = actionProbs.get(s);
@@ -0,0 +1,201 @@
+package strat;
+
+import explicit.NondetModel;
+import prism.PrismLog;
+import simulator.RandomNumberGenerator;
+
+/**
+ * Memoryless randomised (MR) strategy, storing the probability of each choice (index) in each state
+ * in a flat array, laid out like the choices of a sparse model (states, then choices).
+ * <br>
+ * Choices are sampled in constant time with an alias table (Vose's method) per state,
+ * which is rebuilt whenever probabilities of the state are set (in time linear in its number of choices),
+ * so it is cheaper to set all of a state's probabilities at once, with {@link #setChoiceProbabilities}.
+ * Sampling only reads the strategy, so it can be done concurrently, as long as no probabilities are set meanwhile.
+ * The probabilities of a state need not sum to exactly 1; they are normalised when sampling
+ * (and if they are all 0, e.g. before they have been set, choices are uniform).
+ */
+public class MRStrategyArray implements RandomisedStrategy
+{
+	/** Model that the strategy is for */
+	protected NondetModel<?> model;
+	/** First choice of each state; length numStates+1 */
+	protected int[] rowStarts;
+	/** Probability of each choice */
+	protected double[] probs;
+
+	/** Alias table: probability of keeping each choice (rather than taking its alias), when it is drawn */
+	protected double[] keep;
+	/** Alias table: alias (choice index within the state) of each choice */
+	protected int[] alias;
+
+	/** Work lists for building an alias table */
+	private int[] small;
+	private int[] large;
+
+	public MRStrategyArray(NondetModel<?> model)
+	{
+		this.model = model;
+		int numStates = model.getNumStates();
+		rowStarts = new int[numStates + 1];
+		int maxNumChoices = 0;
+		for (int s = 0; s < numStates; s++) {
+			int numChoices = model.getNumChoices(s);
+			rowStarts[s + 1] = rowStarts[s] + numChoices;
+			maxNumChoices = Math.max(maxNumChoices, numChoices);
+		}
+		probs = new double[rowStarts[numStates]];
+		keep = new double[rowStarts[numStates]];
+		alias = new int[rowStarts[numStates]];
+		small = new int[maxNumChoices];
+		large = new int[maxNumChoices];
+		for (int s = 0; s < numStates; s++) {
+			buildAliasTable(s);
+		}
+	}
+
+	/**
+	 * Set the probability of choosing choice i in state s to p
+	 */
+	public void setChoiceProbability(int s, int i, double p)
+	{
+		probs[rowStarts[s] + i] = p;
+		buildAliasTable(s);
+	}
+
+	/**
+	 * Set the probabilities of choosing each choice in state s,
+	 * i.e., p[i] for choice i (p must have at least as many elements as s has choices)
+	 */
+	public void setChoiceProbabilities(int s, double[] p)
+	{
+		System.arraycopy(p, 0, probs, rowStarts[s], rowStarts[s + 1] - rowStarts[s]);
+		buildAliasTable(s);
+	}
+
+	/**
+	 * Set the probability of choosing action a in state s to p
+	 */
+	public void setActionProbability(int s, Object a, double p)
+	{
+		int i = model.getChoiceByAction(s, a);
+		if (i < 0) {
+			throw new IllegalArgumentException("No action " + a + " in state " + s);
+		}
+		setChoiceProbability(s, i, p);
+	}
+
+	/**
+	 * Get the probability of choosing choice i in state s (as set, i.e., not normalised)
+	 */
+	public double getChoiceProbability(int s, int i)
+	{
+		return probs[rowStarts[s] + i];
+	}
+
+	@Override
+	public int getChoice(int s, RandomNumberGenerator rng)
+	{
+		int first = rowStarts[s];
+		int numChoices = rowStarts[s + 1] - first;
+		if (numChoices == 0) {
+			return -1;
+		}
+		double x = rng.randomUnifDouble() * numChoices;
+		int i = Math.min((int) x, numChoices - 1);
+		return x - i < keep[first + i] ? i : alias[first + i];
+	}
+
+	/**
+	 * Build the alias table of state s from its choice probabilities.
+	 */
+	private void buildAliasTable(int s)
+	{
+		int first = rowStarts[s];
+		int numChoices = rowStarts[s + 1] - first;
+		double total = 0.0;
+		for (int i = 0; i < numChoices; i++) {
+			total += probs[first + i];
+		}
+		int numSmall = 0, numLarge = 0;
+		for (int i = 0; i < numChoices; i++) {
+			// Scale so that the average is 1 (or, if all probabilities are 0, make them uniform)
+			keep[first + i] = total > 0.0 ? probs[first + i] * numChoices / total : 1.0;
+			alias[first + i] = i;
+			if (keep[first + i] < 1.0) {
+				small[numSmall++] = i;
+			} else {
+				large[numLarge++] = i;
+			}
+		}
+		// Fill up each small entry with (part of) a large one
+		while (numSmall > 0 && numLarge > 0) {
+			int l = small[--numSmall];
+			int g = large[--numLarge];
+			alias[first + l] = g;
+			keep[first + g] = (keep[first + g] + keep[first + l]) - 1.0;
+			if (keep[first + g] < 1.0) {
+				small[numSmall++] = g;
+			} else {
+				large[numLarge++] = g;
+			}
+		}
+		// What remains is 1 (up to rounding errors)
+		while (numLarge > 0) {
+			keep[first + large[--numLarge]] = 1.0;
+		}
+		while (numSmall > 0) {
+			keep[first + small[--numSmall]] = 1.0;
+		}
+	}
+
+	// ---------------------------------------------------------
+
+	@Override
+	public void exportActions(PrismLog out)
+	{
+		// not supported (as for MRStrategy)
+	}
+
+	@Override
+	public void exportIndices(PrismLog out)
+	{
+		// not supported (as for MRStrategy)
+	}
+
+	@Override
+	public void exportInducedModel(PrismLog out)
+	{
+		// not supported (as for MRStrategy)
+	}
+
+	@Override
+	public void exportDotFile(PrismLog out)
+	{
+		// not supported (as for MRStrategy)
+	}
+
+	@Override
+	public void initialise(int s)
+	{
+		// memoryless: nothing to do
+	}
+
+	@Override
+	public void update(Object action, int s)
+	{
+		// memoryless: nothing to do
+	}
+
+	@Override
+	public Object getChoiceAction()
+	{
+		return null;
+	}
+
+	@Override
+	public void clear()
+	{
+		// nothing to clear
+	}
+}
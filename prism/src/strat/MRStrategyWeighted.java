@@ -0,0 +1,112 @@
+package strat;
+
+import explicit.NondetModel;
+import prism.PrismLog;
+import simulator.RandomNumberGenerator;
+
+/**
+ * Memoryless randomised (MR) strategy that follows an MD strategy with a given probability ({@code weight}),
+ * and otherwise picks one of the other choices uniformly at random (i.e. an epsilon-greedy strategy, for epsilon = 1 - weight).
+ * In states where the MD strategy has no choice, or which have a single choice, all choices are equally likely.
+ * <br>
+ * This is a view of the MD strategy: nothing is stored per state.
+ */
+public class MRStrategyWeighted implements RandomisedStrategy
+{
+	/** Model that the strategy is for */
+	protected NondetModel<?> model;
+	/** The MD strategy followed */
+	protected MDStrategy strat;
+	/** Probability of taking the choice of the MD strategy */
+	protected double weight;
+
+	public MRStrategyWeighted(NondetModel<?> model, MDStrategy strat, double weight)
+	{
+		this.model = model;
+		this.strat = strat;
+		this.weight = weight;
+	}
+
+	/**
+	 * Get the probability of choosing choice i in state s
+	 */
+	public double getChoiceProbability(int s, int i)
+	{
+		int numChoices = model.getNumChoices(s);
+		int best = strat.getChoiceIndex(s);
+		if (best < 0 || numChoices <= 1) {
+			return 1.0 / numChoices;
+		}
+		return i == best ? weight : (1.0 - weight) / (numChoices - 1);
+	}
+
+	@Override
+	public int getChoice(int s, RandomNumberGenerator rng)
+	{
+		int numChoices = model.getNumChoices(s);
+		if (numChoices == 0) {
+			return -1;
+		}
+		double x = rng.randomUnifDouble();
+		int best = strat.getChoiceIndex(s);
+		if (best < 0 || numChoices <= 1) {
+			return Math.min((int) (x * numChoices), numChoices - 1);
+		}
+		if (x < weight) {
+			return best;
+		}
+		// Pick one of the other choices, reusing the part of x above the weight
+		int other = Math.min((int) ((x - weight) / (1.0 - weight) * (numChoices - 1)), numChoices - 2);
+		return other < best ? other : other + 1;
+	}
+
+	// ---------------------------------------------------------
+
+	@Override
+	public void exportActions(PrismLog out)
+	{
+		// not supported (as for MRStrategy)
+	}
+
+	@Override
+	public void exportIndices(PrismLog out)
+	{
+		// not supported (as for MRStrategy)
+	}
+
+	@Override
+	public void exportInducedModel(PrismLog out)
+	{
+		// not supported (as for MRStrategy)
+	}
+
+	@Override
+	public void exportDotFile(PrismLog out)
+	{
+		// not supported (as for MRStrategy)
+	}
+
+	@Override
+	public void initialise(int s)
+	{
+		// memoryless: nothing to do
+	}
+
+	@Override
+	public void update(Object action, int s)
+	{
+		// memoryless: nothing to do
+	}
+
+	@Override
+	public Object getChoiceAction()
+	{
+		return null;
+	}
+
+	@Override
+	public void clear()
+	{
+		// a view of the MD strategy: nothing to clear
+	}
+}
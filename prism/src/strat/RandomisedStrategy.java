@@ -0,0 +1,16 @@
+package strat;
+
+import simulator.RandomNumberGenerator;
+
+/**
+ * Interface for memoryless randomised strategies whose choices can be sampled,
+ * without assuming anything about how (or whether) their probabilities can be changed.
+ */
+public interface RandomisedStrategy extends Strategy
+{
+	/**
+	 * Sample the (index of the) choice to take in state s (-1 if there is none).
+	 * This uses a single random number from {@code rng}.
+	 */
+	public int getChoice(int s, RandomNumberGenerator rng);
+}